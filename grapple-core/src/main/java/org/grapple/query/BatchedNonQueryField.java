@@ -0,0 +1,7 @@
+package org.grapple.query;
+
+public interface BatchedNonQueryField<X, T> extends EntityField<X, T> {
+
+    BatchedNonQueryFieldResolver<X, T> getResolver();
+
+}
@@ -0,0 +1,14 @@
+package org.grapple.query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.persistence.Tuple;
+
+// Invoked once per page of results, with the rows of the page, returning values keyed by row
+@FunctionalInterface
+public interface BatchedNonQueryFieldResolver<X, T> {
+
+    Function<List<Tuple>, Map<Tuple, T>> get(EntityContext<X> ctx, QueryBuilder queryBuilder);
+
+}
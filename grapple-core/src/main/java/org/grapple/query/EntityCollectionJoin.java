@@ -0,0 +1,13 @@
+package org.grapple.query;
+
+import javax.persistence.metamodel.SingularAttribute;
+import org.grapple.core.MetadataAware;
+
+public interface EntityCollectionJoin<X, Y> extends MetadataAware {
+
+    String getName();
+
+    EntityResultType<Y> getResultType(); // Type of each element
+
+    SingularAttribute<Y, X> getInverseAttribute(); // Attribute of each element referencing its parent
+}
@@ -3,6 +3,7 @@ package org.grapple.query;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.From;
@@ -27,6 +28,12 @@ public interface EntityContext<X> extends Chainable<EntityContext<X>> {
 
     <Y> JoinedEntityContext<Y> join(SingularAttribute<X, Y> attribute);
 
+    // Applies a filter to a joined entity, which may be a subquery rather than a join when the join isn't otherwise needed
+    <Y> Predicate filterJoin(EntityJoin<X, Y> join, EntityFilter<Y> filter);
+
+    // Applies a negated filter, whose joins are always made as a missing joined entity must still fail to match
+    Predicate filterNot(EntityFilter<X> filter);
+
     <Y> AttributeJoin<Y> joinShared(SingularAttribute<X, Y> attribute);
 
     @Deprecated
@@ -42,6 +49,9 @@ public interface EntityContext<X> extends Chainable<EntityContext<X>> {
 
     <T> NonQuerySelection<T> addNonQuerySelection(NonQueryField<X, T> nonQueryField);
 
+    // Reads the value of a selection (previously added by addSelection) from each row
+    <T> Function<Tuple, T> valueOf(Selection<T> selection);
+
     void addRestriction(Predicate predicate);
 
     CriteriaQuery<?> getQuery();
@@ -1,7 +1,5 @@
 package org.grapple.query;
 
-import java.util.function.Function;
-import javax.persistence.Tuple;
 import org.grapple.core.MetadataAware;
 
 public interface EntityField<X, T> extends MetadataAware {
@@ -10,6 +8,4 @@ public interface EntityField<X, T> extends MetadataAware {
 
     EntityResultType<T> getResultType();
 
-    Function<Tuple, T> prepare(EntityContext<X> ctx, QueryBuilder queryBuilder);
-
 }
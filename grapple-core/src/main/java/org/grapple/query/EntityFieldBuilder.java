@@ -14,13 +14,11 @@ import javax.persistence.Tuple;
 import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
-import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Path;
 import javax.persistence.metamodel.SingularAttribute;
 
 import org.grapple.core.Chainable;
 import org.grapple.core.MetadataKey;
-import org.grapple.utils.LazyValue;
 import org.grapple.utils.MetadataValues;
 import org.jetbrains.annotations.NotNull;
 
@@ -100,7 +98,7 @@ public final class EntityFieldBuilder {
             public Function<Tuple, T> prepare(EntityContext<X> ctx, QueryBuilder queryBuilder) {
                 final Path<T> attributePath = ctx.addSelection(getExpression(ctx, queryBuilder));
                 markAsUsed(attributePath);
-                return tuple -> tuple.get(attributePath);
+                return ctx.valueOf(attributePath);
             }
 
             @Override
@@ -113,6 +111,11 @@ public final class EntityFieldBuilder {
                 return getExpression(ctx, queryBuilder);
             }
 
+            @Override
+            public boolean isNullIfNotExists() {
+                return true;
+            }
+
             @Override
             public <M> M getMetadata(MetadataKey<M> metadataKey) {
                 return metadata.get(metadataKey);
@@ -148,7 +151,7 @@ public final class EntityFieldBuilder {
             public Function<Tuple, T> prepare(EntityContext<X> ctx, QueryBuilder queryBuilder) {
                 final Expression<T> expression = ctx.addSelection(getExpression(ctx, queryBuilder));
                 markAsUsed(expression); // Do not remove
-                return tuple -> tuple.get(expression);
+                return ctx.valueOf(expression);
             }
 
             @Override
@@ -213,6 +216,41 @@ public final class EntityFieldBuilder {
         };
     }
 
+    public static <X, T> BatchedNonQueryField<X, T> batchedNonQueryField(@NotNull Consumer<BatchedNonQueryFieldBuilder<X, T>> fieldBuilder) {
+        final BatchedNonQueryFieldBuilder<X, T> builder = new BatchedNonQueryFieldBuilder<X, T>().apply(fieldBuilder);
+        final String name = requireNonNullArgument(builder.name, "name required");
+        final EntityResultType<T> resultType = requireNonNullArgument(builder.resultType, "result type required");
+        final BatchedNonQueryFieldResolver<X, T> resolver = requireNonNullArgument(builder.resolver, "resolver required");
+        final MetadataValues metadata = requireNonNull(builder.metadata, "metadata");
+        return new BatchedNonQueryField<X, T>() {
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public EntityResultType<T> getResultType() {
+                return resultType;
+            }
+
+            @Override
+            public BatchedNonQueryFieldResolver<X, T> getResolver() {
+                return resolver;
+            }
+
+            @Override
+            public <M> M getMetadata(MetadataKey<M> metadataKey) {
+                return metadata.get(metadataKey);
+            }
+
+            @Override
+            public String toString() {
+                return format("%s[%s]", name, resultType);
+            }
+        };
+    }
+
     public static <X, T> EntityJoin<X, T> attributeJoin(@NotNull SingularAttribute<X, T> attribute) {
         return attributeJoin(attribute, null);
     }
@@ -242,7 +280,8 @@ public final class EntityFieldBuilder {
 
             @Override
             public Supplier<Join<?, T>> join(EntityContext<X> ctx, QueryBuilder queryBuilder, Supplier<? extends From<?, X>> entity) {
-                return LazyValue.of(() -> entity.get().join(attribute, JoinType.LEFT));
+                // Shared with any other join of the same attribute
+                return ctx.joinShared(attribute);
             }
 
             @Override
@@ -300,6 +339,40 @@ public final class EntityFieldBuilder {
         };
     }
 
+    public static <X, Y> EntityCollectionJoin<X, Y> collectionJoin(@NotNull SingularAttribute<Y, X> inverseAttribute, Consumer<CollectionJoinBuilder<X, Y>> joinBuilder) {
+        requireNonNull(inverseAttribute, "inverseAttribute");
+        final CollectionJoinBuilder<X, Y> builder = new CollectionJoinBuilder<X, Y>().apply(joinBuilder);
+        final String name = requireNonNullArgument(builder.name, "name required");
+        final MetadataValues metadata = requireNonNull(builder.metadata, "metadata");
+        return new EntityCollectionJoin<X, Y>() {
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public EntityResultType<Y> getResultType() {
+                return entityResultType(inverseAttribute.getDeclaringType().getJavaType(), false);
+            }
+
+            @Override
+            public SingularAttribute<Y, X> getInverseAttribute() {
+                return inverseAttribute;
+            }
+
+            @Override
+            public <M> M getMetadata(MetadataKey<M> metadataKey) {
+                return metadata.get(metadataKey);
+            }
+
+            @Override
+            public String toString() {
+                return format("%s[%s]", name, getResultType());
+            }
+        };
+    }
+
     public static final class LiteralFieldBuilder<X, T> implements Chainable<LiteralFieldBuilder<X, T>> {
 
         String name;
@@ -449,6 +522,61 @@ public final class EntityFieldBuilder {
         }
     }
 
+    public static final class BatchedNonQueryFieldBuilder<X, T> implements Chainable<BatchedNonQueryFieldBuilder<X, T>> {
+
+        String name;
+
+        Class<X> entityType;
+
+        EntityResultType<T> resultType;
+
+        BatchedNonQueryFieldResolver<X, T> resolver;
+
+        final MetadataValues metadata = new MetadataValues();
+
+        public BatchedNonQueryFieldBuilder<X, T> name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public BatchedNonQueryFieldBuilder<X, T> entity(Class<X> entityType) {
+            this.entityType = entityType;
+            return this;
+        }
+
+        public BatchedNonQueryFieldBuilder<X, T> resultType(EntityResultType<T> resultType) {
+            this.resultType = resultType;
+            return this;
+        }
+
+        public BatchedNonQueryFieldBuilder<X, T> resolver(BatchedNonQueryFieldResolver<X, T> resolver) {
+            this.resolver = resolver;
+            return this;
+        }
+
+        public <Z> BatchedNonQueryFieldBuilder<X, T> metadata(MetadataKey<Z> key, Z value) {
+            metadata.put(key, value);
+            return this;
+        }
+    }
+
+    public static final class CollectionJoinBuilder<X, Y> implements Chainable<CollectionJoinBuilder<X, Y>> {
+
+        String name;
+
+        final MetadataValues metadata = new MetadataValues();
+
+        public CollectionJoinBuilder<X, Y> name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public <Z> CollectionJoinBuilder<X, Y> metadata(MetadataKey<Z> key, Z value) {
+            metadata.put(key, value);
+            return this;
+        }
+    }
+
     public static final class ExpressionJoinBuilder<X, Y> implements Chainable<ExpressionJoinBuilder<X, Y>> {
 
         String name;
@@ -1,5 +1,6 @@
 package org.grapple.query;
 
+import java.util.function.Consumer;
 import javax.persistence.criteria.Predicate;
 
 public interface EntityFilter<X> {
@@ -12,6 +13,25 @@ public interface EntityFilter<X> {
         return false;
     }
 
+    // Whether this filter can only match entities that actually exist (so never matches a missing outer joined entity)
+    default boolean isExistsRequired() {
+        return false;
+    }
+
+    // Whether this filter can only match when the given join exists
+    default boolean isJoinRequired(EntityJoin<X, ?> join) {
+        return false;
+    }
+
     Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder);
 
+    // Structure of this filter excluding any bound values, null if the filter cannot take part in query plan caching
+    default Object getPlanKey() {
+        return null;
+    }
+
+    // Must report values in exactly the order they are passed to QueryBuilder.bind() by apply()
+    default void collectParameters(Consumer<Object> parameters) {
+
+    }
 }
@@ -13,6 +13,13 @@ public final class EntityMetadataKeys {
 
     public static final MetadataKey<ElementVisibility> Visibility = new MetadataKey<>("visibility");
 
+    // Declared by joins whose cardinality can't be deduced from the attributes they join (such as a set restricted to a single element)
+    public static final MetadataKey<JoinCardinality> Cardinality = new MetadataKey<>("cardinality");
+
+    // Declared by joins whose response only depends on the joined entity, so it can be shared by all rows joining the same entity
+    // Must not be declared by joins whose fields depend on the joining row
+    public static final MetadataKey<Boolean> SharedResponse = new MetadataKey<>("sharedResponse");
+
     private EntityMetadataKeys() {
 
     }
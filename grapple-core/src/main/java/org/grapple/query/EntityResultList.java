@@ -5,7 +5,9 @@ import java.util.Optional;
 
 public interface EntityResultList<X> extends Iterable<X> {
 
-    int getTotalResults();
+    long getTotalResults(); // -1 if not requested (see TotalResultsMode.NONE)
+
+    boolean isTotalExact();
 
     int getEntitiesRetrieved();
 
@@ -29,6 +29,12 @@ public interface FetchSet<X> extends Chainable<FetchSet<X>> {
 
     Map<EntityJoin<X, ?>, FetchSet<?>> getJoins();
 
+    <Y> RootFetchSet<Y> joinCollection(EntityCollectionJoin<X, Y> join); // Fetched by a secondary query per page of results
+
+    <Y> FetchSet<X> joinCollection(EntityCollectionJoin<X, Y> join, Consumer<RootFetchSet<Y>> consumer);
+
+    Map<EntityCollectionJoin<X, ?>, RootFetchSet<?>> getCollectionJoins();
+
     FetchSet<X> orderBy(QueryField<X, ?> field, SortDirection direction);
 
     FetchSet<X> orderBy(EntitySortKey<X> field, SortDirection direction);
@@ -1,20 +1,32 @@
 package org.grapple.query;
 
 import static java.lang.String.format;
+import static java.util.Collections.singleton;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
-import static org.jooq.lambda.Seq.of;
+import static org.grapple.utils.Utils.padToPowerOfTwo;
 import static org.jooq.lambda.Seq.seq;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.metamodel.SingularAttribute;
+import org.grapple.utils.UnexpectedException;
 
+// Filters built here are immutable values (with equals and hashCode), and are normalised as they are combined
+// Any other EntityFilter is still supported, but is opaque to normalisation (and only equal to itself)
 public final class Filters {
 
     private Filters() {
@@ -22,45 +34,14 @@ public final class Filters {
     }
 
     public static <X> EntityFilter<X> alwaysTrue() {
-        return new EntityFilter<X>() {
-
-            @Override
-            public boolean isAlwaysTrue() {
-                return true;
-            }
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.alwaysTrue();
-            }
-
-            @Override
-            public String toString() {
-                return "true";
-            }
-        };
+        return new ConstantFilter<>(true);
     }
 
     public static <X> EntityFilter<X> alwaysFalse() {
-        return new EntityFilter<X>() {
-
-            @Override
-            public boolean isAlwaysFalse() {
-                return true;
-            }
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.alwaysFalse();
-            }
-
-            @Override
-            public String toString() {
-                return "false";
-            }
-        };
+        return new ConstantFilter<>(false);
     }
 
+    @SuppressWarnings("unchecked")
     public static <X> EntityFilter<X> not(EntityFilter<X> source) {
         requireNonNull(source, "source");
         if (source.isAlwaysTrue()) {
@@ -69,18 +50,17 @@ public final class Filters {
         if (source.isAlwaysFalse()) {
             return alwaysTrue();
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.not(source.apply(ctx, queryBuilder));
-            }
-
-            @Override
-            public String toString() {
-                return format("!(%s)", source);
-            }
-        };
+        if (source instanceof NotFilter<?>) {
+            return ((NotFilter<X>) source).source;
+        }
+        // Negated comparisons are still unknown for nulls, so can be inverted rather than wrapped
+        if (source instanceof ComparisonFilter<?, ?>) {
+            return ((ComparisonFilter<X, ?>) source).negate();
+        }
+        if (source instanceof NullFilter<?, ?>) {
+            return ((NullFilter<X, ?>) source).negate();
+        }
+        return new NotFilter<>(source);
     }
 
     public static <X> EntityFilter<X> isTrue(QueryField<X, Boolean> selection) {
@@ -104,24 +84,7 @@ public final class Filters {
         if (value == null) {
             return isNull(selection);
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.equal(ctx.get(selection), value);
-            }
-
-            @Override
-            public String toString() {
-                if (Objects.equals(value, Boolean.TRUE)) {
-                    return format("%s", selection.getName());
-                }
-                if (Objects.equals(value, Boolean.FALSE)) {
-                    return format("!%s", selection.getName());
-                }
-                return format("%s == %s", selection.getName(), value);
-            }
-        };
+        return new ComparisonFilter<>(new FieldOperand<>(selection), Operator.EQUAL, value);
     }
 
     public static <X, T> EntityFilter<X> isEqual(SingularAttribute<X, T> attribute, T value) {
@@ -129,24 +92,7 @@ public final class Filters {
         if (value == null) {
             return isNull(attribute);
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.equal(ctx.get(attribute), value);
-            }
-
-            @Override
-            public String toString() {
-                if (Objects.equals(value, Boolean.TRUE)) {
-                    return format("%s", attribute.getName());
-                }
-                if (Objects.equals(value, Boolean.FALSE)) {
-                    return format("!%s", attribute.getName());
-                }
-                return format("%s == %s", attribute.getName(), value);
-            }
-        };
+        return new ComparisonFilter<>(new AttributeOperand<>(attribute), Operator.EQUAL, value);
     }
 
     public static <X, T> EntityFilter<X> isNotEqual(QueryField<X, T> selection, T value) {
@@ -154,18 +100,7 @@ public final class Filters {
         if (value == null) {
             return isNotNull(selection);
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.notEqual(ctx.get(selection), value);
-            }
-
-            @Override
-            public String toString() {
-                return format("%s != %s", selection.getName(), value);
-            }
-        };
+        return new ComparisonFilter<>(new FieldOperand<>(selection), Operator.NOT_EQUAL, value);
     }
 
     public static <X, T> EntityFilter<X> isNotEqual(SingularAttribute<X, T> attribute, T value) {
@@ -173,144 +108,45 @@ public final class Filters {
         if (value == null) {
             return isNotNull(attribute);
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.notEqual(ctx.get(attribute), value);
-            }
-
-            @Override
-            public String toString() {
-                return format("%s != %s", attribute.getName(), value);
-            }
-        };
+        return new ComparisonFilter<>(new AttributeOperand<>(attribute), Operator.NOT_EQUAL, value);
     }
 
     public static <X> EntityFilter<X> isNull() {
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.isNull(ctx.getEntity());
-            }
-
-            @Override
-            public String toString() {
-                return "IS NULL";
-            }
-        };
+        return new NullFilter<>(new EntityOperand<>(), true);
     }
 
     public static <X, T> EntityFilter<X> isNull(QueryField<X, T> selection) {
         requireNonNull(selection, "selection");
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.isNull(ctx.get(selection));
-            }
-
-            @Override
-            public String toString() {
-                return format("%s IS NULL", selection.getName());
-            }
-        };
+        return new NullFilter<>(new FieldOperand<>(selection), true);
     }
 
     public static <X, Y> EntityFilter<X> isNull(EntityJoin<X, Y> join) {
         requireNonNull(join, "join");
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.isNull(ctx.join(join).getEntity());
-            }
-
-            @Override
-            public String toString() {
-                return format("%s IS NULL", join.getName());
-            }
-        };
+        return new NullFilter<>(new JoinOperand<>(join), true);
     }
 
     public static <X, T> EntityFilter<X> isNull(SingularAttribute<X, T> attribute) {
         requireNonNull(attribute, "attribute");
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.isNull(ctx.get(attribute));
-            }
-
-            @Override
-            public String toString() {
-                return format("%s IS NULL", attribute.getName());
-            }
-        };
+        return new NullFilter<>(new AttributeOperand<>(attribute), true);
     }
 
     public static <X> EntityFilter<X> isNotNull() {
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.isNotNull(ctx.getEntity());
-            }
-
-            @Override
-            public String toString() {
-                return "IS NOT NULL";
-            }
-        };
+        return new NullFilter<>(new EntityOperand<>(), false);
     }
 
     public static <X, T> EntityFilter<X> isNotNull(QueryField<X, T> selection) {
         requireNonNull(selection, "selection");
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.isNotNull(ctx.get(selection));
-            }
-
-            @Override
-            public String toString() {
-                return format("%s IS NOT NULL", selection.getName());
-            }
-        };
+        return new NullFilter<>(new FieldOperand<>(selection), false);
     }
 
     public static <X, Y> EntityFilter<X> isNotNull(EntityJoin<X, Y> join) {
         requireNonNull(join, "join");
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.isNotNull(ctx.join(join).getEntity());
-            }
-
-            @Override
-            public String toString() {
-                return format("%s IS NOT NULL", join.getName());
-            }
-        };
+        return new NullFilter<>(new JoinOperand<>(join), false);
     }
 
     public static <X, Y> EntityFilter<X> isNotNull(SingularAttribute<X, Y> attribute) {
         requireNonNull(attribute, "attribute");
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.isNotNull(ctx.get(attribute));
-            }
-
-            @Override
-            public String toString() {
-                return format("%s IS NOT NULL", attribute.getName());
-            }
-        };
+        return new NullFilter<>(new AttributeOperand<>(attribute), false);
     }
 
     public static <X, T> EntityFilter<X> contains(QueryField<X, T> selection, Set<T> values) {
@@ -322,24 +158,7 @@ public final class Filters {
         if (values == null) {
             return alwaysTrue();
         }
-        if (values.isEmpty()) {
-            return alwaysFalse();
-        }
-        if (values.size() == 1) {
-            return isEqual(selection, values.iterator().next());
-        }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.in(ctx.get(selection), values);
-            }
-
-            @Override
-            public String toString() {
-                return format("%s IN (%s)", selection.getName(), of(values).toString(","));
-            }
-        };
+        return valueIn(new FieldOperand<>(selection), values);
     }
 
     public static <X, T> EntityFilter<X> in(SingularAttribute<X, T> attribute, Set<T> values) {
@@ -347,24 +166,7 @@ public final class Filters {
         if (values == null) {
             return alwaysTrue();
         }
-        if (values.isEmpty()) {
-            return alwaysFalse();
-        }
-        if (values.size() == 1) {
-            return isEqual(attribute, values.iterator().next());
-        }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.in(ctx.get(attribute), values);
-            }
-
-            @Override
-            public String toString() {
-                return format("%s IN (%s)", attribute.getName(), of(values).toString(","));
-            }
-        };
+        return valueIn(new AttributeOperand<>(attribute), values);
     }
 
     public static <X> EntityFilter<X> like(QueryField<X, String> selection, String value) {
@@ -375,18 +177,7 @@ public final class Filters {
         if (value.trim().isEmpty()) {
             return alwaysFalse();
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.like(ctx.get(selection), value);
-            }
-
-            @Override
-            public String toString() {
-                return format("%s LIKE %s", selection.getName(), value);
-            }
-        };
+        return new LikeFilter<>(new FieldOperand<>(selection), value, false);
     }
 
     public static <X> EntityFilter<X> likeCaseInsensitive(QueryField<X, String> selection, String value) {
@@ -397,19 +188,7 @@ public final class Filters {
         if (value.trim().isEmpty()) {
             return alwaysFalse();
         }
-        final String valueUppercase = value.trim().toUpperCase();
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.like(queryBuilder.upper(ctx.get(selection)), valueUppercase);
-            }
-
-            @Override
-            public String toString() {
-                return format("%s ILIKE %s", selection.getName(), valueUppercase);
-            }
-        };
+        return new LikeFilter<>(new FieldOperand<>(selection), value.trim().toUpperCase(), true);
     }
 
     public static <X, T extends Comparable<T>> EntityFilter<X> lessThan(QueryField<X, T> selection, T value) {
@@ -417,18 +196,7 @@ public final class Filters {
         if (value == null) {
             return alwaysTrue();
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.lessThan(ctx.get(selection), value);
-            }
-
-            @Override
-            public String toString() {
-                return format("%s < %s", selection.getName(), value);
-            }
-        };
+        return new ComparisonFilter<>(new FieldOperand<>(selection), Operator.LESS_THAN, value);
     }
 
     public static <X, T extends Comparable<? super T>> EntityFilter<X> lessThanOrEqualTo(QueryField<X, T> selection, T value) {
@@ -436,18 +204,7 @@ public final class Filters {
         if (value == null) {
             return alwaysTrue();
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.lessThanOrEqualTo(ctx.get(selection), value);
-            }
-
-            @Override
-            public String toString() {
-                return format("%s <= %s", selection.getName(), value);
-            }
-        };
+        return new ComparisonFilter<>(new FieldOperand<>(selection), Operator.LESS_THAN_OR_EQUAL_TO, value);
     }
 
     public static <X, T extends Comparable<T>> EntityFilter<X> greaterThan(QueryField<X, T> selection, T value) {
@@ -455,18 +212,7 @@ public final class Filters {
         if (value == null) {
             return alwaysTrue();
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.greaterThan(ctx.get(selection), value);
-            }
-
-            @Override
-            public String toString() {
-                return format("%s > %s", selection.getName(), value);
-            }
-        };
+        return new ComparisonFilter<>(new FieldOperand<>(selection), Operator.GREATER_THAN, value);
     }
 
     public static <X, T extends Comparable<? super T>> EntityFilter<X> greaterThanOrEqualTo(QueryField<X, T> selection, T value) {
@@ -474,18 +220,7 @@ public final class Filters {
         if (value == null) {
             return alwaysTrue();
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                return queryBuilder.greaterThanOrEqualTo(ctx.get(selection), value);
-            }
-
-            @Override
-            public String toString() {
-                return format("%s >= %s", selection.getName(), value);
-            }
-        };
+        return new ComparisonFilter<>(new FieldOperand<>(selection), Operator.GREATER_THAN_OR_EQUAL_TO, value);
     }
 
     public static <X, Y> EntityFilter<X> rebase(Function<EntityContext<X>, EntityContext<Y>> ctxMapper, EntityFilter<Y> filter) {
@@ -518,7 +253,13 @@ public final class Filters {
     public static <X, Y> EntityFilter<X> rebase(EntityJoin<X, Y> join, EntityFilter<Y> filter) {
         requireNonNull(join, "join");
         requireNonNull(filter, "filter");
-        return rebase(ctx -> ctx.join(join), filter);
+        if (filter.isAlwaysTrue()) {
+            return alwaysTrue();
+        }
+        if (filter.isAlwaysFalse()) {
+            return alwaysFalse();
+        }
+        return new RebaseFilter<>(join, filter);
     }
 
     @SafeVarargs
@@ -535,34 +276,7 @@ public final class Filters {
         if (filters.size() == 1) {
             return filters.get(0);
         }
-        return new EntityFilter<X>() {
-
-            @Override
-            public boolean isAlwaysTrue() {
-                // We are true if any filter is true
-                return seq(filters).anyMatch(EntityFilter::isAlwaysTrue);
-            }
-
-            @Override
-            public boolean isAlwaysFalse() {
-                // We are false if all filters are false
-                return seq(filters).allMatch(EntityFilter::isAlwaysFalse);
-            }
-
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                final List<Predicate> predicates = new ArrayList<>();
-                for(EntityFilter<X> filter: filters) {
-                    predicates.add(filter.apply(ctx, queryBuilder));
-                }
-                return queryBuilder.or(predicates);
-            }
-
-            @Override
-            public String toString() {
-                return seq(filters).toString(" || ", "(", ")");
-            }
-        };
+        return junction(false, filters);
     }
 
     @SafeVarargs
@@ -579,48 +293,799 @@ public final class Filters {
         if (filters.size() == 1) {
             return filters.get(0);
         }
-        return new EntityFilter<X>() {
+        return junction(true, filters);
+    }
 
-            @Override
-            public boolean isAlwaysTrue() {
-                // We are true if all filters are true
-                return seq(filters).allMatch(EntityFilter::isAlwaysTrue);
+    public static <X> EntityFilter<X> quickFilterBy(Collection<? extends QuickFilterBy<X>> quickFilters, String value) {
+        if (quickFilters == null || quickFilters.isEmpty()) {
+            return alwaysTrue();
+        }
+        if (value == null || value.trim().isEmpty()) {
+            return alwaysTrue();
+        }
+        return new QuickFilter<>(quickFilters, value.trim());
+    }
+
+    private static <X, T> EntityFilter<X> valueIn(Operand<X, T> operand, Set<T> values) {
+        if (values.isEmpty()) {
+            return alwaysFalse();
+        }
+        if (values.size() == 1) {
+            return new ComparisonFilter<>(operand, Operator.EQUAL, values.iterator().next());
+        }
+        return new InFilter<>(operand, values);
+    }
+
+    // Flattens nested junctions of the same kind, folds constants, removes duplicates, and merges filters of the same operand
+    @SuppressWarnings("unchecked")
+    private static <X> EntityFilter<X> junction(boolean conjunction, List<EntityFilter<X>> filters) {
+        final Set<EntityFilter<X>> flattened = new LinkedHashSet<>();
+        for (EntityFilter<X> filter: filters) {
+            requireNonNull(filter, "filter");
+            if (filter instanceof JunctionFilter<?> && ((JunctionFilter<X>) filter).conjunction == conjunction) {
+                flattened.addAll(((JunctionFilter<X>) filter).filters);
+            }
+            else {
+                flattened.add(filter);
+            }
+        }
+        // Filters sharing a merge key are replaced by their combination, at the position of the first of them
+        final Map<Object, EntityFilter<X>> merged = new LinkedHashMap<>();
+        for (EntityFilter<X> filter: flattened) {
+            final Object mergeKey = mergeKey(filter);
+            if (mergeKey != null) {
+                merged.merge(mergeKey, filter, (existing, other) -> combine(existing, other, conjunction));
+            }
+        }
+        final Set<EntityFilter<X>> results = new LinkedHashSet<>();
+        for (EntityFilter<X> filter: flattened) {
+            final Object mergeKey = mergeKey(filter);
+            final EntityFilter<X> result = (mergeKey != null ? merged.get(mergeKey) : filter);
+            // Identity elements (true for AND, false for OR) can be dropped, whereas absorbing elements decide the result by themselves
+            if (conjunction ? result.isAlwaysFalse() : result.isAlwaysTrue()) {
+                return result;
+            }
+            if (!(conjunction ? result.isAlwaysTrue() : result.isAlwaysFalse())) {
+                results.add(result);
             }
+        }
+        if (results.isEmpty()) {
+            return new ConstantFilter<>(conjunction);
+        }
+        if (results.size() == 1) {
+            return results.iterator().next();
+        }
+        return new JunctionFilter<>(conjunction, new ArrayList<>(results));
+    }
 
-            @Override
-            public boolean isAlwaysFalse() {
-                // We are false if any filter is false
-                return seq(filters).anyMatch(EntityFilter::isAlwaysFalse);
+    // Equality and IN filters of the same operand are merged, as are bounds on the same side of a range (of the same type)
+    private static Object mergeKey(EntityFilter<?> filter) {
+        if (filter instanceof InFilter<?, ?>) {
+            return Arrays.asList("IN", ((InFilter<?, ?>) filter).operand);
+        }
+        if (!(filter instanceof ComparisonFilter<?, ?>)) {
+            return null;
+        }
+        final ComparisonFilter<?, ?> comparison = (ComparisonFilter<?, ?>) filter;
+        if (comparison.operator == Operator.EQUAL) {
+            return Arrays.asList("IN", comparison.operand);
+        }
+        if (comparison.operator.isRange() && comparison.value instanceof Comparable<?>) {
+            return Arrays.asList(comparison.operator.isUpperBound() ? "<" : ">", comparison.operand, comparison.value.getClass());
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <X, T> EntityFilter<X> combine(EntityFilter<X> filter, EntityFilter<X> other, boolean conjunction) {
+        if (filter instanceof ComparisonFilter<?, ?> && ((ComparisonFilter<X, T>) filter).operator.isRange()) {
+            return combineRange((ComparisonFilter<X, T>) filter, (ComparisonFilter<X, T>) other, conjunction);
+        }
+        final Operand<X, T> operand = (filter instanceof InFilter<?, ?> ? ((InFilter<X, T>) filter).operand : ((ComparisonFilter<X, T>) filter).operand);
+        final Set<T> values = new LinkedHashSet<>(inValues(filter));
+        if (conjunction) {
+            values.retainAll(inValues(other));
+        }
+        else {
+            values.addAll(inValues(other));
+        }
+        return valueIn(operand, values);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Set<T> inValues(EntityFilter<?> filter) {
+        if (filter instanceof InFilter<?, ?>) {
+            return ((InFilter<?, T>) filter).values;
+        }
+        return singleton(((ComparisonFilter<?, T>) filter).value);
+    }
+
+    // Both are bounds on the same side, so the tightest one is kept for AND, and the loosest one for OR
+    @SuppressWarnings("unchecked")
+    private static <X, T> EntityFilter<X> combineRange(ComparisonFilter<X, T> filter, ComparisonFilter<X, T> other, boolean conjunction) {
+        final int comparison = ((Comparable<T>) filter.value).compareTo(other.value);
+        if (comparison == 0) {
+            return (filter.operator.isStrict() == conjunction ? filter : other);
+        }
+        final boolean smallest = (filter.operator.isUpperBound() == conjunction);
+        return ((comparison < 0) == smallest ? filter : other);
+    }
+
+    private static Object planKey(Object... components) {
+        // We can only be cached if all of our components can be
+        for (Object component: components) {
+            if (component == null) {
+                return null;
             }
+        }
+        return Arrays.asList(components);
+    }
 
-            @Override
-            public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
-                final List<Predicate> predicates = new ArrayList<>();
-                for(EntityFilter<X> filter: filters) {
-                    predicates.add(filter.apply(ctx, queryBuilder));
-                }
-                return queryBuilder.and(predicates);
+    private static <X> List<Object> planKeys(List<EntityFilter<X>> filters) {
+        final List<Object> planKeys = new ArrayList<>();
+        for (EntityFilter<X> filter: filters) {
+            final Object planKey = filter.getPlanKey();
+            if (planKey == null) {
+                return null;
             }
+            planKeys.add(planKey);
+        }
+        return planKeys;
+    }
 
-            @Override
-            public String toString() {
-                return seq(filters).toString(" && ", "(", ")");
+    private enum Operator {
+
+        EQUAL("=="),
+        NOT_EQUAL("!="),
+        LESS_THAN("<"),
+        LESS_THAN_OR_EQUAL_TO("<="),
+        GREATER_THAN(">"),
+        GREATER_THAN_OR_EQUAL_TO(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        boolean isRange() {
+            return (this != EQUAL && this != NOT_EQUAL);
+        }
+
+        boolean isUpperBound() {
+            return (this == LESS_THAN || this == LESS_THAN_OR_EQUAL_TO);
+        }
+
+        boolean isStrict() {
+            return (this == LESS_THAN || this == GREATER_THAN);
+        }
+
+        Operator negate() {
+            switch (this) {
+                case EQUAL:
+                    return NOT_EQUAL;
+                case NOT_EQUAL:
+                    return EQUAL;
+                case LESS_THAN:
+                    return GREATER_THAN_OR_EQUAL_TO;
+                case LESS_THAN_OR_EQUAL_TO:
+                    return GREATER_THAN;
+                case GREATER_THAN:
+                    return LESS_THAN_OR_EQUAL_TO;
+                case GREATER_THAN_OR_EQUAL_TO:
+                    return LESS_THAN;
             }
-        };
+            throw new UnexpectedException(format("Unexpected operator: %s", this));
+        }
     }
-    public static <X> EntityFilter<X> quickFilterBy(Collection<? extends QuickFilterBy<X>> quickFilters, String value) {
-        if (quickFilters == null || quickFilters.isEmpty()) {
-            return alwaysTrue();
+
+    // What a filter applies to, equal if they resolve to the same expression
+    private abstract static class Operand<X, T> {
+
+        abstract Expression<T> resolve(EntityContext<X> ctx);
+
+        // Identifies us, both for equality and for plan keys
+        abstract Object getSource();
+
+        abstract String getName();
+
+        // Whether we are always null when our entity doesn't exist
+        boolean isNullIfNotExists() {
+            return true;
         }
-        if (value == null || value.trim().isEmpty()) {
-            return alwaysTrue();
+
+        boolean isJoin(EntityJoin<X, ?> join) {
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other != null && other.getClass() == getClass() && getSource().equals(((Operand<?, ?>) other).getSource()));
+        }
+
+        @Override
+        public int hashCode() {
+            return getSource().hashCode();
+        }
+    }
+
+    private static final class FieldOperand<X, T> extends Operand<X, T> {
+
+        private final QueryField<X, T> selection;
+
+        private FieldOperand(QueryField<X, T> selection) {
+            this.selection = requireNonNull(selection, "selection");
+        }
+
+        @Override
+        Expression<T> resolve(EntityContext<X> ctx) {
+            return ctx.get(selection);
+        }
+
+        @Override
+        Object getSource() {
+            return selection;
+        }
+
+        @Override
+        String getName() {
+            return selection.getName();
+        }
+
+        @Override
+        boolean isNullIfNotExists() {
+            return selection.isNullIfNotExists();
+        }
+    }
+
+    private static final class AttributeOperand<X, T> extends Operand<X, T> {
+
+        private final SingularAttribute<X, T> attribute;
+
+        private AttributeOperand(SingularAttribute<X, T> attribute) {
+            this.attribute = requireNonNull(attribute, "attribute");
+        }
+
+        @Override
+        Expression<T> resolve(EntityContext<X> ctx) {
+            return ctx.get(attribute);
+        }
+
+        @Override
+        Object getSource() {
+            return attribute;
+        }
+
+        @Override
+        String getName() {
+            return attribute.getName();
+        }
+    }
+
+    // The entity itself
+    private static final class EntityOperand<X> extends Operand<X, X> {
+
+        @Override
+        Expression<X> resolve(EntityContext<X> ctx) {
+            return ctx.getEntity();
+        }
+
+        @Override
+        Object getSource() {
+            return EntityOperand.class;
+        }
+
+        @Override
+        String getName() {
+            return null;
+        }
+    }
+
+    private static final class JoinOperand<X, Y> extends Operand<X, Y> {
+
+        private final EntityJoin<X, Y> join;
+
+        private JoinOperand(EntityJoin<X, Y> join) {
+            this.join = requireNonNull(join, "join");
+        }
+
+        @Override
+        Expression<Y> resolve(EntityContext<X> ctx) {
+            return ctx.join(join).getEntity();
+        }
+
+        @Override
+        Object getSource() {
+            return join;
+        }
+
+        @Override
+        String getName() {
+            return join.getName();
+        }
+
+        @Override
+        boolean isJoin(EntityJoin<X, ?> other) {
+            return join.equals(other);
+        }
+    }
+
+    private static final class ConstantFilter<X> implements EntityFilter<X> {
+
+        private final boolean value;
+
+        private ConstantFilter(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean isAlwaysTrue() {
+            return value;
+        }
+
+        @Override
+        public boolean isAlwaysFalse() {
+            return !value;
+        }
+
+        @Override
+        public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
+            return (value ? queryBuilder.alwaysTrue() : queryBuilder.alwaysFalse());
+        }
+
+        @Override
+        public Object getPlanKey() {
+            return planKey(toString());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof ConstantFilter<?> && ((ConstantFilter<?>) other).value == value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Boolean.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return (value ? "true" : "false");
+        }
+    }
+
+    private static final class ComparisonFilter<X, T> implements EntityFilter<X> {
+
+        private final Operand<X, T> operand;
+
+        private final Operator operator;
+
+        private final T value;
+
+        private ComparisonFilter(Operand<X, T> operand, Operator operator, T value) {
+            this.operand = requireNonNull(operand, "operand");
+            this.operator = requireNonNull(operator, "operator");
+            this.value = requireNonNull(value, "value");
+        }
+
+        private ComparisonFilter<X, T> negate() {
+            return new ComparisonFilter<>(operand, operator.negate(), value);
+        }
+
+        @Override
+        public boolean isExistsRequired() {
+            return operand.isNullIfNotExists();
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
+            final Expression expression = operand.resolve(ctx);
+            final Expression parameter = queryBuilder.bind(value);
+            switch (operator) {
+                case EQUAL:
+                    return queryBuilder.equal(expression, parameter);
+                case NOT_EQUAL:
+                    return queryBuilder.notEqual(expression, parameter);
+                case LESS_THAN:
+                    return queryBuilder.lessThan(expression, parameter);
+                case LESS_THAN_OR_EQUAL_TO:
+                    return queryBuilder.lessThanOrEqualTo(expression, parameter);
+                case GREATER_THAN:
+                    return queryBuilder.greaterThan(expression, parameter);
+                case GREATER_THAN_OR_EQUAL_TO:
+                    return queryBuilder.greaterThanOrEqualTo(expression, parameter);
+            }
+            throw new UnexpectedException(format("Unexpected operator: %s", operator));
+        }
+
+        @Override
+        public Object getPlanKey() {
+            return planKey(operator.symbol, operand.getSource());
+        }
+
+        @Override
+        public void collectParameters(Consumer<Object> parameters) {
+            parameters.accept(value);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ComparisonFilter<?, ?>)) {
+                return false;
+            }
+            final ComparisonFilter<?, ?> comparison = (ComparisonFilter<?, ?>) other;
+            return operand.equals(comparison.operand) && operator == comparison.operator && value.equals(comparison.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operand, operator, value);
+        }
+
+        @Override
+        public String toString() {
+            if (operator == Operator.EQUAL && Objects.equals(value, Boolean.TRUE)) {
+                return format("%s", operand.getName());
+            }
+            if (operator == Operator.EQUAL && Objects.equals(value, Boolean.FALSE)) {
+                return format("!%s", operand.getName());
+            }
+            return format("%s %s %s", operand.getName(), operator.symbol, value);
+        }
+    }
+
+    private static final class NullFilter<X, T> implements EntityFilter<X> {
+
+        private final Operand<X, T> operand;
+
+        private final boolean isNull;
+
+        private NullFilter(Operand<X, T> operand, boolean isNull) {
+            this.operand = requireNonNull(operand, "operand");
+            this.isNull = isNull;
+        }
+
+        private NullFilter<X, T> negate() {
+            return new NullFilter<>(operand, !isNull);
+        }
+
+        @Override
+        public boolean isExistsRequired() {
+            return (!isNull && operand.isNullIfNotExists());
+        }
+
+        @Override
+        public boolean isJoinRequired(EntityJoin<X, ?> join) {
+            return (!isNull && operand.isJoin(join));
+        }
+
+        @Override
+        public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
+            return (isNull ? queryBuilder.isNull(operand.resolve(ctx)) : queryBuilder.isNotNull(operand.resolve(ctx)));
+        }
+
+        @Override
+        public Object getPlanKey() {
+            return planKey(isNull ? "IS NULL" : "IS NOT NULL", operand.getSource());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof NullFilter<?, ?> && operand.equals(((NullFilter<?, ?>) other).operand) && isNull == ((NullFilter<?, ?>) other).isNull);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operand, isNull);
+        }
+
+        @Override
+        public String toString() {
+            final String operator = (isNull ? "IS NULL" : "IS NOT NULL");
+            return (operand.getName() != null ? format("%s %s", operand.getName(), operator) : operator);
+        }
+    }
+
+    private static final class InFilter<X, T> implements EntityFilter<X> {
+
+        private final Operand<X, T> operand;
+
+        private final Set<T> values;
+
+        private InFilter(Operand<X, T> operand, Set<T> values) {
+            this.operand = requireNonNull(operand, "operand");
+            this.values = unmodifiableSet(new LinkedHashSet<>(requireNonNull(values, "values")));
+        }
+
+        @Override
+        public boolean isExistsRequired() {
+            return operand.isNullIfNotExists();
+        }
+
+        @Override
+        public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
+            return queryBuilder.in(operand.resolve(ctx), values);
+        }
+
+        @Override
+        public Object getPlanKey() {
+            // Values are bound padded (and possibly chunked), so lists of a similar size share the same plan
+            return planKey("IN", operand.getSource(), seq(paddedValues()).map(List::size).toList());
+        }
+
+        @Override
+        public void collectParameters(Consumer<Object> parameters) {
+            paddedValues().forEach(chunk -> chunk.forEach(parameters));
+        }
+
+        private List<List<T>> paddedValues() {
+            return padToPowerOfTwo(values, QueryBuilder.MAX_IN_LIST_SIZE);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            // Order of values doesn't matter for equality (only for binding)
+            return (other instanceof InFilter<?, ?> && operand.equals(((InFilter<?, ?>) other).operand) && new HashSet<>(values).equals(((InFilter<?, ?>) other).values));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operand, new HashSet<>(values));
+        }
+
+        @Override
+        public String toString() {
+            return format("%s IN (%s)", operand.getName(), seq(values).toString(","));
+        }
+    }
+
+    private static final class LikeFilter<X> implements EntityFilter<X> {
+
+        private final Operand<X, String> operand;
+
+        private final String value;
+
+        private final boolean caseInsensitive;
+
+        private LikeFilter(Operand<X, String> operand, String value, boolean caseInsensitive) {
+            this.operand = requireNonNull(operand, "operand");
+            this.value = requireNonNull(value, "value");
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        @Override
+        public boolean isExistsRequired() {
+            return operand.isNullIfNotExists();
+        }
+
+        @Override
+        public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
+            final Expression<String> expression = operand.resolve(ctx);
+            return queryBuilder.like((caseInsensitive ? queryBuilder.upper(expression) : expression), queryBuilder.bind(value));
+        }
+
+        @Override
+        public Object getPlanKey() {
+            return planKey(caseInsensitive ? "ILIKE" : "LIKE", operand.getSource());
+        }
+
+        @Override
+        public void collectParameters(Consumer<Object> parameters) {
+            parameters.accept(value);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof LikeFilter<?> && operand.equals(((LikeFilter<?>) other).operand) && value.equals(((LikeFilter<?>) other).value) && caseInsensitive == ((LikeFilter<?>) other).caseInsensitive);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operand, value, caseInsensitive);
+        }
+
+        @Override
+        public String toString() {
+            return format("%s %s %s", operand.getName(), (caseInsensitive ? "ILIKE" : "LIKE"), value);
         }
-        return (ctx, queryBuilder) -> {
+    }
+
+    private static final class QuickFilter<X> implements EntityFilter<X> {
+
+        private final List<QuickFilterBy<X>> quickFilters;
+
+        private final String value;
+
+        private QuickFilter(Collection<? extends QuickFilterBy<X>> quickFilters, String value) {
+            this.quickFilters = unmodifiableList(new ArrayList<>(requireNonNull(quickFilters, "quickFilters")));
+            this.value = requireNonNull(value, "value");
+        }
+
+        @Override
+        public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
             final List<Predicate> predicates = new ArrayList<>();
             for (QuickFilterBy<X> quickFilter: quickFilters) {
-                predicates.add(queryBuilder.likeNonAnchored(quickFilter.getPath(ctx), value.trim()));
+                predicates.add(queryBuilder.likeNonAnchored(quickFilter.getPath(ctx), value));
             }
             return queryBuilder.or(predicates);
-        };
+        }
+
+        @Override
+        public Object getPlanKey() {
+            // Quick filters are only equal to themselves, so are normally shared by every query of a given schema
+            return planKey("QUICK", quickFilters);
+        }
+
+        @Override
+        public void collectParameters(Consumer<Object> parameters) {
+            // Bound by likeNonAnchored() once per quick filter
+            quickFilters.forEach(quickFilter -> parameters.accept(format("%%%s%%", value)));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof QuickFilter<?> && quickFilters.equals(((QuickFilter<?>) other).quickFilters) && value.equals(((QuickFilter<?>) other).value));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(quickFilters, value);
+        }
+
+        @Override
+        public String toString() {
+            return format("QUICK(%s) %s", quickFilters.size(), value);
+        }
+    }
+
+    private static final class NotFilter<X> implements EntityFilter<X> {
+
+        private final EntityFilter<X> source;
+
+        private NotFilter(EntityFilter<X> source) {
+            this.source = requireNonNull(source, "source");
+        }
+
+        @Override
+        public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
+            return ctx.filterNot(source);
+        }
+
+        @Override
+        public Object getPlanKey() {
+            return planKey("!", source.getPlanKey());
+        }
+
+        @Override
+        public void collectParameters(Consumer<Object> parameters) {
+            source.collectParameters(parameters);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof NotFilter<?> && source.equals(((NotFilter<?>) other).source));
+        }
+
+        @Override
+        public int hashCode() {
+            return ~source.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return format("!(%s)", source);
+        }
+    }
+
+    // Either AND (conjunction) or OR, only ever built already normalised
+    private static final class JunctionFilter<X> implements EntityFilter<X> {
+
+        private final boolean conjunction;
+
+        private final List<EntityFilter<X>> filters;
+
+        private JunctionFilter(boolean conjunction, List<EntityFilter<X>> filters) {
+            this.conjunction = conjunction;
+            this.filters = unmodifiableList(requireNonNull(filters, "filters"));
+        }
+
+        @Override
+        public boolean isExistsRequired() {
+            // For AND, one filter requiring existence is enough, whereas for OR every alternative must
+            return (conjunction ? seq(filters).anyMatch(EntityFilter::isExistsRequired) : seq(filters).allMatch(EntityFilter::isExistsRequired));
+        }
+
+        @Override
+        public boolean isJoinRequired(EntityJoin<X, ?> join) {
+            return (conjunction ? seq(filters).anyMatch(filter -> filter.isJoinRequired(join)) : seq(filters).allMatch(filter -> filter.isJoinRequired(join)));
+        }
+
+        @Override
+        public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
+            final List<Predicate> predicates = new ArrayList<>();
+            for (EntityFilter<X> filter: filters) {
+                predicates.add(filter.apply(ctx, queryBuilder));
+            }
+            return (conjunction ? queryBuilder.and(predicates.toArray(new Predicate[0])) : queryBuilder.or(predicates.toArray(new Predicate[0])));
+        }
+
+        @Override
+        public Object getPlanKey() {
+            return planKey(conjunction ? "&&" : "||", planKeys(filters));
+        }
+
+        @Override
+        public void collectParameters(Consumer<Object> parameters) {
+            filters.forEach(filter -> filter.collectParameters(parameters));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof JunctionFilter<?> && conjunction == ((JunctionFilter<?>) other).conjunction && filters.equals(((JunctionFilter<?>) other).filters));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(conjunction, filters);
+        }
+
+        @Override
+        public String toString() {
+            return seq(filters).toString(conjunction ? " && " : " || ", "(", ")");
+        }
+    }
+
+    private static final class RebaseFilter<X, Y> implements EntityFilter<X> {
+
+        private final EntityJoin<X, Y> join;
+
+        private final EntityFilter<Y> filter;
+
+        private RebaseFilter(EntityJoin<X, Y> join, EntityFilter<Y> filter) {
+            this.join = requireNonNull(join, "join");
+            this.filter = requireNonNull(filter, "filter");
+        }
+
+        @Override
+        public boolean isExistsRequired() {
+            // Joined entity can't exist without us
+            return filter.isExistsRequired();
+        }
+
+        @Override
+        public boolean isJoinRequired(EntityJoin<X, ?> requiredJoin) {
+            return join.equals(requiredJoin) && filter.isExistsRequired();
+        }
+
+        @Override
+        public Predicate apply(EntityContext<X> ctx, QueryBuilder queryBuilder) {
+            return ctx.filterJoin(join, filter);
+        }
+
+        @Override
+        public Object getPlanKey() {
+            return planKey("rebase", join, filter.getPlanKey());
+        }
+
+        @Override
+        public void collectParameters(Consumer<Object> parameters) {
+            filter.collectParameters(parameters);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof RebaseFilter<?, ?> && join.equals(((RebaseFilter<?, ?>) other).join) && filter.equals(((RebaseFilter<?, ?>) other).filter));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(join, filter);
+        }
+
+        @Override
+        public String toString() {
+            return filter.toString();
+        }
     }
 }
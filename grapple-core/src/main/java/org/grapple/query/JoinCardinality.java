@@ -0,0 +1,6 @@
+package org.grapple.query;
+
+public enum JoinCardinality {
+    TO_ONE, // At most one row joined per parent row, so rows are never duplicated
+    TO_MANY // Possibly several rows joined per parent row, results must then be made distinct
+}
@@ -1,6 +1,6 @@
 package org.grapple.query;
 
-public interface NonQueryField<X, T> extends EntityField<X, T> {
+public interface NonQueryField<X, T> extends TupleField<X, T> {
 
     NonQueryFieldResolver<X, T> getResolver();
 
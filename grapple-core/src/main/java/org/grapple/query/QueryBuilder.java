@@ -12,6 +12,9 @@ import javax.persistence.metamodel.SingularAttribute;
 
 public interface QueryBuilder extends CriteriaBuilder {
 
+    // Largest IN list we generate (longer lists are split into several), also keeps us below the 1000 expression limit of some databases
+    int MAX_IN_LIST_SIZE = 512;
+
     <T> T apply(Function<QueryBuilder, T> function);
 
     Expression<Integer> zero();
@@ -30,6 +33,9 @@ public interface QueryBuilder extends CriteriaBuilder {
 
     Predicate isBitmaskSet(Expression<Integer> bitmask, Expression<Integer> value);
 
+    // Requires a "window_count" function rendering COUNT(*) OVER () to be registered with the persistence provider
+    Expression<Long> windowCount();
+
     Order orderBy(Expression<?> x, SortDirection direction);
 
     <N extends Number> Expression<N> sum(List<Expression<N>> values, N zero);
@@ -47,6 +53,8 @@ public interface QueryBuilder extends CriteriaBuilder {
 
     Predicate alwaysFalse();
 
+    <T> Expression<T> bind(T value);
+
     Predicate likeNonAnchored(Expression<String> x, String value);
 
     <T> Predicate in(Expression<? extends T> expression, Set<T> values);
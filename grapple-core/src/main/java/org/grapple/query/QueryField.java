@@ -4,10 +4,15 @@ import javax.persistence.criteria.Expression;
 
 import org.jetbrains.annotations.NotNull;
 
-public interface QueryField<X, T> extends EntityField<X, T> {
+public interface QueryField<X, T> extends TupleField<X, T> {
 
     Expression<T> getExpression(@NotNull EntityContext<X> ctx, @NotNull QueryBuilder queryBuilder);
 
     Expression<?> getOrderBy(@NotNull EntityContext<X> ctx, @NotNull QueryBuilder queryBuilder);
 
+    // Whether we are always null for an entity that doesn't exist (such as a plain attribute), so comparisons against us only match existing entities
+    default boolean isNullIfNotExists() {
+        return false;
+    }
+
 }
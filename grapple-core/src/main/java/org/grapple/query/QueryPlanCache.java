@@ -0,0 +1,23 @@
+package org.grapple.query;
+
+public interface QueryPlanCache {
+
+    int getMaximumSize();
+
+    int getSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    // Queries executed without looking up a plan, as their fetch sets contain filters without plan keys
+    long getUncacheableCount();
+
+    // Misses whose plan was built but not cached, as it depends on query parameters or values it did not expose
+    long getNotReusableCount();
+
+    void clear();
+
+}
@@ -8,7 +8,19 @@ import java.util.function.Supplier;
 
 public interface QueryResultList<X> extends Iterable<QueryResultRow<X>> {
 
-    int getTotalResults();
+    long getTotalResults(); // -1 if not requested (see TotalResultsMode.NONE)
+
+    boolean isTotalExact(); // False if counting stopped at RootFetchSet.getMaxTotalResults()
+
+    // Cursors and next/previous pages are only available with keyset pagination
+
+    String getStartCursor();
+
+    String getEndCursor();
+
+    boolean hasNextPage();
+
+    boolean hasPreviousPage();
 
     int getRowsRetrieved();
 
@@ -25,10 +25,35 @@ public final class QueryResultListUtils {
         return new QueryResultList<X>() {
 
             @Override
-            public int getTotalResults() {
+            public long getTotalResults() {
                 return 0;
             }
 
+            @Override
+            public boolean isTotalExact() {
+                return true;
+            }
+
+            @Override
+            public String getStartCursor() {
+                return null;
+            }
+
+            @Override
+            public String getEndCursor() {
+                return null;
+            }
+
+            @Override
+            public boolean hasNextPage() {
+                return false;
+            }
+
+            @Override
+            public boolean hasPreviousPage() {
+                return false;
+            }
+
             @Override
             public int getRowsRetrieved() {
                 return 0;
@@ -61,17 +86,42 @@ public final class QueryResultListUtils {
         };
     }
 
-    public static <X> QueryResultList<X> queryResultList(int totalResults, List<QueryResultRow<X>> sourceRows) {
+    public static <X> QueryResultList<X> queryResultList(long totalResults, List<QueryResultRow<X>> sourceRows) {
         requireNonNull(sourceRows, "sourceRows");
         return new QueryResultList<X>() {
 
             private final List<QueryResultRow<X>> results = unmodifiableList(new ArrayList<>(sourceRows));
 
             @Override
-            public int getTotalResults() {
+            public long getTotalResults() {
                 return totalResults;
             }
 
+            @Override
+            public boolean isTotalExact() {
+                return true;
+            }
+
+            @Override
+            public String getStartCursor() {
+                return null;
+            }
+
+            @Override
+            public String getEndCursor() {
+                return null;
+            }
+
+            @Override
+            public boolean hasNextPage() {
+                return false;
+            }
+
+            @Override
+            public boolean hasPreviousPage() {
+                return false;
+            }
+
             @Override
             public int getRowsRetrieved() {
                 return results.size();
@@ -1,5 +1,6 @@
 package org.grapple.query;
 
+import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import org.grapple.core.Chainable;
@@ -12,8 +13,12 @@ public interface QueryResultRow<X> extends Chainable<QueryResultRow<X>> {
 
     <T> T getIfNotNull(EntityField<X, T> field, T valueIfNull);
 
+    Object getEntityKey(); // Primary key of our entity, only fetched when required (otherwise null)
+
     <Y> QueryResultRow<Y> getJoin(EntityJoin<X, Y> join);
 
+    <Y> List<QueryResultRow<Y>> getCollection(EntityCollectionJoin<X, Y> join);
+
     <Y> void applyJoinIfExists(EntityJoin<X, Y> join, Consumer<QueryResultRow<Y>> consumer);
 
     <Y, T> T applyJoinIfExists(EntityJoin<X, Y> join, T value, BiConsumer<QueryResultRow<Y>, T> consumer);
@@ -1,8 +1,12 @@
 package org.grapple.query;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
 public interface RootFetchSet<X> extends FetchSet<X> {
 
@@ -18,10 +22,48 @@ public interface RootFetchSet<X> extends FetchSet<X> {
 
     List<EntityOrderBy<?>> getOrderBy();
 
+    TotalResultsMode getTotalResultsMode();
+
+    RootFetchSet<X> setTotalResultsMode(TotalResultsMode totalResultsMode);
+
+    int getMaxTotalResults();
+
+    RootFetchSet<X> setMaxTotalResults(int maxTotalResults);
+
+    boolean isKeysetPagination();
+
+    RootFetchSet<X> setKeysetPagination(boolean keysetPagination);
+
+    String getAfterCursor();
+
+    RootFetchSet<X> setAfterCursor(String afterCursor); // Also enables keyset pagination
+
+    String getBeforeCursor();
+
+    RootFetchSet<X> setBeforeCursor(String beforeCursor); // Also enables keyset pagination
+
+    int getFetchSize();
+
+    RootFetchSet<X> setFetchSize(int fetchSize); // JDBC fetch size hint for streaming, 0 for driver default
+
+    QueryPlanCache getQueryPlanCache();
+
+    RootFetchSet<X> setQueryPlanCache(QueryPlanCache queryPlanCache);
+
+    EntityManagerFactory getCountEntityManagerFactory();
+
+    Executor getCountExecutor();
+
+    RootFetchSet<X> setConcurrentCount(EntityManagerFactory countEntityManagerFactory, Executor countExecutor); // Counts on a separate entity manager whilst fetching, null to disable
+
     <T> RootFetchSet<X> setQueryParameter(QueryParameter<T> parameter, T value);
 
     QueryResultList<X> execute(EntityManager entityManager, EntityRoot<X> entityRoot);
 
+    CompletableFuture<QueryResultList<X>> executeAsync(EntityManagerFactory entityManagerFactory, EntityRoot<X> entityRoot, Executor executor); // Executes on its own entity manager, closed once complete
+
+    Stream<QueryResultRow<X>> stream(EntityManager entityManager, EntityRoot<X> entityRoot); // Rows are processed in chunks (of fetch size) as they are read, stream must be closed
+
     EntityResultList<X> entityQuery(EntityManager entityManager, EntityRoot<X> entityRoot);
 
     @Override
@@ -30,6 +72,9 @@ public interface RootFetchSet<X> extends FetchSet<X> {
     @Override
     <Y> RootFetchSet<X> join(EntityJoin<X, Y> join, Consumer<FetchSet<Y>> consumer);
 
+    @Override
+    <Y> RootFetchSet<X> joinCollection(EntityCollectionJoin<X, Y> join, Consumer<RootFetchSet<Y>> consumer);
+
     @Override
     RootFetchSet<X> filter(EntityFilter<X> filter);
 
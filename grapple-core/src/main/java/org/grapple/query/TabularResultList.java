@@ -7,7 +7,7 @@ import java.util.function.Supplier;
 
 public interface TabularResultList extends Iterable<TabularResultRow> {
 
-    int getTotalResultCount();
+    long getTotalResultCount();
 
     boolean isEmpty();
 
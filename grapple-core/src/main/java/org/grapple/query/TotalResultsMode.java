@@ -0,0 +1,7 @@
+package org.grapple.query;
+
+public enum TotalResultsMode {
+    EXACT,
+    WINDOW, // Total results retrieved alongside the results themselves, see QueryBuilder.windowCount()
+    NONE // Total results not required, count query is skipped
+}
@@ -0,0 +1,11 @@
+package org.grapple.query;
+
+import java.util.function.Function;
+import javax.persistence.Tuple;
+
+// Fields whose value is read from each row as it is fetched (as opposed to batched fields, resolved once per page)
+public interface TupleField<X, T> extends EntityField<X, T> {
+
+    Function<Tuple, T> prepare(EntityContext<X> ctx, QueryBuilder queryBuilder);
+
+}
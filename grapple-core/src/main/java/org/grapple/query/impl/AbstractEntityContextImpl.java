@@ -1,12 +1,21 @@
 package org.grapple.query.impl;
 
+import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
+import static org.jooq.lambda.Seq.seq;
 
+import java.lang.reflect.AnnotatedElement;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinColumns;
+import javax.persistence.JoinTable;
+import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.From;
@@ -14,14 +23,21 @@ import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 import javax.persistence.criteria.Selection;
+import javax.persistence.criteria.Subquery;
 import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.IdentifiableType;
 import javax.persistence.metamodel.SetAttribute;
 import javax.persistence.metamodel.SingularAttribute;
 import org.grapple.query.EntityContext;
 import org.grapple.query.EntityField;
+import org.grapple.query.EntityFilter;
 import org.grapple.query.EntityFieldBuilder.ExpressionResolver;
 import org.grapple.query.EntityJoin;
+import org.grapple.query.EntityMetadataKeys;
+import org.grapple.query.JoinCardinality;
 import org.grapple.query.NonQueryField;
 import org.grapple.query.NonQuerySelection;
 import org.grapple.query.QueryBuilder;
@@ -34,7 +50,7 @@ import org.jetbrains.annotations.NotNull;
 
 abstract class AbstractEntityContextImpl<X> implements EntityContext<X> {
 
-    private final RootFetchSetImpl<?> rootFetchSet;
+    private final ExecutionContext executionContext;
 
     private final QueryWrapper queryWrapper;
 
@@ -42,6 +58,9 @@ abstract class AbstractEntityContextImpl<X> implements EntityContext<X> {
 
     private final Supplier<? extends From<?, X>> entity;
 
+    // Shared attribute join we were joined through (if any), which lets us avoid actually joining when only the foreign key is needed
+    private final AttributeJoinImpl<X> attributeJoin;
+
     private final Map<QueryField<X, ?>, Expression<?>> selections = new NoDuplicatesMap<>();
 
     private final Map<EntityJoin<X, ?>, JoinedEntityContextImpl<?>> entityJoins = new NoDuplicatesMap<>();
@@ -52,11 +71,13 @@ abstract class AbstractEntityContextImpl<X> implements EntityContext<X> {
 
     private final Map<EntityField<X, ?>, NonQuerySelection<?>> nonQuerySelections = new NoDuplicatesMap<>();
 
-    AbstractEntityContextImpl(@NotNull RootFetchSetImpl<?> rootFetchSet, @NotNull QueryWrapper queryWrapper, @NotNull QueryBuilder queryBuilder, @NotNull Supplier<? extends From<?, X>> entity) {
-        this.rootFetchSet = requireNonNull(rootFetchSet, "rootFetchSet");
+    @SuppressWarnings("unchecked")
+    AbstractEntityContextImpl(@NotNull ExecutionContext executionContext, @NotNull QueryWrapper queryWrapper, @NotNull QueryBuilder queryBuilder, @NotNull Supplier<? extends From<?, X>> entity) {
+        this.executionContext = requireNonNull(executionContext, "executionContext");
         this.queryWrapper = requireNonNull(queryWrapper, "queryWrapper");
         this.queryBuilder = requireNonNull(queryBuilder, "queryBuilder");
         this.entity = requireNonNull(entity, "entity");
+        this.attributeJoin = (entity instanceof AttributeJoinImpl<?> ? (AttributeJoinImpl<X>) entity : null);
     }
 
     @Override
@@ -67,9 +88,21 @@ abstract class AbstractEntityContextImpl<X> implements EntityContext<X> {
     @Override
     public <T> Path<T> get(@NotNull SingularAttribute<? super X, T> attribute) {
         requireNonNull(attribute, "attribute");
+        if (attributeJoin != null && attributeJoin.foreignKey != null && attribute.isId()) {
+            // Our primary key is the foreign key of our parent
+            return attributeJoin.foreignKey.get().get(attribute);
+        }
         return entity.get().get(attribute);
     }
 
+    // Whether our entity exists, checked against the foreign key where possible so as not to force the join
+    Predicate exists() {
+        if (attributeJoin != null && attributeJoin.foreignKey != null) {
+            return queryBuilder.isNotNull(attributeJoin.foreignKey.get());
+        }
+        return queryBuilder.isNotNull(entity.get());
+    }
+
     @Override
     public <T> Expression<T> get(@NotNull QueryField<X, T> selection) {
         requireNonNull(selection, "selection");
@@ -86,13 +119,27 @@ abstract class AbstractEntityContextImpl<X> implements EntityContext<X> {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <Y> JoinedEntityContextImpl<Y> join(@NotNull EntityJoin<X, Y> join) {
         requireNonNull(join, "join");
         final @SuppressWarnings("unchecked") JoinedEntityContextImpl<Y> existing = (JoinedEntityContextImpl<Y>) entityJoins.get(join);
         if (existing != null) {
             return existing;
         }
-        final JoinedEntityContextImpl<Y> joinedContext = new JoinedEntityContextImpl<>(rootFetchSet, queryWrapper, queryBuilder, join.join(this, queryBuilder, entity));
+        final Supplier<Join<?, Y>> joinSupplier = unwrapAttributeJoin(join.join(this, queryBuilder, entity));
+        final JoinCardinality cardinality = join.getMetadata(EntityMetadataKeys.Cardinality);
+        final JoinedEntityContextImpl<Y> joinedContext;
+        // Declared cardinality takes precedence, as expression joins may well return attribute joins over collections
+        if (joinSupplier instanceof AttributeJoinImpl<?> && cardinality == null) {
+            // Plain attribute joins are to-one, and can be inner joined if the execution plan knows the joined entity must exist
+            if (executionContext.isInnerJoin(this, join)) {
+                ((AttributeJoinImpl<Y>) joinSupplier).promoteToInner();
+            }
+            joinedContext = new JoinedEntityContextImpl<>(executionContext, queryWrapper, queryBuilder, joinSupplier);
+        }
+        else {
+            joinedContext = new JoinedEntityContextImpl<>(executionContext, queryWrapper, queryBuilder, (cardinality != null ? LazyValue.of(() -> executionContext.declareJoinCardinality(joinSupplier.get(), cardinality)) : joinSupplier));
+        }
         entityJoins.put(join, joinedContext);
         return joinedContext;
     }
@@ -104,11 +151,42 @@ abstract class AbstractEntityContextImpl<X> implements EntityContext<X> {
         if (existing != null) {
             return existing;
         }
-        final JoinedEntityContextImpl<Y> joinedContext = new JoinedEntityContextImpl<>(rootFetchSet, queryWrapper, queryBuilder, LazyValue.of(() -> entity.get().join(attribute, JoinType.LEFT)));
+        final JoinedEntityContextImpl<Y> joinedContext = new JoinedEntityContextImpl<>(executionContext, queryWrapper, queryBuilder, joinShared(attribute));
         attributeJoins.put(attribute, joinedContext);
         return joinedContext;
     }
 
+    @Override
+    public <Y> Predicate filterJoin(@NotNull EntityJoin<X, Y> join, @NotNull EntityFilter<Y> filter) {
+        requireNonNull(join, "join");
+        requireNonNull(filter, "filter");
+        // A subquery only matches joined entities that exist, so it is only equivalent if the filter can't match a missing entity anyway
+        if (!filter.isExistsRequired() || executionContext.isNegatedFilter() || !executionContext.isFilterOnlyJoin(this, join)) {
+            return filter.apply(join(join), queryBuilder);
+        }
+        // Joins only needed for filtering would otherwise widen our rows (or duplicate them for to-many joins)
+        // Subquery selects from its own root matched to ours, as Hibernate drops the join conditions of joins from correlated roots
+        final Subquery<Integer> subquery = queryWrapper.getQuery().subquery(Integer.class);
+        final @SuppressWarnings("unchecked") LazyValue<Root<X>> subqueryRoot = LazyValue.of(() -> subquery.from((Class<X>) entity.get().getJavaType()));
+        final QueryWrapper subqueryWrapper = new QueryWrapper(queryWrapper.getQuery(), queryBuilder);
+        final EntityContextImpl<X> subqueryContext = new EntityContextImpl<>(executionContext, subqueryWrapper, queryBuilder, subqueryRoot);
+        final AbstractEntityContextImpl<Y> subqueryJoin = subqueryContext.join(join);
+        if (subqueryJoin.attributeJoin != null && subqueryJoin.attributeJoin.foreignKey != null) {
+            // Many-to-one joins never duplicate rows, and aren't even made when filtering on the foreign key, so are best left as they are
+            return filter.apply(join(join), queryBuilder);
+        }
+        final Predicate predicate = filter.apply(subqueryJoin, queryBuilder);
+        subquery.select(queryBuilder.literal(1));
+        subquery.where(seq(subqueryWrapper.getPredicates()).append(queryBuilder.equal(subqueryRoot.get(), entity.get()), predicate).toArray(Predicate[]::new));
+        return queryBuilder.exists(subquery);
+    }
+
+    @Override
+    public Predicate filterNot(@NotNull EntityFilter<X> filter) {
+        requireNonNull(filter, "filter");
+        return executionContext.applyNegated(() -> filter.apply(this, queryBuilder));
+    }
+
     @Override
     public <Y> AttributeJoinImpl<Y> joinShared(SingularAttribute<X, Y> attribute) {
         requireNonNull(attribute, "attribute");
@@ -116,7 +194,7 @@ abstract class AbstractEntityContextImpl<X> implements EntityContext<X> {
         if (existing != null) {
             return existing;
         }
-        final AttributeJoinImpl<Y> attributeJoin = new AttributeJoinImpl<>(LazyValue.of(() -> entity.get().join(attribute, JoinType.LEFT)));
+        final AttributeJoinImpl<Y> attributeJoin = new AttributeJoinImpl<>(entity, attribute);
         sharedJoins.put(attribute, attributeJoin);
         return attributeJoin;
     }
@@ -163,6 +241,12 @@ abstract class AbstractEntityContextImpl<X> implements EntityContext<X> {
         return expression;
     }
 
+    @Override
+    public <T> Function<Tuple, T> valueOf(@NotNull Selection<T> selection) {
+        requireNonNull(selection, "selection");
+        return new SelectionReader<>(selection);
+    }
+
     @Override
     public <T> NonQuerySelection<T> addNonQuerySelection(NonQueryField<X, T> nonQueryField) {
         requireNonNull(nonQueryField, "nonQueryField");
@@ -189,20 +273,83 @@ abstract class AbstractEntityContextImpl<X> implements EntityContext<X> {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <T> T getQueryParameter(@NotNull QueryParameter<T> parameter) {
         requireNonNull(parameter, "parameter");
-        return (T) rootFetchSet.getQueryParameters().get(parameter);
+        return executionContext.getQueryParameter(parameter);
+    }
+
+    // Contexts wrapping a shared attribute join (such as those of attribute joins and joined attributes) share the same SQL join
+    @SuppressWarnings("unchecked")
+    private static <Y> Supplier<Join<?, Y>> unwrapAttributeJoin(Supplier<Join<?, Y>> joinSupplier) {
+        if (joinSupplier instanceof JoinedEntityContextImpl<?> && ((AbstractEntityContextImpl<Y>) joinSupplier).attributeJoin != null) {
+            return ((AbstractEntityContextImpl<Y>) joinSupplier).attributeJoin;
+        }
+        return joinSupplier;
     }
 
     private static final class AttributeJoinImpl<Y> implements AttributeJoin<Y> {
 
+        // By name, as we don't depend on any given provider
+        private static final Set<String> UNSUPPORTED_FOREIGN_KEY_ANNOTATIONS = new HashSet<>(asList(
+                "org.hibernate.annotations.NotFound",
+                "org.hibernate.annotations.JoinFormula",
+                "org.hibernate.annotations.JoinColumnOrFormula",
+                "org.hibernate.annotations.JoinColumnsOrFormulas"));
+
         private final LazyValue<Join<?, Y>> entity;
 
+        // Foreign key we are joined by, only known for plain many-to-one joins (null otherwise)
+        private final Supplier<Path<Y>> foreignKey;
+
         private final Map<Attribute<?, ?>, AttributeJoin<?>> attributeJoins = new HashMap<>();
 
+        private JoinType joinType = JoinType.LEFT;
+
+        private boolean joined;
+
         private AttributeJoinImpl(LazyValue<Join<?, Y>> entity) {
             this.entity = requireNonNull(entity, "entity");
+            this.foreignKey = null;
+        }
+
+        private <P> AttributeJoinImpl(Supplier<? extends From<?, P>> parent, SingularAttribute<P, Y> attribute) {
+            requireNonNull(parent, "parent");
+            requireNonNull(attribute, "attribute");
+            this.entity = LazyValue.of(() -> {
+                joined = true;
+                return parent.get().join(attribute, joinType);
+            });
+            this.foreignKey = (isForeignKeyToId(attribute) ? () -> parent.get().get(attribute) : null);
+        }
+
+        // Only a plain join column (referencing the primary key of the joined entity) can stand in for the joined entity's primary key
+        // Provider specific mappings may reference other columns, or tolerate foreign keys to missing entities, so are always joined
+        private static boolean isForeignKeyToId(SingularAttribute<?, ?> attribute) {
+            if (attribute.getPersistentAttributeType() != PersistentAttributeType.MANY_TO_ONE) {
+                return false;
+            }
+            if (!(attribute.getType() instanceof IdentifiableType<?>) || !((IdentifiableType<?>) attribute.getType()).hasSingleIdAttribute()) {
+                return false;
+            }
+            if (!(attribute.getJavaMember() instanceof AnnotatedElement)) {
+                return false;
+            }
+            final AnnotatedElement member = (AnnotatedElement) attribute.getJavaMember();
+            final JoinColumn joinColumn = member.getAnnotation(JoinColumn.class);
+            if (joinColumn != null && !joinColumn.referencedColumnName().isEmpty()) {
+                return false;
+            }
+            if (member.isAnnotationPresent(JoinColumns.class) || member.isAnnotationPresent(JoinTable.class)) {
+                return false;
+            }
+            return seq(asList(member.getAnnotations())).noneMatch(annotation -> UNSUPPORTED_FOREIGN_KEY_ANNOTATIONS.contains(annotation.annotationType().getName()));
+        }
+
+        // Has no effect once we have been joined
+        private void promoteToInner() {
+            if (!joined) {
+                joinType = JoinType.INNER;
+            }
         }
 
         @Override
@@ -223,7 +370,7 @@ abstract class AbstractEntityContextImpl<X> implements EntityContext<X> {
             if (existing != null) {
                 return existing;
             }
-            final AttributeJoin<Z> attributeJoin = new AttributeJoinImpl<>(LazyValue.of(() -> entity.get().join(attribute, JoinType.LEFT)));
+            final AttributeJoin<Z> attributeJoin = new AttributeJoinImpl<>(this, attribute);
             attributeJoins.put(attribute, attributeJoin);
             return attributeJoin;
         }
@@ -11,12 +11,14 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
+import org.grapple.query.EntityCollectionJoin;
 import org.grapple.query.EntityField;
 import org.grapple.query.EntityFilter;
 import org.grapple.query.EntityJoin;
 import org.grapple.query.EntitySortKey;
 import org.grapple.query.FetchSet;
 import org.grapple.query.QueryField;
+import org.grapple.query.RootFetchSet;
 import org.grapple.query.SortDirection;
 
 abstract class AbstractFetchSetImpl<X> implements FetchSet<X> {
@@ -27,6 +29,8 @@ abstract class AbstractFetchSetImpl<X> implements FetchSet<X> {
 
     private final Map<EntityJoin<X, ?>, FetchSet<?>> joins = new LinkedHashMap<>();
 
+    private final Map<EntityCollectionJoin<X, ?>, RootFetchSet<?>> collectionJoins = new LinkedHashMap<>();
+
     @Override
     public FetchSet<X> select(EntityField<X, ?> selection) {
         requireNonNull(selection, "selection");
@@ -71,6 +75,31 @@ abstract class AbstractFetchSetImpl<X> implements FetchSet<X> {
         return this;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public <Y> RootFetchSet<Y> joinCollection(EntityCollectionJoin<X, Y> join) {
+        requireNonNull(join, "join");
+        final RootFetchSet<Y> existing = (RootFetchSet<Y>) collectionJoins.get(join);
+        if (existing != null) {
+            return existing;
+        }
+        final RootFetchSet<Y> joinedFetchSet = new RootFetchSetImpl<>(join);
+        collectionJoins.put(join, joinedFetchSet);
+        return joinedFetchSet;
+    }
+
+    @Override
+    public <Y> FetchSet<X> joinCollection(EntityCollectionJoin<X, Y> join, Consumer<RootFetchSet<Y>> consumer) {
+        requireNonNull(join, "join");
+        org.grapple.utils.Utils.apply(joinCollection(join), consumer);
+        return this;
+    }
+
+    @Override
+    public Map<EntityCollectionJoin<X, ?>, RootFetchSet<?>> getCollectionJoins() {
+        return readOnlyCopy(collectionJoins);
+    }
+
     @Override
     public FetchSet<X> filter(EntityFilter<X> filter) {
         requireNonNull(filter, "filter");
@@ -7,7 +7,7 @@ import org.grapple.query.QueryBuilder;
 
 final class EntityContextImpl<X> extends AbstractEntityContextImpl<X> implements EntityContext<X> {
 
-    EntityContextImpl(RootFetchSetImpl<?> rootFetchSet, QueryWrapper queryWrapper, QueryBuilder queryBuilder, Supplier<? extends From<?, X>> entity) {
-        super(rootFetchSet, queryWrapper, queryBuilder, entity);
+    EntityContextImpl(ExecutionContext executionContext, QueryWrapper queryWrapper, QueryBuilder queryBuilder, Supplier<? extends From<?, X>> entity) {
+        super(executionContext, queryWrapper, queryBuilder, entity);
     }
 }
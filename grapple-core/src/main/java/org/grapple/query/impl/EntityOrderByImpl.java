@@ -21,10 +21,13 @@ final class EntityOrderByImpl<X> implements EntityOrderBy<X> {
 
     private final ExpressionResolver<X> resolver;
 
-    private EntityOrderByImpl(FetchSet<X> fetchSet, SortDirection direction, ExpressionResolver<X> resolver) {
+    private final Object planKey;
+
+    private EntityOrderByImpl(FetchSet<X> fetchSet, SortDirection direction, ExpressionResolver<X> resolver, Object planKey) {
         this.fetchSet = requireNonNull(fetchSet, "fetchSet");
         this.direction = requireNonNull(direction, "direction");
         this.resolver = requireNonNull(resolver, "resolver");
+        this.planKey = requireNonNull(planKey, "planKey");
     }
 
     @Override
@@ -37,6 +40,11 @@ final class EntityOrderByImpl<X> implements EntityOrderBy<X> {
         return direction;
     }
 
+    // Field or sort key we are ordering by
+    Object getPlanKey() {
+        return planKey;
+    }
+
     Order build(ExecutionContext executionContext, QueryBuilder queryBuilder) {
         final EntityContext<X> entityContext = executionContext.getEntityContext(fetchSet);
         final Expression<?> expression = resolveExpression(entityContext, queryBuilder);
@@ -69,13 +77,13 @@ final class EntityOrderByImpl<X> implements EntityOrderBy<X> {
         requireNonNull(fetchSet, "fetchSet");
         requireNonNull(direction, "direction");
         requireNonNull(field, "field");
-        return new EntityOrderByImpl<>(fetchSet, direction, field::getOrderBy);
+        return new EntityOrderByImpl<>(fetchSet, direction, field::getOrderBy, field);
     }
 
     static <X> EntityOrderByImpl<X> entityOrderBy(FetchSet<X> fetchSet, SortDirection direction, EntitySortKey<X> sortKey) {
         requireNonNull(fetchSet, "fetchSet");
         requireNonNull(direction, "direction");
         requireNonNull(sortKey, "sortKey");
-        return new EntityOrderByImpl<>(fetchSet, direction, (ctx, queryBuilder) -> sortKey.getPath(ctx));
+        return new EntityOrderByImpl<>(fetchSet, direction, (ctx, queryBuilder) -> sortKey.getPath(ctx), sortKey);
     }
 }
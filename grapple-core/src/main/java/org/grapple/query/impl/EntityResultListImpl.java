@@ -0,0 +1,63 @@
+package org.grapple.query.impl;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import org.grapple.query.EntityResultList;
+import org.grapple.schema.NonScalarQueryResultException;
+
+final class EntityResultListImpl<X> implements EntityResultList<X> {
+
+    private final long totalResults;
+
+    private final boolean totalExact;
+
+    private final List<X> results;
+
+    EntityResultListImpl(long totalResults, boolean totalExact, List<X> results) {
+        requireNonNull(results, "results");
+        this.totalResults = totalResults;
+        this.totalExact = totalExact;
+        this.results = unmodifiableList(new ArrayList<>(results));
+    }
+
+    @Override
+    public long getTotalResults() {
+        return totalResults;
+    }
+
+    @Override
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    @Override
+    public int getEntitiesRetrieved() {
+        return results.size();
+    }
+
+    @Override
+    public List<X> getResults() {
+        return results;
+    }
+
+    @Override
+    public Optional<X> getUniqueResult() {
+        if (results.isEmpty()) {
+            return Optional.empty();
+        }
+        if (results.size() != 1) {
+            throw new NonScalarQueryResultException("Query returned multiple entities");
+        }
+        return Optional.of(results.get(0));
+    }
+
+    @Override
+    public Iterator<X> iterator() {
+        return results.iterator();
+    }
+}
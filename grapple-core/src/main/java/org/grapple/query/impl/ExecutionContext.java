@@ -2,43 +2,152 @@ package org.grapple.query.impl;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
+import static org.jooq.lambda.Seq.seq;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import javax.persistence.EntityManager;
 import javax.persistence.Tuple;
-import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import javax.persistence.metamodel.Type.PersistenceType;
+import org.grapple.query.BatchedNonQueryField;
+import org.grapple.query.EntityCollectionJoin;
 import org.grapple.query.EntityContext;
 import org.grapple.query.EntityField;
 import org.grapple.query.EntityFilter;
 import org.grapple.query.EntityJoin;
+import org.grapple.query.EntityMetadataKeys;
 import org.grapple.query.EntityRoot;
+import org.grapple.query.EntityRootBuilder;
 import org.grapple.query.FetchSet;
+import org.grapple.query.JoinCardinality;
 import org.grapple.query.NullNotAllowedException;
-import org.grapple.query.QueryBuilder;
+import org.grapple.query.QueryParameter;
+import org.grapple.query.QueryResultRow;
+import org.grapple.query.SortDirection;
+import org.grapple.query.TotalResultsMode;
+import org.grapple.query.TupleField;
+import org.grapple.query.impl.QueryPlan.PreparedQuery;
 import org.grapple.utils.LazyValue;
+import org.grapple.utils.UnexpectedException;
+import org.jooq.lambda.tuple.Tuple2;
 
 final class ExecutionContext {
 
-    private final EntityManager entityManager;
+    private final RootFetchSetImpl<?> rootFetchSet;
 
-    private final QueryBuilder queryBuilder;
+    private final QueryBuilderImpl queryBuilder;
 
     private final Map<FetchSet<?>, EntityContext<?>> fetchSets = new HashMap<>();
 
-    private final List<QueryRowCallback> fieldCallbacks = new ArrayList<>();
+    // Fetch set each entity context was built for, so joins made by filters can also be matched against the fetch sets we inner join
+    private final Map<EntityContext<?>, FetchSet<?>> entityContextFetchSets = new IdentityHashMap<>();
 
-    ExecutionContext(EntityManager entityManager) {
-        this.entityManager = requireNonNull(entityManager, "entityManager");
-        this.queryBuilder = new QueryBuilderImpl(entityManager.getCriteriaBuilder());
+    // Joined fetch sets whose entity must exist in every row, which can be inner joined rather than outer joined
+    private final Set<FetchSet<?>> innerJoins = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Fetch sets in the order they were processed, callbacks refer to fetch sets by index
+    private final List<FetchSet<?>> fetchSetIndexes = new ArrayList<>();
+
+    private final List<RowMapper.ExistsMapping> existsMappings = new ArrayList<>();
+
+    private final List<RowMapper.EntityKeyMapping> entityKeyMappings = new ArrayList<>();
+
+    private final List<RowMapper.FieldMapping> fieldMappings = new ArrayList<>();
+
+    private final List<QueryPageCallback> pageCallbacks = new ArrayList<>();
+
+    private final RowLayout rowLayout = new RowLayout();
+
+    // Cardinality declared by expression joins, overriding what we would deduce from the attribute joined
+    private final Map<Join<?, ?>, JoinCardinality> joinCardinalities = new IdentityHashMap<>();
+
+    private List<Object> countParameterValues = emptyList();
+
+    private List<Object> tupleParameterValues = emptyList();
+
+    private boolean queryParametersAccessed;
+
+    // Number of negated filters currently being applied
+    private int negatedFilterDepth;
+
+    ExecutionContext(CriteriaBuilder criteriaBuilder, RootFetchSetImpl<?> rootFetchSet) {
+        requireNonNull(criteriaBuilder, "criteriaBuilder");
+        this.rootFetchSet = requireNonNull(rootFetchSet, "rootFetchSet");
+        this.queryBuilder = new QueryBuilderImpl(criteriaBuilder);
+    }
+
+    static <X> QueryResultListImpl<X> execute(EntityManager entityManager, EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches) {
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(entityRoot, "entityRoot");
+        requireNonNull(fetches, "fetches");
+        final ExecutionContext executionContext = new ExecutionContext(entityManager.getCriteriaBuilder(), fetches);
+        final QueryPlan<X> queryPlan = executionContext.buildQueryPlan(entityRoot, fetches);
+        return queryPlan.execute(entityManager, fetches, executionContext.getQueryPlanParameters());
+    }
+
+    static <X> Stream<QueryResultRow<X>> stream(EntityManager entityManager, EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches) {
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(entityRoot, "entityRoot");
+        requireNonNull(fetches, "fetches");
+        final ExecutionContext executionContext = new ExecutionContext(entityManager.getCriteriaBuilder(), fetches);
+        final QueryPlan<X> queryPlan = executionContext.buildQueryPlan(entityRoot, fetches);
+        return queryPlan.stream(entityManager, fetches, executionContext.getQueryPlanParameters());
+    }
+
+    static <X> EntityResultListImpl<X> entityQuery(EntityManager entityManager, EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches) {
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(entityRoot, "entityRoot");
+        requireNonNull(fetches, "fetches");
+        final ExecutionContext executionContext = new ExecutionContext(entityManager.getCriteriaBuilder(), fetches);
+        final QueryPlan<X> queryPlan = executionContext.buildEntityQueryPlan(entityRoot, fetches);
+        return queryPlan.executeEntityQuery(entityManager, fetches, executionContext.getQueryPlanParameters());
+    }
+
+    // Elements of a collection join for the given parent keys, grouped by parent key
+    static <X, Y> Map<Object, List<TabularResultRowImpl>> executeCollection(EntityManager entityManager, EntityCollectionJoin<X, Y> collectionJoin, RootFetchSetImpl<Y> fetches, Collection<Object> parentKeys) {
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(collectionJoin, "collectionJoin");
+        requireNonNull(fetches, "fetches");
+        requireNonNull(parentKeys, "parentKeys");
+        final EntityRoot<Y> entityRoot = EntityRootBuilder.entityRoot(fetches.getEntityClass(), (ctx, queryBuilder) -> queryBuilder.in(resolveCollectionKey(ctx.getEntity(), collectionJoin), new LinkedHashSet<>(parentKeys)));
+        final ExecutionContext executionContext = new ExecutionContext(entityManager.getCriteriaBuilder(), fetches);
+        final QueryPlan<Y> queryPlan = executionContext.buildQueryPlan(entityRoot, fetches);
+        return queryPlan.executeCollection(entityManager, fetches, executionContext.getQueryPlanParameters());
+    }
+
+    private static boolean isPagedCollection(RootFetchSetImpl<?> fetches) {
+        return fetches.getFirstResult() > 0 || fetches.getMaxResults() != Integer.MAX_VALUE;
     }
 
     @SuppressWarnings("unchecked")
@@ -46,22 +155,30 @@ final class ExecutionContext {
         return (EntityContext<X>) Objects.requireNonNull(fetchSets.get(fetchSet), QueryImplUtils.resolveFullName(fetchSet));
     }
 
-    <X> QueryResultListImpl<X> execute(EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches) {
+    @SuppressWarnings("unchecked")
+    <T> T getQueryParameter(QueryParameter<T> parameter) {
+        requireNonNull(parameter, "parameter");
+        // Plans depending on query parameters (such as the current GraphQL environment) can not be reused
+        queryParametersAccessed = true;
+        return (T) rootFetchSet.getQueryParameters().get(parameter);
+    }
+
+    <X> QueryPlan<X> buildQueryPlan(EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches) {
         requireNonNull(entityRoot, "entityRoot");
         requireNonNull(fetches, "fetches");
 
-        final int totalResults = countTupleQueryResults(entityRoot, fetches);
+        planInnerJoins(fetches, seq(fetches.getFilters()).append(entityRoot.getFilter()).toList());
 
-        if (totalResults == 0) {
-            return new QueryResultListImpl<>(fetches, 0, emptyList());
-        }
+        final PreparedQuery<Long> countQuery = buildCountQuery(entityRoot, fetches, Long.class, this::selectCount);
+        final PreparedQuery<Object> cappedCountQuery = (fetches.isTotalResultsCapped() ? buildCountQuery(entityRoot, fetches, Object.class, this::selectCappedCount) : null);
 
-        if (QueryImplUtils.isEmptyFetchSet(fetches)) {
-            return new QueryResultListImpl<>(fetches, totalResults, emptyList());
+        // Filters and orders alone select nothing, so are only counted (unless seeking, as cursors are taken from our rows)
+        if (!fetches.isKeysetPagination() && (QueryImplUtils.isEmptyFetchSet(fetches) || !QueryImplUtils.hasSelections(fetches))) {
+            return new QueryPlan<>(countQuery, cappedCountQuery, null, null, null, null, null, rowLayout, null, emptyList());
         }
 
-        final CriteriaQuery<Tuple> criteriaQuery = queryBuilder.createTupleQuery();
-        criteriaQuery.distinct(true);
+        // Rows are selected as plain arrays (or a single value), positions of each selection are resolved once the query has been built
+        final CriteriaQuery<Object> criteriaQuery = queryBuilder.createQuery();
 
         final QueryWrapper queryWrapper = new QueryWrapper(criteriaQuery, queryBuilder);
 
@@ -69,32 +186,347 @@ final class ExecutionContext {
         final EntityContext<X> rootEntityContext = buildEntityContext(queryWrapper, fetches, queryRoot, true);
         applyFilter(queryWrapper, rootEntityContext, entityRoot.getFilter());
 
+        // Collection elements also select the key of the parent they belong to
+        final Expression<?> collectionKey = (fetches.getCollectionJoin() != null ? resolveCollectionKey(queryRoot, fetches.getCollectionJoin()) : null);
+        if (collectionKey != null) {
+            if (fetches.isKeysetPagination()) {
+                throw new UnsupportedOperationException("Keyset pagination isn't supported for collection joins");
+            }
+            queryWrapper.select(collectionKey);
+        }
+
+        // Keyset pagination seeks past the cursor instead of skipping rows (cursor values are bound at execution)
+        final List<Expression<?>> keysetExpressions = (fetches.isKeysetPagination() ? new ArrayList<>() : null);
+        final List<ParameterExpression<?>> keysetParameters = new ArrayList<>();
+
+        if (keysetExpressions != null) {
+            applyKeyset(queryWrapper, queryRoot, fetches, keysetExpressions, keysetParameters);
+        }
+        else if (collectionKey != null && isPagedCollection(fetches)) {
+            applyCollectionPage(queryWrapper, queryRoot, fetches);
+        }
+        else {
+            for (EntityOrderByImpl<?> orderBy: fetches.orderBy) {
+                queryWrapper.orderBy(orderBy.build(this, queryBuilder));
+            }
+        }
+
+        // All joins have been made by now, so we know whether rows can be duplicated
+        final boolean distinct = isDistinctRequired(criteriaQuery);
+
+        // Total results are then retrieved from the first row, instead of from the count query (not applicable when seeking, nor when duplicates are removed after windowing)
+        final Expression<Long> windowCount = (fetches.getTotalResultsMode() == TotalResultsMode.WINDOW && keysetExpressions == null && !distinct ? queryBuilder.windowCount() : null);
+        if (windowCount != null) {
+            queryWrapper.select(windowCount);
+        }
+
+        queryWrapper.apply();
+        criteriaQuery.distinct(distinct);
+
+        final List<Tuple2<ParameterExpression<?>, Object>> parameterBindings = queryBuilder.drainParameterBindings();
+        tupleParameterValues = seq(parameterBindings).map(Tuple2::v2).toList();
+
+        final List<ParameterExpression<?>> tupleParameters = seq(parameterBindings).<ParameterExpression<?>> map(Tuple2::v1).concat(keysetParameters).toList();
+
+        final TupleLayout tupleLayout = new TupleLayout(queryWrapper.getSelections());
+        final RowMapper rowMapper = new RowMapper(tupleLayout, existsMappings, entityKeyMappings, fieldMappings);
+
+        return new QueryPlan<>(countQuery, cappedCountQuery, new PreparedQuery<>(criteriaQuery, tupleParameters), tupleLayout, windowCount, keysetExpressions, collectionKey, rowLayout, rowMapper, pageCallbacks);
+    }
+
+    // Selects managed entities instead of tuples, joins are fetched by an entity graph rather than selected
+    <X> QueryPlan<X> buildEntityQueryPlan(EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches) {
+        requireNonNull(entityRoot, "entityRoot");
+        requireNonNull(fetches, "fetches");
+
+        if (fetches.isKeysetPagination()) {
+            throw new UnsupportedOperationException("Keyset pagination isn't supported for entity queries");
+        }
+
+        planInnerJoins(fetches, seq(fetches.getFilters()).append(entityRoot.getFilter()).toList());
+
+        final PreparedQuery<Long> countQuery = buildCountQuery(entityRoot, fetches, Long.class, this::selectCount);
+        final PreparedQuery<Object> cappedCountQuery = (fetches.isTotalResultsCapped() ? buildCountQuery(entityRoot, fetches, Object.class, this::selectCappedCount) : null);
+
+        final CriteriaQuery<X> criteriaQuery = queryBuilder.createQuery(entityRoot.getEntityClass());
+
+        final QueryWrapper queryWrapper = new QueryWrapper(criteriaQuery, queryBuilder);
+
+        final Root<X> queryRoot = criteriaQuery.from(entityRoot.getEntityClass());
+        final EntityContext<X> rootEntityContext = buildEntityContext(queryWrapper, fetches, queryRoot, false);
+        applyFilter(queryWrapper, rootEntityContext, entityRoot.getFilter());
+
         for (EntityOrderByImpl<?> orderBy: fetches.orderBy) {
             queryWrapper.orderBy(orderBy.build(this, queryBuilder));
         }
 
-        final TypedQuery<Tuple> typedQuery = entityManager.createQuery(criteriaQuery);
-        typedQuery.setFirstResult(fetches.getFirstResult());
-        typedQuery.setMaxResults(fetches.getMaxResults());
+        queryWrapper.apply();
+        criteriaQuery.select(queryRoot);
+
+        final List<Tuple2<ParameterExpression<?>, Object>> parameterBindings = queryBuilder.drainParameterBindings();
+        tupleParameterValues = seq(parameterBindings).map(Tuple2::v2).toList();
+
+        final PreparedQuery<X> entityQuery = new PreparedQuery<>(criteriaQuery, seq(parameterBindings).map(Tuple2::v1).toList());
 
-        final List<Tuple> rows = typedQuery.getResultList();
+        // Joins are resolved against a throwaway query, purely to discover the attributes they traverse
+        final CriteriaQuery<X> graphQuery = queryBuilder.createQuery(entityRoot.getEntityClass());
+        final EntityContextImpl<X> graphEntityContext = new EntityContextImpl<>(this, new QueryWrapper(graphQuery, queryBuilder), queryBuilder, LazyValue.fixed(graphQuery.from(entityRoot.getEntityClass())));
+        final List<List<String>> entityGraph = new ArrayList<>();
+        resolveEntityGraph(graphEntityContext, fetches, emptyList(), entityGraph);
+        queryBuilder.drainParameterBindings();
 
-        final List<TabularResultRowImpl> resultRows = new ArrayList<>(rows.size());
+        // Fetched joins don't duplicate managed entities, but filter and order joins do
+        criteriaQuery.distinct(isDistinctRequired(criteriaQuery) || isDistinctRequired(graphQuery));
 
-        for (Tuple row: rows) {
-            final TabularResultRowImpl resultItem = new TabularResultRowImpl();
-            for (QueryRowCallback queryRowCallback: fieldCallbacks) {
-                queryRowCallback.execute(row, resultItem);
+        return new QueryPlan<>(countQuery, cappedCountQuery, entityQuery, entityGraph);
+    }
+
+    // Q is a virtual type parameter used for type-safety whilst looping over joins
+    private <X, Q> void resolveEntityGraph(AbstractEntityContextImpl<X> entityContext, FetchSet<X> fetchSet, List<String> parentPath, List<List<String>> entityGraph) {
+        if (fetchSet.getCollectionJoins().values().stream().anyMatch(joinedFetchSet -> !QueryImplUtils.isEmptyFetchSet(joinedFetchSet))) {
+            throw new UnsupportedOperationException(format("Collection joins aren't supported for entity queries: %s", QueryImplUtils.resolveFullName(fetchSet)));
+        }
+        for (Map.Entry<EntityJoin<X, ?>, FetchSet<?>> joinEntry: fetchSet.getJoins().entrySet()) {
+            final @SuppressWarnings("unchecked") EntityJoin<X, Q> entityJoin = (EntityJoin<X, Q>) joinEntry.getKey();
+            final @SuppressWarnings("unchecked") FetchSet<Q> joinedFetchSet = (FetchSet<Q>) joinEntry.getValue();
+            if (!QueryImplUtils.isEmptyFetchSet(joinedFetchSet)) {
+                final JoinedEntityContextImpl<Q> childEntityContext = entityContext.join(entityJoin);
+                final List<String> path = new ArrayList<>(parentPath);
+                path.addAll(resolveAttributePath(entityContext.getEntity(), childEntityContext.get(), joinedFetchSet));
+                entityGraph.add(path);
+                resolveEntityGraph(childEntityContext, joinedFetchSet, path, entityGraph);
             }
-            resultRows.add(resultItem);
         }
+    }
 
-        return new QueryResultListImpl<>(fetches, totalResults, resultRows);
+    // Entity graphs can only fetch associations as mapped, so joins must be plain attribute joins (possibly nested) of their parent
+    private static List<String> resolveAttributePath(From<?, ?> parent, Join<?, ?> join, FetchSet<?> fetchSet) {
+        final List<String> path = new ArrayList<>();
+        From<?, ?> current = join;
+        while (current != parent) {
+            if (!(current instanceof Join) || ((Join<?, ?>) current).getOn() != null) {
+                throw new UnsupportedOperationException(format("Join can't be fetched as an entity graph: %s", QueryImplUtils.resolveFullName(fetchSet)));
+            }
+            path.add(0, ((Join<?, ?>) current).getAttribute().getName());
+            current = ((Join<?, ?>) current).getParent();
+        }
+        return path;
     }
 
-    private <X> int countTupleQueryResults(EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches) {
-        final CriteriaQuery<Integer> criteriaQuery = queryBuilder.createQuery(Integer.class);
-        criteriaQuery.distinct(true);
+    // Orders by each order-by followed by the primary key (so rows are uniquely ordered), and seeks past the cursor if we have one
+    private <X> void applyKeyset(QueryWrapper query, Root<X> queryRoot, RootFetchSetImpl<X> fetches, List<Expression<?>> keysetExpressions, List<ParameterExpression<?>> keysetParameters) {
+        final List<SortDirection> directions = new ArrayList<>();
+        for (EntityOrderByImpl<?> orderBy: fetches.orderBy) {
+            keysetExpressions.add(orderBy.build(this, queryBuilder).getExpression());
+            directions.add(orderBy.getDirection());
+        }
+        for (SingularAttribute<? super X, ?> idAttribute: resolveIdAttributes(queryRoot.getModel())) {
+            keysetExpressions.add(queryRoot.get(idAttribute));
+            directions.add(SortDirection.ASC);
+        }
+        // Seeking backwards is seeking forwards in the opposite order (results are then reversed after retrieval)
+        if (fetches.isKeysetBackwards()) {
+            directions.replaceAll(direction -> (direction == SortDirection.ASC ? SortDirection.DESC : SortDirection.ASC));
+        }
+        for (int i = 0; i < keysetExpressions.size(); i++) {
+            query.select(keysetExpressions.get(i));
+            if (isNullable(keysetExpressions.get(i))) {
+                query.orderBy(orderByNulls(keysetExpressions.get(i), directions.get(i)));
+            }
+            query.orderBy(queryBuilder.orderBy(keysetExpressions.get(i), directions.get(i)));
+        }
+
+        final KeysetCursor keysetCursor = fetches.getKeysetCursor();
+        if (keysetCursor == null) {
+            return;
+        }
+        final List<Boolean> nullMask = keysetCursor.getNullMask();
+        if (nullMask.size() != keysetExpressions.size()) {
+            throw new IllegalArgumentException("Cursor doesn't match query ordering");
+        }
+
+        final List<ParameterExpression<?>> cursorValues = new ArrayList<>();
+        for (int i = 0; i < keysetExpressions.size(); i++) {
+            final ParameterExpression<?> cursorValue = (nullMask.get(i) ? null : queryBuilder.parameter(QueryPlan.resolveKeysetType(keysetExpressions.get(i))));
+            cursorValues.add(cursorValue);
+            if (cursorValue != null) {
+                keysetParameters.add(cursorValue);
+            }
+        }
+
+        // (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... (with > being < for descending ordering)
+        final List<Predicate> seekPredicates = new ArrayList<>();
+        for (int i = 0; i < keysetExpressions.size(); i++) {
+            final Predicate seekPast = seekPast(keysetExpressions.get(i), directions.get(i), cursorValues.get(i));
+            if (seekPast == null) {
+                continue;
+            }
+            final List<Predicate> conjunction = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                conjunction.add(cursorValues.get(j) != null ? queryBuilder.equal(keysetExpressions.get(j), cursorValues.get(j)) : queryBuilder.isNull(keysetExpressions.get(j)));
+            }
+            conjunction.add(seekPast);
+            seekPredicates.add(queryBuilder.and(conjunction));
+        }
+        query.where(seekPredicates.isEmpty() ? queryBuilder.alwaysFalse() : queryBuilder.or(seekPredicates));
+    }
+
+    // Each parent's elements are paged by counting the elements preceding them, as criteria queries can't express ROW_NUMBER() OVER (PARTITION BY ...)
+    // Elements are ordered by each order-by followed by the primary key (so siblings are uniquely ordered), with nulls first as for keyset pagination
+    private <X> void applyCollectionPage(QueryWrapper query, Root<X> queryRoot, RootFetchSetImpl<X> fetches) {
+        final List<Expression<?>> orderExpressions = resolveCollectionOrder(queryRoot, fetches);
+        final List<SortDirection> directions = new ArrayList<>();
+        fetches.orderBy.forEach(orderBy -> directions.add(orderBy.getDirection()));
+        while (directions.size() < orderExpressions.size()) {
+            directions.add(SortDirection.ASC);
+        }
+        for (int i = 0; i < orderExpressions.size(); i++) {
+            if (isNullable(orderExpressions.get(i))) {
+                query.orderBy(orderByNulls(orderExpressions.get(i), directions.get(i)));
+            }
+            query.orderBy(queryBuilder.orderBy(orderExpressions.get(i), directions.get(i)));
+        }
+
+        // Siblings are built from the same fetch set (so are filtered exactly as we are), but from their own root
+        final Subquery<Long> siblings = query.getQuery().subquery(Long.class);
+        final Root<X> siblingRoot = siblings.from(queryRoot.getModel().getJavaType());
+        final QueryWrapper siblingQuery = new QueryWrapper(query.getQuery(), queryBuilder);
+        processEntityContext(siblingQuery, fetches, new EntityContextImpl<>(this, siblingQuery, queryBuilder, LazyValue.fixed(siblingRoot)), false);
+        final List<Expression<?>> siblingExpressions = resolveCollectionOrder(siblingRoot, fetches);
+
+        // (s1 before e1) OR (s1 = e1 AND s2 before e2) OR ...
+        final List<Predicate> precedes = new ArrayList<>();
+        for (int i = 0; i < orderExpressions.size(); i++) {
+            final List<Predicate> conjunction = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                conjunction.add(sameOrder(siblingExpressions.get(j), orderExpressions.get(j)));
+            }
+            conjunction.add(orderedBefore(siblingExpressions.get(i), orderExpressions.get(i), directions.get(i)));
+            precedes.add(queryBuilder.and(conjunction));
+        }
+        siblings.select(hasToManyJoins(siblingRoot) ? queryBuilder.countDistinct(siblingRoot) : queryBuilder.count(siblingRoot));
+        siblings.where(seq(siblingQuery.getPredicates()).append(queryBuilder.equal(resolveCollectionKey(siblingRoot, fetches.getCollectionJoin()), resolveCollectionKey(queryRoot, fetches.getCollectionJoin())), queryBuilder.or(precedes)).toArray(Predicate[]::new));
+
+        if (fetches.getFirstResult() > 0) {
+            query.where(queryBuilder.greaterThanOrEqualTo(siblings, queryBuilder.bind((long) fetches.getFirstResult())));
+        }
+        if (fetches.getMaxResults() != Integer.MAX_VALUE) {
+            query.where(queryBuilder.lessThan(siblings, queryBuilder.bind((long) fetches.getFirstResult() + fetches.getMaxResults())));
+        }
+    }
+
+    // Resolved against whichever entity context was last built for each fetch set
+    private <X> List<Expression<?>> resolveCollectionOrder(Root<X> root, RootFetchSetImpl<X> fetches) {
+        final List<Expression<?>> expressions = new ArrayList<>();
+        for (EntityOrderByImpl<?> orderBy: fetches.orderBy) {
+            expressions.add(orderBy.build(this, queryBuilder).getExpression());
+        }
+        for (SingularAttribute<? super X, ?> idAttribute: resolveIdAttributes(root.getModel())) {
+            expressions.add(root.get(idAttribute));
+        }
+        return expressions;
+    }
+
+    private Predicate sameOrder(Expression<?> sibling, Expression<?> element) {
+        if (!isNullable(element)) {
+            return queryBuilder.equal(sibling, element);
+        }
+        return queryBuilder.or(queryBuilder.and(queryBuilder.isNull(sibling), queryBuilder.isNull(element)), queryBuilder.equal(sibling, element));
+    }
+
+    // Nulls sort before all other values (as ordered by orderByNulls)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate orderedBefore(Expression<?> sibling, Expression<?> element, SortDirection direction) {
+        final Predicate before = (direction == SortDirection.ASC ? queryBuilder.lessThan((Expression<Comparable>) sibling, (Expression<Comparable>) element) : queryBuilder.greaterThan((Expression<Comparable>) sibling, (Expression<Comparable>) element));
+        if (!isNullable(element)) {
+            return before;
+        }
+        final Predicate nullBefore = (direction == SortDirection.ASC ? queryBuilder.and(queryBuilder.isNull(sibling), queryBuilder.isNotNull(element)) : queryBuilder.and(queryBuilder.isNotNull(sibling), queryBuilder.isNull(element)));
+        return queryBuilder.or(nullBefore, before);
+    }
+
+    // Databases disagree on where nulls sort (and JPA can't say), so we order by whether the value is null ourselves: before all other values
+    private Order orderByNulls(Expression<?> expression, SortDirection direction) {
+        return queryBuilder.orderBy(queryBuilder.<Integer> selectCase().when(queryBuilder.isNull(expression), 0).otherwise(1), direction);
+    }
+
+    // Only paths of non-optional attributes (not reached through an outer join) are known to never be null
+    private static boolean isNullable(Expression<?> expression) {
+        if (expression.getJavaType() != null && expression.getJavaType().isPrimitive()) {
+            return false;
+        }
+        if (!(expression instanceof Path<?>) || !(((Path<?>) expression).getModel() instanceof SingularAttribute<?, ?>) || ((SingularAttribute<?, ?>) ((Path<?>) expression).getModel()).isOptional()) {
+            return true;
+        }
+        for (Path<?> parent = ((Path<?>) expression).getParentPath(); parent != null; parent = parent.getParentPath()) {
+            if (parent instanceof Join<?, ?> && ((Join<?, ?>) parent).getJoinType() != JoinType.INNER) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Nulls sort before all other values (as ordered by orderByNulls), returns null if no values can follow
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate seekPast(Expression<?> expression, SortDirection direction, ParameterExpression<?> cursorValue) {
+        if (direction == SortDirection.ASC) {
+            return (cursorValue != null ? queryBuilder.greaterThan((Expression<Comparable>) expression, (Expression<Comparable>) cursorValue) : queryBuilder.isNotNull(expression));
+        }
+        if (cursorValue == null) {
+            return null;
+        }
+        return queryBuilder.or(queryBuilder.lessThan((Expression<Comparable>) expression, (Expression<Comparable>) cursorValue), queryBuilder.isNull(expression));
+    }
+
+    private static <X> List<SingularAttribute<? super X, ?>> resolveIdAttributes(ManagedType<X> entityType) {
+        final List<SingularAttribute<? super X, ?>> idAttributes = seq(entityType.getSingularAttributes()).filter(SingularAttribute::isId).sorted(Attribute::getName).toList();
+        if (idAttributes.isEmpty() || seq(idAttributes).anyMatch(idAttribute -> idAttribute.getType().getPersistenceType() != PersistenceType.BASIC)) {
+            throw new UnsupportedOperationException(format("Basic primary key required: %s", entityType.getJavaType().getName()));
+        }
+        return idAttributes;
+    }
+
+    // Parents are identified by their primary key, which elements reference through their inverse attribute
+    private static <X> SingularAttribute<? super X, ?> resolveCollectionKeyAttribute(EntityCollectionJoin<X, ?> collectionJoin) {
+        final Type<X> parentType = collectionJoin.getInverseAttribute().getType();
+        if (!(parentType instanceof ManagedType)) {
+            throw new UnsupportedOperationException(format("Collection join must reference its parent entity: %s", collectionJoin.getName()));
+        }
+        final List<SingularAttribute<? super X, ?>> idAttributes = resolveIdAttributes((ManagedType<X>) parentType);
+        if (idAttributes.size() != 1) {
+            throw new UnsupportedOperationException(format("Collection join requires a single primary key: %s", collectionJoin.getName()));
+        }
+        return idAttributes.get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <X> SingularAttribute<? super X, ?> resolveEntityKeyAttribute(FetchSet<X> fetchSet, From<?, X> entity) {
+        final Type<?> entityType;
+        if (entity instanceof Root<?>) {
+            entityType = ((Root<X>) entity).getModel();
+        }
+        else if (entity instanceof Join<?, ?> && ((Join<?, X>) entity).getAttribute() instanceof SingularAttribute<?, ?>) {
+            entityType = ((SingularAttribute<?, ?>) ((Join<?, X>) entity).getAttribute()).getType();
+        }
+        else {
+            entityType = null;
+        }
+        if (!(entityType instanceof ManagedType)) {
+            throw new UnsupportedOperationException(format("Entity key required: %s", QueryImplUtils.resolveFullName(fetchSet)));
+        }
+        final List<SingularAttribute<? super X, ?>> idAttributes = resolveIdAttributes((ManagedType<X>) entityType);
+        if (idAttributes.size() != 1) {
+            throw new UnsupportedOperationException(format("Single primary key required: %s", QueryImplUtils.resolveFullName(fetchSet)));
+        }
+        return idAttributes.get(0);
+    }
+
+    private static <X, Y> Path<?> resolveCollectionKey(From<?, Y> element, EntityCollectionJoin<X, Y> collectionJoin) {
+        return element.get(collectionJoin.getInverseAttribute()).get(resolveCollectionKeyAttribute(collectionJoin));
+    }
+
+    private <X, T> PreparedQuery<T> buildCountQuery(EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches, Class<T> resultType, BiConsumer<CriteriaQuery<T>, Root<X>> countSelection) {
+        final CriteriaQuery<T> criteriaQuery = queryBuilder.createQuery(resultType);
 
         final QueryWrapper queryWrapper = new QueryWrapper(criteriaQuery, queryBuilder);
 
@@ -102,35 +534,178 @@ final class ExecutionContext {
         final EntityContext<X> rootEntityContext = buildEntityContext(queryWrapper, fetches, queryRoot, false);
         applyFilter(queryWrapper, rootEntityContext, entityRoot.getFilter());
 
-        // Clear all selections, replace with a simple count
-        criteriaQuery.select(queryBuilder.toInteger(queryBuilder.count(queryRoot)));
+        // Clear all selections, replace with our count
+        queryWrapper.apply();
+        countSelection.accept(criteriaQuery, queryRoot);
+
+        final List<Tuple2<ParameterExpression<?>, Object>> parameterBindings = queryBuilder.drainParameterBindings();
+        countParameterValues = seq(parameterBindings).map(Tuple2::v2).toList();
 
-        final TypedQuery<Integer> typedQuery = entityManager.createQuery(criteriaQuery);
+        return new PreparedQuery<>(criteriaQuery, seq(parameterBindings).map(Tuple2::v1).toList());
+    }
+
+    private <X> void selectCount(CriteriaQuery<Long> criteriaQuery, Root<X> queryRoot) {
+        criteriaQuery.select(isDistinctRequired(criteriaQuery) ? queryBuilder.countDistinct(queryRoot) : queryBuilder.count(queryRoot));
+    }
 
-        return typedQuery.getSingleResult();
+    // Capped counts simply retrieve a constant per row, up to the cap (JPA doesn't support limits on subqueries)
+    // When joins can duplicate rows, we retrieve distinct primary keys instead
+    private <X> void selectCappedCount(CriteriaQuery<Object> criteriaQuery, Root<X> queryRoot) {
+        if (!isDistinctRequired(criteriaQuery)) {
+            criteriaQuery.select(queryBuilder.zero());
+            return;
+        }
+        final List<SingularAttribute<? super X, ?>> idAttributes = seq(queryRoot.getModel().getSingularAttributes()).filter(SingularAttribute::isId).toList();
+        criteriaQuery.distinct(true);
+        criteriaQuery.select(idAttributes.size() == 1 ? queryRoot.get(idAttributes.get(0)) : queryRoot);
+    }
+
+    // Rows are only duplicated by to-many joins (or by selecting from several roots), otherwise there is no need to sort or hash them
+    private boolean isDistinctRequired(CriteriaQuery<?> criteriaQuery) {
+        if (criteriaQuery.getRoots().size() != 1) {
+            return true;
+        }
+        return seq(criteriaQuery.getRoots()).anyMatch(this::hasToManyJoins);
+    }
+
+    private boolean hasToManyJoins(From<?, ?> parent) {
+        for (Join<?, ?> join: parent.getJoins()) {
+            final JoinCardinality cardinality = joinCardinalities.getOrDefault(join, (join.getAttribute() != null && !join.getAttribute().isCollection() ? JoinCardinality.TO_ONE : JoinCardinality.TO_MANY));
+            if (cardinality == JoinCardinality.TO_MANY || hasToManyJoins(join)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A join can be an inner join if its entity must exist anyway (either because it can't be null, or because a filter requires it)
+    // This only holds if its parent must also exist, so we don't look any further than the first outer join
+    // Q is a virtual type parameter used for type-safety whilst looping over joins
+    private <X, Q> void planInnerJoins(FetchSet<X> fetchSet, Collection<EntityFilter<X>> filters) {
+        for (Map.Entry<EntityJoin<X, ?>, FetchSet<?>> joinEntry: fetchSet.getJoins().entrySet()) {
+            final @SuppressWarnings("unchecked") EntityJoin<X, Q> entityJoin = (EntityJoin<X, Q>) joinEntry.getKey();
+            final @SuppressWarnings("unchecked") FetchSet<Q> joinedFetchSet = (FetchSet<Q>) joinEntry.getValue();
+            if (!entityJoin.getResultType().isNullAllowed() || seq(filters).anyMatch(filter -> filter.isJoinRequired(entityJoin)) || seq(joinedFetchSet.getFilters()).anyMatch(EntityFilter::isExistsRequired)) {
+                innerJoins.add(joinedFetchSet);
+                planInnerJoins(joinedFetchSet, joinedFetchSet.getFilters());
+            }
+        }
+    }
+
+    <X> boolean isInnerJoin(EntityContext<X> parent, EntityJoin<X, ?> join) {
+        requireNonNull(parent, "parent");
+        requireNonNull(join, "join");
+        final FetchSet<?> fetchSet = entityContextFetchSets.get(parent);
+        return (fetchSet != null && innerJoins.contains(fetchSet.getJoins().get(join)));
+    }
+
+    // Whether a join is only used for filtering (as opposed to being part of the fetch set we are processing)
+    // Joins of contexts we aren't processing (such as those within subqueries) are never considered as filter only
+    <X> boolean isFilterOnlyJoin(EntityContext<X> parent, EntityJoin<X, ?> join) {
+        requireNonNull(parent, "parent");
+        requireNonNull(join, "join");
+        final FetchSet<?> fetchSet = entityContextFetchSets.get(parent);
+        if (fetchSet == null) {
+            return false;
+        }
+        final FetchSet<?> joinedFetchSet = fetchSet.getJoins().get(join);
+        return (joinedFetchSet == null || QueryImplUtils.isEmptyFetchSet(joinedFetchSet));
+    }
+
+    Predicate applyNegated(Supplier<Predicate> predicateSupplier) {
+        requireNonNull(predicateSupplier, "predicateSupplier");
+        negatedFilterDepth++;
+        try {
+            return queryBuilder.not(predicateSupplier.get());
+        }
+        finally {
+            negatedFilterDepth--;
+        }
+    }
+
+    // Subqueries (exists) are only equivalent to joins when not negated, as NOT EXISTS also matches a missing joined entity (and to-many joins where only some children match)
+    boolean isNegatedFilter() {
+        return negatedFilterDepth > 0;
+    }
+
+    <T extends Join<?, ?>> T declareJoinCardinality(T join, JoinCardinality cardinality) {
+        requireNonNull(join, "join");
+        requireNonNull(cardinality, "cardinality");
+        joinCardinalities.put(join, cardinality);
+        return join;
+    }
+
+    // Parameters actually bound whilst building the plan, used for executing the plan we have just built
+    QueryPlanParameters getQueryPlanParameters() {
+        return new QueryPlanParameters(fetchSetIndexes, countParameterValues, tupleParameterValues);
+    }
+
+    // A plan can only be reused if it was bound exclusively with values we would have extracted from the fetch set ourselves
+    boolean isReusable(QueryPlanParameters expectedParameters) {
+        requireNonNull(expectedParameters, "expectedParameters");
+        if (queryParametersAccessed) {
+            return false;
+        }
+        if (!countParameterValues.equals(expectedParameters.getCountValues())) {
+            return false;
+        }
+        return tupleParameterValues.equals(expectedParameters.getTupleValues()) && fetchSetIndexes.equals(expectedParameters.getFetchSets());
     }
 
     private <X> EntityContext<X> buildEntityContext(QueryWrapper query, RootFetchSetImpl<X> rootFetchSet, Root<X> entity, boolean fetchSelections) {
-        return processEntityContext(query, rootFetchSet, new EntityContextImpl<>(rootFetchSet, query, queryBuilder, LazyValue.fixed(entity)), fetchSelections);
+        return processEntityContext(query, rootFetchSet, new EntityContextImpl<>(this, query, queryBuilder, LazyValue.fixed(entity)), fetchSelections);
     }
 
     // Q1 and Q2 are virtual type parameters used for type-safety whilst looping over fields
     private <X, Q1, Q2> EntityContext<X> processEntityContext(QueryWrapper query, FetchSet<X> fetchSet, AbstractEntityContextImpl<X> entityContext, boolean fetchSelections) {
+        // Entity context is needed for ordering, even when we aren't selecting anything ourselves
+        fetchSets.put(fetchSet, entityContext);
+        entityContextFetchSets.put(entityContext, fetchSet);
+
+        // Make our joins before anything else in this context can use them, so they can still be promoted to inner joins
+        // Also means filters applied to our joins (before we process them) know which fetch set they belong to
+        for (Map.Entry<EntityJoin<X, ?>, FetchSet<?>> joinEntry: fetchSet.getJoins().entrySet()) {
+            if (!QueryImplUtils.isEmptyFetchSet(joinEntry.getValue())) {
+                entityContextFetchSets.put(entityContext.join(joinEntry.getKey()), joinEntry.getValue());
+            }
+        }
+
         // Only add selections if we are in fetch mode (not count query for example)
         if (fetchSelections) {
-            fetchSets.put(fetchSet, entityContext);
+            fetchSetIndexes.add(fetchSet);
 
             // https://github.com/alanapz/grapple/issues/1
             // If we have at least one selection, then force the selection of primary key IS NOT NULL
             // This is so we can detect null fields versus null joins
             if (fetchSet.getJoinedBy() != null) {
-                fieldCallbacks.add(new EntityExistsResultCallback<>(fetchSet, entityContext));
+                final Predicate entityExists = entityContext.addSelection(entityContext.exists());
+                existsMappings.add(new RowMapper.ExistsMapping(entityExists, fetchSetIndexes.indexOf(fetchSet), fetchSetIndexes.indexOf(fetchSet.getFetchParent()), fetchSet));
             }
 
             for (EntityField<X, ?> rawField: fetchSet.getSelections()) {
-                final @SuppressWarnings("unchecked") EntityField<X, Q1> field = (EntityField<X, Q1>) rawField;
+                if (rawField instanceof BatchedNonQueryField<?, ?>) {
+                    final @SuppressWarnings("unchecked") BatchedNonQueryField<X, Q1> field = (BatchedNonQueryField<X, Q1>) rawField;
+                    final Function<List<Tuple>, Map<Tuple, Q1>> batchHandler = field.getResolver().get(entityContext, queryBuilder);
+                    pageCallbacks.add(new BatchedSelectionResultCallback<>(fetchSetIndexes.indexOf(fetchSet), rowLayout.addFieldSlot(fetchSetIndexes.indexOf(fetchSet), field), field, batchHandler));
+                    continue;
+                }
+                if (!(rawField instanceof TupleField<?, ?>)) {
+                    throw new UnexpectedException(format("Unsupported field: %s", QueryImplUtils.resolveFullName(fetchSet, rawField.getName())));
+                }
+                final @SuppressWarnings("unchecked") TupleField<X, Q1> field = (TupleField<X, Q1>) rawField;
                 final Function<Tuple, Q1> resultHandler = field.prepare(entityContext, queryBuilder);
-                fieldCallbacks.add(new ExecutionContext.SelectionResultCallback<>(fetchSet, field, resultHandler));
+                fieldMappings.add(new RowMapper.FieldMapping(fetchSetIndexes.indexOf(fetchSet), rowLayout.addFieldSlot(fetchSetIndexes.indexOf(fetchSet), field), field, resultHandler));
+            }
+
+            // Collection joins are fetched afterwards, and matched to our rows by our primary key
+            // Shared responses are also identified by our primary key
+            final List<EntityCollectionJoin<X, ?>> collectionJoins = seq(fetchSet.getCollectionJoins().entrySet()).filter(joinEntry -> !QueryImplUtils.isEmptyFetchSet(joinEntry.getValue())).map(Map.Entry::getKey).toList();
+            final boolean sharedResponse = (fetchSet.getJoinedBy() != null && Boolean.TRUE.equals(fetchSet.getJoinedBy().getMetadata(EntityMetadataKeys.SharedResponse)));
+            if (!collectionJoins.isEmpty() || sharedResponse) {
+                final SingularAttribute<? super X, ?> entityKeyAttribute = (!collectionJoins.isEmpty() ? resolveCollectionKeyAttribute(collectionJoins.get(0)) : resolveEntityKeyAttribute(fetchSet, entityContext.getEntity()));
+                final Path<?> entityKey = entityContext.addSelection(entityContext.getEntity().get(entityKeyAttribute));
+                entityKeyMappings.add(new RowMapper.EntityKeyMapping(entityKey, rowLayout.addEntityKeySlot(fetchSetIndexes.indexOf(fetchSet))));
+                collectionJoins.forEach(collectionJoin -> rowLayout.addCollectionSlot(fetchSetIndexes.indexOf(fetchSet), collectionJoin));
             }
         }
 
@@ -160,59 +735,52 @@ final class ExecutionContext {
         query.where(filter.apply(entityContext, queryBuilder));
     }
 
-    private interface QueryRowCallback {
+    interface QueryPageCallback {
 
-        void execute(Tuple row, TabularResultRowImpl resultItem);
+        void execute(List<Tuple> rows, List<FetchSet<?>> fetchSets, List<TabularResultRowImpl> resultItems);
     }
 
-    private final class EntityExistsResultCallback<X> implements QueryRowCallback {
+    private static final class BatchedSelectionResultCallback<X, T> implements QueryPageCallback {
 
-        private final FetchSet<X> fetchSet;
+        private final int fetchSetIndex;
 
-        private final EntityJoin<?, X> joinedBy;
+        private final int slot;
 
-        private final Predicate entityExistsPath;
+        private final BatchedNonQueryField<X, T> field;
 
-        private EntityExistsResultCallback(FetchSet<X> fetchSet, AbstractEntityContextImpl<X> entityCtx) {
-            this.fetchSet = requireNonNull(fetchSet, "fetchSet");
-            this.joinedBy = requireNonNull(fetchSet.getJoinedBy(), "joinedBy");
-            this.entityExistsPath = entityCtx.addSelection(queryBuilder.isNotNull(entityCtx.getEntity()));
+        private final Function<List<Tuple>, Map<Tuple, T>> batchHandler;
+
+        private BatchedSelectionResultCallback(int fetchSetIndex, int slot, BatchedNonQueryField<X, T> field, Function<List<Tuple>, Map<Tuple, T>> batchHandler) {
+            this.fetchSetIndex = fetchSetIndex;
+            this.slot = slot;
+            this.field = requireNonNull(field, "field");
+            this.batchHandler = requireNonNull(batchHandler, "batchHandler");
         }
 
         @Override
-        public void execute(Tuple row, TabularResultRowImpl resultItem) {
-            final boolean entityExists =  requireNonNull(row.get(entityExistsPath), "entityExistsPath");
-            if (!entityExists && !joinedBy.getResultType().isNullAllowed() && resultItem.isExists(fetchSet.getFetchParent())) {
-                throw new NullNotAllowedException(format("Null result for non-null join: %s", QueryImplUtils.resolveFullName(fetchSet)));
+        public void execute(List<Tuple> rows, List<FetchSet<?>> fetchSets, List<TabularResultRowImpl> resultItems) {
+            final FetchSet<?> fetchSet = fetchSets.get(fetchSetIndex);
+            // Rows where our entity doesn't exist (outer joins) aren't passed to the resolver
+            final List<Tuple> existingRows = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                if (isExists(fetchSet, resultItems.get(i))) {
+                    existingRows.add(rows.get(i));
+                }
             }
-            if (entityExists) {
-                resultItem.setEntityExists(fetchSet);
+            final Map<Tuple, T> results = (existingRows.isEmpty() ? emptyMap() : requireNonNull(batchHandler.apply(unmodifiableList(existingRows)), "results"));
+            for (int i = 0; i < rows.size(); i++) {
+                final TabularResultRowImpl resultItem = resultItems.get(i);
+                final boolean exists = isExists(fetchSet, resultItem);
+                final T result = (exists ? results.get(rows.get(i)) : null);
+                if (result == null && !field.getResultType().isNullAllowed() && exists) {
+                    throw new NullNotAllowedException(format("Null result for non-null field: %s", QueryImplUtils.resolveFullName(fetchSet, field.getName())));
+                }
+                resultItem.setValue(slot, result);
             }
         }
-    }
-
-    private static final class SelectionResultCallback<X, T> implements QueryRowCallback {
-
-        private final FetchSet<X> fetchSet;
-
-        private final EntityField<X, T> field;
-
-        private final Function<Tuple, T> resultHandler;
-
-        private SelectionResultCallback(FetchSet<X> fetchSet, EntityField<X, T> field, Function<Tuple, T> resultHandler) {
-            this.fetchSet = requireNonNull(fetchSet, "fetchSet");
-            this.field = requireNonNull(field, "field");
-            this.resultHandler = requireNonNull(resultHandler, "resultHandler");
-        }
 
-        @Override
-        public void execute(Tuple row, TabularResultRowImpl resultItem) {
-            final T result = resultHandler.apply(row);
-            // Null-checking: Throw error if result is null, yet field type doesn't allow nulls, and we are not null because our parent wasn't fetched
-            if (result == null && !field.getResultType().isNullAllowed() && resultItem.isExists(fetchSet)) {
-                throw new NullNotAllowedException(format("Null result for non-null field: %s", QueryImplUtils.resolveFullName(fetchSet, field.getName())));
-            }
-            resultItem.setValue(fetchSet, field, result);
+        private boolean isExists(FetchSet<?> fetchSet, TabularResultRowImpl resultItem) {
+            return (fetchSet.getJoinedBy() == null || resultItem.isExists(fetchSetIndex));
         }
     }
 }
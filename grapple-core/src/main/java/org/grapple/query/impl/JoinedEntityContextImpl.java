@@ -9,8 +9,8 @@ final class JoinedEntityContextImpl<X> extends AbstractEntityContextImpl<X> impl
 
     private final Supplier<? extends Join<?, X>> entity;
 
-    JoinedEntityContextImpl(RootFetchSetImpl<?> rootFetchSet, QueryWrapper queryWrapper, QueryBuilder queryBuilder, Supplier<? extends Join<?, X>> entity) {
-        super(rootFetchSet, queryWrapper, queryBuilder, entity);
+    JoinedEntityContextImpl(ExecutionContext executionContext, QueryWrapper queryWrapper, QueryBuilder queryBuilder, Supplier<? extends Join<?, X>> entity) {
+        super(executionContext, queryWrapper, queryBuilder, entity);
         this.entity = entity;
     }
 
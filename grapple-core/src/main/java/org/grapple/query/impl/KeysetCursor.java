@@ -0,0 +1,201 @@
+package org.grapple.query.impl;
+
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static org.grapple.reflect.ReflectUtils.wrapPrimitiveTypeIfNecessary;
+import static org.jooq.lambda.Seq.seq;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import org.grapple.utils.UnexpectedException;
+
+// Opaque cursor holding the value of each keyset expression for a given row
+// Values are kept as strings and only converted back once we know the types expected by the query (never deserialised blindly)
+final class KeysetCursor {
+
+    private final List<String> values;
+
+    private KeysetCursor(List<String> values) {
+        this.values = unmodifiableList(new ArrayList<>(requireNonNull(values, "values")));
+    }
+
+    // Null values need different predicates, so are part of the shape of a query
+    List<Boolean> getNullMask() {
+        return seq(values).map(Objects::isNull).toList();
+    }
+
+    List<Object> getValues(List<Class<?>> types) {
+        requireNonNull(types, "types");
+        if (types.size() != values.size()) {
+            throw new IllegalArgumentException("Cursor doesn't match query ordering");
+        }
+        final List<Object> results = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            try {
+                results.add(values.get(i) != null ? parseValue(values.get(i), wrapPrimitiveTypeIfNecessary(types.get(i))) : null);
+            }
+            catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+        return results;
+    }
+
+    String encode() {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(values.size());
+            for (String value: values) {
+                output.writeBoolean(value != null);
+                if (value != null) {
+                    output.writeUTF(value);
+                }
+            }
+            output.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        }
+        catch (IOException e) {
+            throw new UnexpectedException(format("Couldn't encode cursor: %s", values));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+
+    static KeysetCursor keysetCursor(List<?> values) {
+        requireNonNull(values, "values");
+        return new KeysetCursor(seq(values).map(value -> (value != null ? formatValue(value) : null)).toList());
+    }
+
+    static KeysetCursor parseCursor(String cursor) {
+        requireNonNull(cursor, "cursor");
+        try {
+            final DataInputStream input = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII))));
+            final int size = input.readInt();
+            if (size < 0 || size > input.available()) {
+                throw new IOException("Unexpected cursor size");
+            }
+            final List<String> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(input.readBoolean() ? input.readUTF() : null);
+            }
+            if (input.available() != 0) {
+                throw new IOException("Unexpected trailing data");
+            }
+            return new KeysetCursor(values);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException(format("Invalid cursor: %s", cursor), e);
+        }
+    }
+
+    private static String formatValue(Object value) {
+        if (value instanceof Enum<?>) {
+            return ((Enum<?>) value).name();
+        }
+        // Timestamps (often returned for java.util.Date attributes) keep their nanos and aren't dependent on time zones
+        if (value instanceof Date && !(value instanceof java.sql.Date || value instanceof Time)) {
+            return ((Date) value).toInstant().toString();
+        }
+        return value.toString();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parseValue(String value, Class<?> type) {
+        if (type == String.class) {
+            return value;
+        }
+        if (type == Integer.class) {
+            return Integer.valueOf(value);
+        }
+        if (type == Long.class) {
+            return Long.valueOf(value);
+        }
+        if (type == Short.class) {
+            return Short.valueOf(value);
+        }
+        if (type == Byte.class) {
+            return Byte.valueOf(value);
+        }
+        if (type == Double.class) {
+            return Double.valueOf(value);
+        }
+        if (type == Float.class) {
+            return Float.valueOf(value);
+        }
+        if (type == Boolean.class) {
+            return Boolean.valueOf(value);
+        }
+        if (type == Character.class && value.length() == 1) {
+            return value.charAt(0);
+        }
+        if (type == BigDecimal.class) {
+            return new BigDecimal(value);
+        }
+        if (type == BigInteger.class) {
+            return new BigInteger(value);
+        }
+        if (type == UUID.class) {
+            return UUID.fromString(value);
+        }
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, value);
+        }
+        if (type == Timestamp.class || type == Date.class) {
+            return Timestamp.from(Instant.parse(value));
+        }
+        if (type == java.sql.Date.class) {
+            return java.sql.Date.valueOf(value);
+        }
+        if (type == Time.class) {
+            return Time.valueOf(value);
+        }
+        if (type == Instant.class) {
+            return Instant.parse(value);
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.parse(value);
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(value);
+        }
+        if (type == LocalTime.class) {
+            return LocalTime.parse(value);
+        }
+        if (type == OffsetDateTime.class) {
+            return OffsetDateTime.parse(value);
+        }
+        if (type == OffsetTime.class) {
+            return OffsetTime.parse(value);
+        }
+        if (type == ZonedDateTime.class) {
+            return ZonedDateTime.parse(value);
+        }
+        throw new IllegalArgumentException(format("Unsupported keyset type: %s", type.getName()));
+    }
+}
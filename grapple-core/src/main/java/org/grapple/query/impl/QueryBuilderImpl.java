@@ -8,6 +8,7 @@ import java.math.BigInteger;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -36,15 +37,26 @@ import javax.persistence.metamodel.SingularAttribute;
 import org.grapple.query.EntityContext;
 import org.grapple.query.QueryBuilder;
 import org.grapple.query.SortDirection;
+import org.grapple.utils.Utils;
+import org.jooq.lambda.tuple.Tuple2;
 
 final class QueryBuilderImpl implements QueryBuilder {
 
     private final CriteriaBuilder criteriaBuilder;
 
+    private final List<Tuple2<ParameterExpression<?>, Object>> parameterBindings = new ArrayList<>();
+
     QueryBuilderImpl(CriteriaBuilder criteriaBuilder) {
         this.criteriaBuilder = requireNonNull(criteriaBuilder, "criteriaBuilder");
     }
 
+    // Returns (and forgets) all parameters bound since the last call, in binding order
+    List<Tuple2<ParameterExpression<?>, Object>> drainParameterBindings() {
+        final List<Tuple2<ParameterExpression<?>, Object>> bindings = new ArrayList<>(parameterBindings);
+        parameterBindings.clear();
+        return bindings;
+    }
+
     @Override
     public <T> T apply(Function<QueryBuilder, T> function) {
         return function.apply(this);
@@ -96,6 +108,11 @@ final class QueryBuilderImpl implements QueryBuilder {
         return criteriaBuilder.notEqual(criteriaBuilder.function("is_bit_set", Integer.class, bitmask, value), zero());
     }
 
+    @Override
+    public Expression<Long> windowCount() {
+        return criteriaBuilder.function("window_count", Long.class);
+    }
+
     @Override
     public CriteriaQuery<Object> createQuery() {
         return criteriaBuilder.createQuery();
@@ -311,6 +328,15 @@ final class QueryBuilderImpl implements QueryBuilder {
         return disjunction();
     }
 
+    @Override
+    public <T> Expression<T> bind(T value) {
+        requireNonNull(value, "value");
+        final Class<?> valueType = (value instanceof Enum<?>) ? ((Enum<?>) value).getDeclaringClass() : value.getClass();
+        final @SuppressWarnings("unchecked") ParameterExpression<T> parameter = (ParameterExpression<T>) criteriaBuilder.parameter(valueType);
+        parameterBindings.add(new Tuple2<>(parameter, value));
+        return parameter;
+    }
+
     @Override
     public Predicate isTrue(Expression<Boolean> x) {
         return criteriaBuilder.isTrue(x);
@@ -689,7 +715,7 @@ final class QueryBuilderImpl implements QueryBuilder {
     // Equivalent to like("%" + value + "%")
     @Override
     public Predicate likeNonAnchored(Expression<String> x, String value) {
-        return criteriaBuilder.like(x, format("%%%s%%", value));
+        return criteriaBuilder.like(x, bind(format("%%%s%%", value)));
     }
 
     @Override
@@ -869,11 +895,16 @@ final class QueryBuilderImpl implements QueryBuilder {
         if (values.isEmpty()) {
             return alwaysFalse();
         }
-        final In<T> predicate = criteriaBuilder.in(expression);
-        for (final T value : values) {
-            predicate.value(value);
+        // Lists are padded to a limited number of sizes, so we generate a limited number of distinct statements
+        final List<Predicate> predicates = new ArrayList<>();
+        for (List<T> chunk: Utils.padToPowerOfTwo(values, MAX_IN_LIST_SIZE)) {
+            final In<T> predicate = criteriaBuilder.in(expression);
+            for (T value: chunk) {
+                predicate.value(bind(value));
+            }
+            predicates.add(predicate);
         }
-        return predicate;
+        return (predicates.size() == 1 ? predicates.get(0) : or(predicates));
     }
 
     @Override
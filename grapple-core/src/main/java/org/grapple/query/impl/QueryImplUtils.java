@@ -49,6 +49,17 @@ final class QueryImplUtils {
         if (fetchSet.getJoins().values().stream().anyMatch(joinedFetchSet -> !isEmptyFetchSet(joinedFetchSet))) {
             return false;
         }
+        if (fetchSet.getCollectionJoins().values().stream().anyMatch(joinedFetchSet -> !isEmptyFetchSet(joinedFetchSet))) {
+            return false;
+        }
         return true;
     }
+
+    // Whether anything is selected, recursively
+    static boolean hasSelections(FetchSet<?> fetchSet) {
+        if (!fetchSet.getSelections().isEmpty()) {
+            return true;
+        }
+        return fetchSet.getJoins().values().stream().anyMatch(QueryImplUtils::hasSelections) || fetchSet.getCollectionJoins().values().stream().anyMatch(QueryImplUtils::hasSelections);
+    }
 }
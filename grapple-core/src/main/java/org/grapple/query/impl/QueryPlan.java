@@ -0,0 +1,523 @@
+package org.grapple.query.impl;
+
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static org.grapple.reflect.ReflectUtils.wrapPrimitiveTypeIfNecessary;
+import static org.jooq.lambda.Seq.seq;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.ParameterExpression;
+import org.grapple.query.EntityCollectionJoin;
+import org.grapple.query.FetchSet;
+import org.grapple.query.QueryResultRow;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.TotalResultsMode;
+import org.grapple.query.impl.ExecutionContext.QueryPageCallback;
+import org.grapple.query.impl.QueryResultListImpl.KeysetPage;
+import org.grapple.query.impl.RowLayout.RowBinding;
+import org.grapple.utils.UnexpectedException;
+
+final class QueryPlan<X> {
+
+    // Fetch size isn't standardised by JPA, other providers simply ignore the hint
+    private static final String FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+
+    private static final String FETCH_GRAPH_HINT = "javax.persistence.fetchgraph";
+
+    // Rows resolved at a time when streaming without a fetch size
+    private static final int DEFAULT_STREAM_CHUNK_SIZE = 100;
+
+    private final PreparedQuery<Long> countQuery;
+
+    private final PreparedQuery<Object> cappedCountQuery;
+
+    private final PreparedQuery<Object> tupleQuery;
+
+    private final TupleLayout tupleLayout;
+
+    private final Expression<Long> windowCount;
+
+    private final List<Expression<?>> keysetExpressions;
+
+    private final List<Class<?>> keysetTypes;
+
+    private final Expression<?> collectionKey;
+
+    private final RowLayout rowLayout;
+
+    private final RowMapper rowMapper;
+
+    private final List<QueryPageCallback> pageCallbacks;
+
+    private final PreparedQuery<X> entityQuery;
+
+    private final List<List<String>> entityGraph;
+
+    QueryPlan(PreparedQuery<Long> countQuery, PreparedQuery<Object> cappedCountQuery, PreparedQuery<Object> tupleQuery, TupleLayout tupleLayout, Expression<Long> windowCount, List<Expression<?>> keysetExpressions, Expression<?> collectionKey, RowLayout rowLayout, RowMapper rowMapper, List<QueryPageCallback> pageCallbacks) {
+        this.countQuery = requireNonNull(countQuery, "countQuery");
+        this.cappedCountQuery = cappedCountQuery; // Null unless total results are capped
+        this.tupleQuery = tupleQuery; // Null if we have nothing to fetch
+        this.tupleLayout = (tupleQuery != null ? requireNonNull(tupleLayout, "tupleLayout") : null);
+        this.windowCount = windowCount; // Null unless total results are selected by the tuple query itself
+        this.keysetExpressions = (keysetExpressions != null ? unmodifiableList(new ArrayList<>(keysetExpressions)) : null); // Null unless using keyset pagination
+        this.keysetTypes = (keysetExpressions != null ? seq(keysetExpressions).<Class<?>> map(QueryPlan::resolveKeysetType).toList() : null);
+        this.collectionKey = collectionKey; // Null unless fetching the elements of a collection join
+        this.rowLayout = requireNonNull(rowLayout, "rowLayout");
+        this.rowMapper = (tupleQuery != null ? requireNonNull(rowMapper, "rowMapper") : null);
+        this.pageCallbacks = unmodifiableList(new ArrayList<>(requireNonNull(pageCallbacks, "pageCallbacks")));
+        this.entityQuery = null;
+        this.entityGraph = null;
+    }
+
+    // Entity graph is a list of attribute paths to fetch, built per execution as graphs belong to an entity manager
+    QueryPlan(PreparedQuery<Long> countQuery, PreparedQuery<Object> cappedCountQuery, PreparedQuery<X> entityQuery, List<List<String>> entityGraph) {
+        this.countQuery = requireNonNull(countQuery, "countQuery");
+        this.cappedCountQuery = cappedCountQuery;
+        this.tupleQuery = null;
+        this.tupleLayout = null;
+        this.windowCount = null;
+        this.keysetExpressions = null;
+        this.keysetTypes = null;
+        this.collectionKey = null;
+        this.rowLayout = null;
+        this.rowMapper = null;
+        this.pageCallbacks = emptyList();
+        this.entityQuery = requireNonNull(entityQuery, "entityQuery");
+        this.entityGraph = unmodifiableList(seq(requireNonNull(entityGraph, "entityGraph")).map(path -> unmodifiableList(new ArrayList<>(path))).toList());
+    }
+
+    // Renders every query once, so that the plan can be safely shared (and executed concurrently) once cached
+    void prepare(EntityManager entityManager) {
+        requireNonNull(entityManager, "entityManager");
+        for (PreparedQuery<?> preparedQuery: asList(countQuery, cappedCountQuery, tupleQuery, entityQuery)) {
+            if (preparedQuery != null) {
+                preparedQuery.prepare(entityManager);
+            }
+        }
+    }
+
+    QueryResultListImpl<X> execute(EntityManager entityManager, RootFetchSetImpl<X> fetches, QueryPlanParameters parameters) {
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(fetches, "fetches");
+        requireNonNull(parameters, "parameters");
+
+        if (tupleQuery == null) {
+            final TotalResults totalResults = executeCountQuery(entityManager, fetches, parameters, 0);
+            return new QueryResultListImpl<>(fetches, totalResults.value, totalResults.exact, emptyList());
+        }
+
+        if (keysetExpressions != null) {
+            return executeKeyset(entityManager, fetches, parameters);
+        }
+
+        if (isConcurrentCount(fetches)) {
+            return executeWithConcurrentCount(entityManager, fetches, parameters);
+        }
+
+        // Fetch results first, as we can often work out total results from them without needing to count
+        final List<Tuple> rows = executeTupleQuery(entityManager, fetches, parameters);
+        final TotalResults totalResults = resolveTotalResults(entityManager, fetches, parameters, rows);
+
+        if (rows.isEmpty()) {
+            return new QueryResultListImpl<>(fetches, totalResults.value, totalResults.exact, emptyList());
+        }
+
+        return new QueryResultListImpl<>(fetches, totalResults.value, totalResults.exact, processRows(entityManager, rows, parameters));
+    }
+
+    // Whether we will probably need to count, and have been allowed to do so alongside fetching
+    private boolean isConcurrentCount(RootFetchSetImpl<X> fetches) {
+        return fetches.getCountEntityManagerFactory() != null && fetches.getTotalResultsMode() != TotalResultsMode.NONE && windowCount == null && fetches.getMaxResults() != Integer.MAX_VALUE;
+    }
+
+    // Counts on its own entity manager whilst we fetch, so we take as long as the slower of the two rather than both
+    private QueryResultListImpl<X> executeWithConcurrentCount(EntityManager entityManager, RootFetchSetImpl<X> fetches, QueryPlanParameters parameters) {
+        final CompletableFuture<TotalResults> count = CompletableFuture.supplyAsync(() -> {
+            final EntityManager countEntityManager = fetches.getCountEntityManagerFactory().createEntityManager();
+            try {
+                return executeCountQuery(countEntityManager, fetches, parameters, 0);
+            }
+            finally {
+                countEntityManager.close();
+            }
+        }, fetches.getCountExecutor());
+
+        final List<Tuple> rows;
+        try {
+            rows = executeTupleQuery(entityManager, fetches, parameters);
+        }
+        catch (RuntimeException e) {
+            count.cancel(false);
+            throw e;
+        }
+
+        // We may still be able to work out total results without waiting for the count
+        final TotalResults totalResults = resolveTotalResults(fetches, rows, rowsRetrieved -> awaitCount(count, rowsRetrieved));
+
+        if (rows.isEmpty()) {
+            return new QueryResultListImpl<>(fetches, totalResults.value, totalResults.exact, emptyList());
+        }
+
+        return new QueryResultListImpl<>(fetches, totalResults.value, totalResults.exact, processRows(entityManager, rows, parameters));
+    }
+
+    private static TotalResults awaitCount(CompletableFuture<TotalResults> count, long rowsRetrieved) {
+        final TotalResults totalResults;
+        try {
+            totalResults = count.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        // Count ran without knowing how many rows we retrieved, which are a lower bound if it stopped early
+        return (totalResults.exact ? totalResults : new TotalResults(Math.max(totalResults.value, rowsRetrieved), false));
+    }
+
+    // Elements are grouped by the parent key selected alongside them, paging of each parent's elements is part of the query itself
+    Map<Object, List<TabularResultRowImpl>> executeCollection(EntityManager entityManager, RootFetchSetImpl<X> fetches, QueryPlanParameters parameters) {
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(fetches, "fetches");
+        requireNonNull(parameters, "parameters");
+
+        if (tupleQuery == null || collectionKey == null) {
+            throw new UnexpectedException("Not a collection query plan");
+        }
+
+        final List<Tuple> rows = seq(tupleQuery.createQuery(entityManager, parameters.getTupleValues()).getResultList()).map(tupleLayout::wrap).toList();
+
+        final List<TabularResultRowImpl> resultRows = processRows(entityManager, rows, parameters);
+        final Map<Object, List<TabularResultRowImpl>> results = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            final Object parentKey = requireNonNull(rows.get(i).get(collectionKey), "collectionKey");
+            results.computeIfAbsent(parentKey, unused -> new ArrayList<>()).add(resultRows.get(i));
+        }
+        return results;
+    }
+
+    Stream<QueryResultRow<X>> stream(EntityManager entityManager, RootFetchSetImpl<X> fetches, QueryPlanParameters parameters) {
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(fetches, "fetches");
+        requireNonNull(parameters, "parameters");
+
+        if (tupleQuery == null) {
+            return Stream.empty();
+        }
+
+        final List<Object> values = new ArrayList<>(parameters.getTupleValues());
+        if (keysetExpressions != null) {
+            // Seeking backwards would require buffering every row so we can reverse them
+            if (fetches.isKeysetBackwards()) {
+                throw new UnsupportedOperationException("Streaming doesn't support before cursors");
+            }
+            final KeysetCursor keysetCursor = fetches.getKeysetCursor();
+            if (keysetCursor != null) {
+                values.addAll(seq(keysetCursor.getValues(keysetTypes)).filter(Objects::nonNull).toList());
+            }
+        }
+
+        final TypedQuery<Object> typedQuery = tupleQuery.createQuery(entityManager, values);
+        if (keysetExpressions == null) {
+            typedQuery.setFirstResult(fetches.getFirstResult());
+        }
+        typedQuery.setMaxResults(fetches.getMaxResults());
+        if (fetches.getFetchSize() > 0) {
+            typedQuery.setHint(FETCH_SIZE_HINT, fetches.getFetchSize());
+        }
+
+        // Streamed rows are resolved a chunk at a time, so batched fields and collection joins are fetched once per chunk rather than once per row
+        final int chunkSize = (fetches.getFetchSize() > 0 ? fetches.getFetchSize() : DEFAULT_STREAM_CHUNK_SIZE);
+        final Stream<Object> resultStream = typedQuery.getResultStream();
+        final Iterator<Object> resultIterator = resultStream.iterator();
+        final Iterator<List<TabularResultRowImpl>> chunks = new Iterator<List<TabularResultRowImpl>>() {
+
+            @Override
+            public boolean hasNext() {
+                return resultIterator.hasNext();
+            }
+
+            @Override
+            public List<TabularResultRowImpl> next() {
+                final List<Tuple> rows = new ArrayList<>(chunkSize);
+                while (rows.size() < chunkSize && resultIterator.hasNext()) {
+                    rows.add(tupleLayout.wrap(resultIterator.next()));
+                }
+                if (rows.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                return processRows(entityManager, rows, parameters);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false)
+                .onClose(resultStream::close)
+                .flatMap(List::stream)
+                .map(resultRow -> new QueryResultRowImpl<>(fetches, resultRow));
+    }
+
+    EntityResultListImpl<X> executeEntityQuery(EntityManager entityManager, RootFetchSetImpl<X> fetches, QueryPlanParameters parameters) {
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(fetches, "fetches");
+        requireNonNull(parameters, "parameters");
+
+        if (entityQuery == null) {
+            throw new UnexpectedException("Not an entity query plan");
+        }
+
+        final TypedQuery<X> typedQuery = entityQuery.createQuery(entityManager, parameters.getTupleValues());
+        typedQuery.setFirstResult(fetches.getFirstResult());
+        typedQuery.setMaxResults(fetches.getMaxResults());
+        typedQuery.setHint(FETCH_GRAPH_HINT, buildEntityGraph(entityManager, fetches.getEntityClass()));
+
+        final List<X> results = typedQuery.getResultList();
+        final TotalResults totalResults = resolveTotalResults(entityManager, fetches, parameters, results);
+        return new EntityResultListImpl<>(totalResults.value, totalResults.exact, results);
+    }
+
+    private EntityGraph<X> buildEntityGraph(EntityManager entityManager, Class<X> entityClass) {
+        final EntityGraph<X> rootGraph = entityManager.createEntityGraph(entityClass);
+        // Paths are ordered parent first, so a subgraph always exists for the parent of each path
+        final Map<List<String>, Subgraph<?>> subgraphs = new HashMap<>();
+        for (List<String> path: entityGraph) {
+            if (subgraphs.containsKey(path)) {
+                continue; // Different joins over the same attributes
+            }
+            final String attributeName = path.get(path.size() - 1);
+            final Subgraph<?> subgraph = (path.size() == 1 ? rootGraph.addSubgraph(attributeName) : subgraphs.get(path.subList(0, path.size() - 1)).addSubgraph(attributeName));
+            subgraphs.put(path, subgraph);
+        }
+        return rootGraph;
+    }
+
+    private QueryResultListImpl<X> executeKeyset(EntityManager entityManager, RootFetchSetImpl<X> fetches, QueryPlanParameters parameters) {
+        final KeysetCursor keysetCursor = fetches.getKeysetCursor();
+
+        final List<Object> values = new ArrayList<>(parameters.getTupleValues());
+        if (keysetCursor != null) {
+            values.addAll(seq(keysetCursor.getValues(keysetTypes)).filter(Objects::nonNull).toList());
+        }
+
+        // Retrieve an extra row to see whether there's another page, rather than counting
+        final TypedQuery<Object> typedQuery = tupleQuery.createQuery(entityManager, values);
+        typedQuery.setMaxResults(fetches.getMaxResults() < Integer.MAX_VALUE ? fetches.getMaxResults() + 1 : Integer.MAX_VALUE);
+
+        final List<Tuple> rows = seq(typedQuery.getResultList()).map(tupleLayout::wrap).toList();
+        final boolean hasMoreRows = (rows.size() > fetches.getMaxResults());
+        if (hasMoreRows) {
+            rows.subList(fetches.getMaxResults(), rows.size()).clear();
+        }
+        if (fetches.isKeysetBackwards()) {
+            Collections.reverse(rows);
+        }
+
+        final KeysetPage keysetPage = new KeysetPage(
+                (rows.isEmpty() ? null : keysetCursor(rows.get(0))),
+                (rows.isEmpty() ? null : keysetCursor(rows.get(rows.size() - 1))),
+                (fetches.isKeysetBackwards() ? keysetCursor != null : hasMoreRows),
+                (fetches.isKeysetBackwards() ? hasMoreRows : keysetCursor != null));
+
+        final TotalResults totalResults = executeCountQuery(entityManager, fetches, parameters, rows.size());
+        return new QueryResultListImpl<>(fetches, totalResults.value, totalResults.exact, processRows(entityManager, rows, parameters), keysetPage);
+    }
+
+    private String keysetCursor(Tuple row) {
+        return KeysetCursor.keysetCursor(seq(keysetExpressions).map(row::get).toList()).encode();
+    }
+
+    private List<Tuple> executeTupleQuery(EntityManager entityManager, RootFetchSetImpl<X> fetches, QueryPlanParameters parameters) {
+        final TypedQuery<Object> typedQuery = tupleQuery.createQuery(entityManager, parameters.getTupleValues());
+        typedQuery.setFirstResult(fetches.getFirstResult());
+        typedQuery.setMaxResults(fetches.getMaxResults());
+        return seq(typedQuery.getResultList()).map(tupleLayout::wrap).toList();
+    }
+
+    private List<TabularResultRowImpl> processRows(EntityManager entityManager, List<Tuple> rows, QueryPlanParameters parameters) {
+        final List<FetchSet<?>> fetchSets = parameters.getFetchSets();
+        final RowBinding binding = rowLayout.bind(fetchSets);
+        final List<TabularResultRowImpl> resultRows = new ArrayList<>(rows.size());
+        for (Tuple row: rows) {
+            resultRows.add(processRow(row, binding));
+        }
+        processPage(rows, fetchSets, resultRows);
+        executeCollectionJoins(entityManager, resultRows, parameters);
+        return resultRows;
+    }
+
+    // A single query per collection join for all our rows, rather than one per row
+    private void executeCollectionJoins(EntityManager entityManager, List<TabularResultRowImpl> resultRows, QueryPlanParameters parameters) {
+        if (resultRows.isEmpty()) {
+            return;
+        }
+        final List<FetchSet<?>> fetchSets = parameters.getFetchSets();
+        for (int fetchSetIndex = 0; fetchSetIndex < fetchSets.size(); fetchSetIndex++) {
+            executeCollectionJoins(entityManager, resultRows, fetchSetIndex, fetchSets.get(fetchSetIndex));
+        }
+    }
+
+    private <X> void executeCollectionJoins(EntityManager entityManager, List<TabularResultRowImpl> resultRows, int fetchSetIndex, FetchSet<X> fetchSet) {
+        for (Map.Entry<EntityCollectionJoin<X, ?>, RootFetchSet<?>> joinEntry: fetchSet.getCollectionJoins().entrySet()) {
+            if (!QueryImplUtils.isEmptyFetchSet(joinEntry.getValue())) {
+                final @SuppressWarnings("unchecked") EntityCollectionJoin<X, Object> collectionJoin = (EntityCollectionJoin<X, Object>) joinEntry.getKey();
+                final @SuppressWarnings("unchecked") RootFetchSetImpl<Object> joinedFetchSet = (RootFetchSetImpl<Object>) joinEntry.getValue();
+                final int entityKeySlot = rowLayout.getEntityKeySlot(fetchSetIndex);
+                final int collectionSlot = rowLayout.getCollectionSlot(fetchSetIndex, collectionJoin);
+                if (entityKeySlot == -1 || collectionSlot == -1) {
+                    throw new UnexpectedException(format("Collection join not planned: %s", QueryImplUtils.resolveFullName(fetchSet, collectionJoin.getName())));
+                }
+                executeCollectionJoin(entityManager, resultRows, entityKeySlot, collectionSlot, collectionJoin, joinedFetchSet);
+            }
+        }
+    }
+
+    private static <X, Y> void executeCollectionJoin(EntityManager entityManager, List<TabularResultRowImpl> resultRows, int entityKeySlot, int collectionSlot, EntityCollectionJoin<X, Y> collectionJoin, RootFetchSetImpl<Y> joinedFetchSet) {
+        // Rows where our entity doesn't exist (outer joins) have no key, and so no elements
+        final Set<Object> parentKeys = new LinkedHashSet<>();
+        for (TabularResultRowImpl resultRow: resultRows) {
+            final Object parentKey = resultRow.getValue(entityKeySlot);
+            if (parentKey != null) {
+                parentKeys.add(parentKey);
+            }
+        }
+        final Map<Object, List<TabularResultRowImpl>> elements = (parentKeys.isEmpty() ? emptyMap() : ExecutionContext.executeCollection(entityManager, collectionJoin, joinedFetchSet, parentKeys));
+        for (TabularResultRowImpl resultRow: resultRows) {
+            final Object parentKey = resultRow.getValue(entityKeySlot);
+            resultRow.setValue(collectionSlot, (parentKey != null ? elements.getOrDefault(parentKey, emptyList()) : emptyList()));
+        }
+    }
+
+    private TabularResultRowImpl processRow(Tuple row, RowBinding binding) {
+        return rowMapper.map(row, binding);
+    }
+
+    // Batched fields are resolved once all rows of a page have been processed
+    private void processPage(List<Tuple> rows, List<FetchSet<?>> fetchSets, List<TabularResultRowImpl> resultRows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        for (QueryPageCallback queryPageCallback: pageCallbacks) {
+            queryPageCallback.execute(rows, fetchSets, resultRows);
+        }
+    }
+
+    private TotalResults resolveTotalResults(EntityManager entityManager, RootFetchSetImpl<X> fetches, QueryPlanParameters parameters, List<?> rows) {
+        return resolveTotalResults(fetches, rows, rowsRetrieved -> executeCountQuery(entityManager, fetches, parameters, rowsRetrieved));
+    }
+
+    // Counter is given the number of rows retrieved so far, a lower bound of total results
+    private TotalResults resolveTotalResults(RootFetchSetImpl<X> fetches, List<?> rows, LongFunction<TotalResults> counter) {
+        if (fetches.getTotalResultsMode() == TotalResultsMode.NONE) {
+            return TotalResults.NOT_REQUESTED;
+        }
+        if (windowCount != null && !rows.isEmpty()) {
+            return new TotalResults(requireNonNull(((Tuple) rows.get(0)).get(windowCount), "windowCount"), true);
+        }
+        // A short page means we have reached the last row (unless we are past it, in which case we have no idea where it was)
+        if (rows.size() < fetches.getMaxResults() && (!rows.isEmpty() || fetches.getFirstResult() == 0)) {
+            return new TotalResults((long) fetches.getFirstResult() + rows.size(), true);
+        }
+        return counter.apply(rows.isEmpty() ? 0 : (long) fetches.getFirstResult() + rows.size());
+    }
+
+    // Rows retrieved is a lower bound of total results, for when we stop counting before reaching it
+    private TotalResults executeCountQuery(EntityManager entityManager, RootFetchSetImpl<X> fetches, QueryPlanParameters parameters, long rowsRetrieved) {
+        if (fetches.getTotalResultsMode() == TotalResultsMode.NONE) {
+            return TotalResults.NOT_REQUESTED;
+        }
+        if (cappedCountQuery == null) {
+            return new TotalResults(countQuery.createQuery(entityManager, parameters.getCountValues()).getSingleResult(), true);
+        }
+        // Retrieve one more than our cap, so we can tell the difference between exactly reaching it and exceeding it
+        final TypedQuery<Object> typedQuery = cappedCountQuery.createQuery(entityManager, parameters.getCountValues());
+        typedQuery.setMaxResults(fetches.getMaxTotalResults() + 1);
+        final int counted = typedQuery.getResultList().size();
+        if (counted <= fetches.getMaxTotalResults()) {
+            return new TotalResults(counted, true);
+        }
+        return new TotalResults(Math.max(fetches.getMaxTotalResults(), rowsRetrieved), false);
+    }
+
+    static Class<?> resolveKeysetType(Expression<?> expression) {
+        if (expression.getJavaType() == null) {
+            throw new IllegalArgumentException(format("Unsupported keyset ordering: %s", expression));
+        }
+        return wrapPrimitiveTypeIfNecessary(expression.getJavaType());
+    }
+
+    private static final class TotalResults {
+
+        private static final TotalResults NOT_REQUESTED = new TotalResults(-1, true);
+
+        private final long value;
+
+        private final boolean exact;
+
+        private TotalResults(long value, boolean exact) {
+            this.value = value;
+            this.exact = exact;
+        }
+    }
+
+    static final class PreparedQuery<T> {
+
+        private final CriteriaQuery<T> criteriaQuery;
+
+        private final List<ParameterExpression<?>> parameters;
+
+        PreparedQuery(CriteriaQuery<T> criteriaQuery, List<ParameterExpression<?>> parameters) {
+            this.criteriaQuery = requireNonNull(criteriaQuery, "criteriaQuery");
+            this.parameters = unmodifiableList(new ArrayList<>(requireNonNull(parameters, "parameters")));
+        }
+
+        // Hibernate assigns aliases to the criteria tree as it is rendered, so this must be done before the query is shared between threads
+        void prepare(EntityManager entityManager) {
+            requireNonNull(entityManager, "entityManager");
+            entityManager.createQuery(criteriaQuery);
+        }
+
+        TypedQuery<T> createQuery(EntityManager entityManager, List<Object> values) {
+            requireNonNull(entityManager, "entityManager");
+            requireNonNull(values, "values");
+            if (values.size() != parameters.size()) {
+                throw new UnexpectedException(format("Expected %d parameter values, received: %d", parameters.size(), values.size()));
+            }
+            final TypedQuery<T> typedQuery = entityManager.createQuery(criteriaQuery);
+            for (int i = 0; i < parameters.size(); i++) {
+                bindParameter(typedQuery, parameters.get(i), values.get(i));
+            }
+            return typedQuery;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> void bindParameter(TypedQuery<?> typedQuery, ParameterExpression<T> parameter, Object value) {
+            typedQuery.setParameter(parameter, (T) value);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.grapple.query.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.grapple.query.EntityRoot;
+import org.grapple.query.QueryPlanCache;
+import org.grapple.query.QueryResultRow;
+import org.grapple.utils.BoundedCache;
+
+final class QueryPlanCacheImpl implements QueryPlanCache {
+
+    private final BoundedCache<QueryPlanKey, QueryPlan<?>> queryPlans;
+
+    private long uncacheableCount;
+
+    private long notReusableCount;
+
+    QueryPlanCacheImpl(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.queryPlans = new BoundedCache<>(maximumSize);
+    }
+
+    <X> QueryResultListImpl<X> execute(EntityManager entityManager, EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches) {
+        return withQueryPlan(entityManager, entityRoot, fetches, (queryPlan, parameters) -> queryPlan.execute(entityManager, fetches, parameters));
+    }
+
+    <X> Stream<QueryResultRow<X>> stream(EntityManager entityManager, EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches) {
+        return withQueryPlan(entityManager, entityRoot, fetches, (queryPlan, parameters) -> queryPlan.stream(entityManager, fetches, parameters));
+    }
+
+    private <X, R> R withQueryPlan(EntityManager entityManager, EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches, BiFunction<QueryPlan<X>, QueryPlanParameters, R> consumer) {
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(entityRoot, "entityRoot");
+        requireNonNull(fetches, "fetches");
+        requireNonNull(consumer, "consumer");
+
+        final ExecutionContext executionContext = new ExecutionContext(entityManager.getCriteriaBuilder(), fetches);
+
+        final QueryPlanKey queryPlanKey = QueryPlanKey.queryPlanKey(entityManager.getCriteriaBuilder(), entityRoot, fetches);
+        if (queryPlanKey == null) {
+            recordUncacheable();
+            return consumer.apply(executionContext.buildQueryPlan(entityRoot, fetches), executionContext.getQueryPlanParameters());
+        }
+
+        @SuppressWarnings("unchecked")
+        final QueryPlan<X> existing = (QueryPlan<X>) queryPlans.get(queryPlanKey);
+        if (existing != null) {
+            return consumer.apply(existing, queryPlanKey.getParameters());
+        }
+
+        // Plan is built outside of lock, worst case two threads build the same plan concurrently
+        final QueryPlan<X> queryPlan = executionContext.buildQueryPlan(entityRoot, fetches);
+        if (executionContext.isReusable(queryPlanKey.getParameters())) {
+            queryPlan.prepare(entityManager);
+            queryPlans.put(queryPlanKey, queryPlan);
+        }
+        else {
+            recordNotReusable();
+        }
+        return consumer.apply(queryPlan, executionContext.getQueryPlanParameters());
+    }
+
+    private synchronized void recordUncacheable() {
+        uncacheableCount++;
+    }
+
+    private synchronized void recordNotReusable() {
+        notReusableCount++;
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return queryPlans.getMaximumSize();
+    }
+
+    @Override
+    public int getSize() {
+        return queryPlans.getSize();
+    }
+
+    @Override
+    public long getHitCount() {
+        return queryPlans.getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return queryPlans.getMissCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return queryPlans.getEvictionCount();
+    }
+
+    @Override
+    public synchronized long getUncacheableCount() {
+        return uncacheableCount;
+    }
+
+    @Override
+    public synchronized long getNotReusableCount() {
+        return notReusableCount;
+    }
+
+    @Override
+    public void clear() {
+        queryPlans.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("QueryPlanCache[%s, uncacheable=%d, notReusable=%d]", queryPlans, uncacheableCount, notReusableCount);
+    }
+}
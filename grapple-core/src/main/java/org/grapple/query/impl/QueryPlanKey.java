@@ -0,0 +1,143 @@
+package org.grapple.query.impl;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.criteria.CriteriaBuilder;
+import org.grapple.query.EntityField;
+import org.grapple.query.EntityFilter;
+import org.grapple.query.EntityJoin;
+import org.grapple.query.EntityRoot;
+import org.grapple.query.FetchSet;
+import org.grapple.query.TotalResultsMode;
+
+// Normalised shape of a fetch set: everything that affects the generated query, except bound values
+final class QueryPlanKey {
+
+    private final List<Object> shape;
+
+    private final QueryPlanParameters parameters;
+
+    private QueryPlanKey(List<Object> shape, QueryPlanParameters parameters) {
+        this.shape = requireNonNull(shape, "shape");
+        this.parameters = requireNonNull(parameters, "parameters");
+    }
+
+    // Parameters extracted from the fetch set whilst building the key, not part of the key itself
+    QueryPlanParameters getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QueryPlanKey)) {
+            return false;
+        }
+        return shape.equals(((QueryPlanKey) o).shape);
+    }
+
+    @Override
+    public int hashCode() {
+        return shape.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return shape.toString();
+    }
+
+    // Returns null if the fetch set can not be cached (for example, if it contains opaque filters)
+    static <X> QueryPlanKey queryPlanKey(CriteriaBuilder criteriaBuilder, EntityRoot<X> entityRoot, RootFetchSetImpl<X> fetches) {
+        requireNonNull(criteriaBuilder, "criteriaBuilder");
+        requireNonNull(entityRoot, "entityRoot");
+        requireNonNull(fetches, "fetches");
+
+        final List<FetchSet<?>> fetchSets = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+
+        final List<Object> fetchSetShape = fetchSetShape(fetches, fetchSets, values);
+        if (fetchSetShape == null) {
+            return null;
+        }
+
+        final Object rootFilterShape = filterShape(entityRoot.getFilter(), values);
+        if (rootFilterShape == null) {
+            return null;
+        }
+
+        final List<Object> orderByShape = new ArrayList<>();
+        for (EntityOrderByImpl<?> orderBy: fetches.orderBy) {
+            final int fetchSetIndex = fetchSets.indexOf(orderBy.getFetchSet());
+            if (fetchSetIndex == -1) {
+                return null;
+            }
+            orderByShape.add(asList(fetchSetIndex, orderBy.getPlanKey(), orderBy.getDirection()));
+        }
+
+        // Cursor values are bound at execution, but null values change the seek predicate
+        final KeysetCursor keysetCursor = fetches.getKeysetCursor();
+        final List<Object> keysetShape = (fetches.isKeysetPagination() ? asList(fetches.isKeysetBackwards(), (keysetCursor != null ? keysetCursor.getNullMask() : null)) : null);
+
+        final List<Object> shape = asList(criteriaBuilder, entityRoot.getEntityClass(), fetchSetShape, rootFilterShape, orderByShape, fetches.getTotalResultsMode() == TotalResultsMode.WINDOW, fetches.isTotalResultsCapped(), keysetShape);
+
+        // Empty fetch sets only execute the count query
+        if (QueryImplUtils.isEmptyFetchSet(fetches)) {
+            return new QueryPlanKey(shape, new QueryPlanParameters(emptyList(), values, emptyList()));
+        }
+
+        return new QueryPlanKey(shape, new QueryPlanParameters(fetchSets, values, values));
+    }
+
+    // Must visit fetch sets, filters and joins in exactly the same order as ExecutionContext.processEntityContext
+    private static List<Object> fetchSetShape(FetchSet<?> fetchSet, List<FetchSet<?>> fetchSets, List<Object> values) {
+        fetchSets.add(fetchSet);
+
+        final List<EntityField<?, ?>> selectionsShape = new ArrayList<>(fetchSet.getSelections());
+
+        final List<Object> filtersShape = new ArrayList<>();
+        for (EntityFilter<?> filter: fetchSet.getFilters()) {
+            final Object filterShape = filterShape(filter, values);
+            if (filterShape == null) {
+                return null;
+            }
+            filtersShape.add(filterShape);
+        }
+
+        final List<Object> joinsShape = new ArrayList<>();
+        for (Map.Entry<? extends EntityJoin<?, ?>, FetchSet<?>> joinEntry: fetchSet.getJoins().entrySet()) {
+            if (!QueryImplUtils.isEmptyFetchSet(joinEntry.getValue())) { // Only join with non-empty
+                final List<Object> joinedShape = fetchSetShape(joinEntry.getValue(), fetchSets, values);
+                if (joinedShape == null) {
+                    return null;
+                }
+                joinsShape.add(asList(joinEntry.getKey(), joinedShape));
+            }
+        }
+
+        // Collection joins are fetched by their own queries, we only need to select our key for them
+        final boolean hasCollectionJoins = fetchSet.getCollectionJoins().values().stream().anyMatch(joinedFetchSet -> !QueryImplUtils.isEmptyFetchSet(joinedFetchSet));
+
+        return asList(selectionsShape, filtersShape, joinsShape, hasCollectionJoins);
+    }
+
+    private static Object filterShape(EntityFilter<?> filter, List<Object> values) {
+        if (filter.isAlwaysTrue()) {
+            return Boolean.TRUE;
+        }
+        if (filter.isAlwaysFalse()) {
+            return Boolean.FALSE;
+        }
+        final Object planKey = filter.getPlanKey();
+        if (planKey != null) {
+            filter.collectParameters(values::add);
+        }
+        return planKey;
+    }
+}
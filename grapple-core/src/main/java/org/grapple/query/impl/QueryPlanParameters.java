@@ -0,0 +1,36 @@
+package org.grapple.query.impl;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.grapple.query.FetchSet;
+
+// Everything a query plan needs to be executed for a given fetch set
+final class QueryPlanParameters {
+
+    private final List<FetchSet<?>> fetchSets;
+
+    private final List<Object> countValues;
+
+    private final List<Object> tupleValues;
+
+    QueryPlanParameters(List<FetchSet<?>> fetchSets, List<Object> countValues, List<Object> tupleValues) {
+        this.fetchSets = unmodifiableList(new ArrayList<>(requireNonNull(fetchSets, "fetchSets")));
+        this.countValues = unmodifiableList(new ArrayList<>(requireNonNull(countValues, "countValues")));
+        this.tupleValues = unmodifiableList(new ArrayList<>(requireNonNull(tupleValues, "tupleValues")));
+    }
+
+    List<FetchSet<?>> getFetchSets() {
+        return fetchSets;
+    }
+
+    List<Object> getCountValues() {
+        return countValues;
+    }
+
+    List<Object> getTupleValues() {
+        return tupleValues;
+    }
+}
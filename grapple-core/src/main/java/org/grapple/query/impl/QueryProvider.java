@@ -2,6 +2,9 @@ package org.grapple.query.impl;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.grapple.query.QueryPlanCache;
 import org.grapple.query.RootFetchSet;
 
 public final class QueryProvider {
@@ -14,4 +17,23 @@ public final class QueryProvider {
         requireNonNull(entityClass, "entityClass");
         return new RootFetchSetImpl<>(entityClass);
     }
+
+    public static QueryPlanCache newQueryPlanCache(int maximumSize) {
+        return new QueryPlanCacheImpl(maximumSize);
+    }
+
+    // Executor suitable for blocking queries: a virtual thread per task where supported (JDK 21+), otherwise a cached pool of daemon threads
+    public static ExecutorService newQueryExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            // Not supported (or only as a preview) by this JDK
+            return Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, "grapple-query");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
 }
@@ -19,23 +19,59 @@ final class QueryResultListImpl<X> implements QueryResultList<X> {
 
     private final RootFetchSet<X> rootFetchSet;
 
-    private final int totalResults;
+    private final long totalResults;
+
+    private final boolean totalExact;
 
     private final List<TabularResultRowImpl> results;
 
-    QueryResultListImpl(RootFetchSet<X> rootFetchSet, int totalResults, List<TabularResultRowImpl> results) {
+    private final KeysetPage keysetPage;
+
+    QueryResultListImpl(RootFetchSet<X> rootFetchSet, long totalResults, boolean totalExact, List<TabularResultRowImpl> results) {
+        this(rootFetchSet, totalResults, totalExact, results, KeysetPage.NONE);
+    }
+
+    QueryResultListImpl(RootFetchSet<X> rootFetchSet, long totalResults, boolean totalExact, List<TabularResultRowImpl> results, KeysetPage keysetPage) {
         requireNonNull(rootFetchSet, "rootFetchSet");
         requireNonNull(results, "results");
+        requireNonNull(keysetPage, "keysetPage");
         this.rootFetchSet = rootFetchSet;
         this.totalResults = totalResults;
+        this.totalExact = totalExact;
         this.results = results;
+        this.keysetPage = keysetPage;
     }
 
     @Override
-    public int getTotalResults() {
+    public long getTotalResults() {
         return totalResults;
     }
 
+    @Override
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    @Override
+    public String getStartCursor() {
+        return keysetPage.startCursor;
+    }
+
+    @Override
+    public String getEndCursor() {
+        return keysetPage.endCursor;
+    }
+
+    @Override
+    public boolean hasNextPage() {
+        return keysetPage.hasNextPage;
+    }
+
+    @Override
+    public boolean hasPreviousPage() {
+        return keysetPage.hasPreviousPage;
+    }
+
     @Override
     public int getRowsRetrieved() {
         return results.size();
@@ -78,4 +114,24 @@ final class QueryResultListImpl<X> implements QueryResultList<X> {
     public Iterator<QueryResultRow<X>> iterator() {
         return seq(results).<QueryResultRow<X>> map(result -> new QueryResultRowImpl<>(rootFetchSet, result)).iterator();
     }
+
+    static final class KeysetPage {
+
+        static final KeysetPage NONE = new KeysetPage(null, null, false, false);
+
+        private final String startCursor;
+
+        private final String endCursor;
+
+        private final boolean hasNextPage;
+
+        private final boolean hasPreviousPage;
+
+        KeysetPage(String startCursor, String endCursor, boolean hasNextPage, boolean hasPreviousPage) {
+            this.startCursor = startCursor;
+            this.endCursor = endCursor;
+            this.hasNextPage = hasNextPage;
+            this.hasPreviousPage = hasPreviousPage;
+        }
+    }
 }
@@ -1,14 +1,18 @@
 package org.grapple.query.impl;
 
 import static java.util.Objects.requireNonNull;
+import static org.jooq.lambda.Seq.seq;
 
+import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import org.grapple.query.EntityCollectionJoin;
 import org.grapple.query.EntityField;
 import org.grapple.query.EntityJoin;
 import org.grapple.query.FetchSet;
 import org.grapple.query.QueryResultRow;
+import org.grapple.query.RootFetchSet;
 
 final class QueryResultRowImpl<X> implements QueryResultRow<X> {
 
@@ -38,6 +42,11 @@ final class QueryResultRowImpl<X> implements QueryResultRow<X> {
         return resultRow.getIfNotNull(fetchSet, field, valueIfNull);
     }
 
+    @Override
+    public Object getEntityKey() {
+        return resultRow.getEntityKey(fetchSet);
+    }
+
     @Override
     public <Y> QueryResultRow<Y> getJoin(EntityJoin<X, Y> join) {
         requireNonNull(join, "join");
@@ -48,6 +57,16 @@ final class QueryResultRowImpl<X> implements QueryResultRow<X> {
         return new QueryResultRowImpl<>(joinedFetchSet, resultRow);
     }
 
+    @Override
+    public <Y> List<QueryResultRow<Y>> getCollection(EntityCollectionJoin<X, Y> join) {
+        requireNonNull(join, "join");
+        final @SuppressWarnings("unchecked") RootFetchSet<Y> joinedFetchSet = (RootFetchSet<Y>) fetchSet.getCollectionJoins().get(join);
+        if (joinedFetchSet == null) {
+            throw new IllegalArgumentException(String.format("Collection not fetched: %s", QueryImplUtils.resolveFullName(fetchSet, join.getName())));
+        }
+        return seq(resultRow.getCollection(fetchSet, join)).<QueryResultRow<Y>> map(joinedRow -> new QueryResultRowImpl<>(joinedFetchSet, joinedRow)).toList();
+    }
+
     @Override
     public <Y> void applyJoinIfExists(EntityJoin<X, Y> join, Consumer<QueryResultRow<Y>> consumer) {
         requireNonNull(join, "join");
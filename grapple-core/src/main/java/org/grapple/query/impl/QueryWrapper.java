@@ -1,5 +1,6 @@
 package org.grapple.query.impl;
 
+import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
@@ -32,30 +33,43 @@ final class QueryWrapper {
         return query;
     }
 
+    List<Selection<?>> getSelections() {
+        return unmodifiableList(selections);
+    }
+
+    List<Predicate> getPredicates() {
+        return unmodifiableList(predicates);
+    }
+
     void select(Selection<?>... selection) {
-        if (selection.length > 0) {
-            this.selections.addAll(Arrays.asList(selection));
-            query.multiselect(selections.toArray(new Selection<?>[0]));
-        }
+        selections.addAll(Arrays.asList(selection));
     }
 
     void where(Predicate... predicate) {
-        if (predicate.length > 0) {
-            this.predicates.addAll(Arrays.asList(predicate));
-            query.where(predicates.toArray(new Predicate[0]));
-        }
+        predicates.addAll(Arrays.asList(predicate));
     }
 
     void whereOr(Predicate... predicate) {
         if (predicate.length > 0) {
             predicates.add(queryBuilder.or(predicate));
-            query.where(predicates.toArray(new Predicate[0]));
         }
     }
 
     void orderBy(Order orderBy) {
         requireNonNull(orderBy, "orderBy");
         orderBys.add(orderBy);
-        query.orderBy(orderBys);
+    }
+
+    // Applied once the query has been fully built, rather than re-applying everything accumulated so far on each call
+    void apply() {
+        if (!selections.isEmpty()) {
+            query.multiselect(new ArrayList<>(selections));
+        }
+        if (!predicates.isEmpty()) {
+            query.where(predicates.toArray(new Predicate[0]));
+        }
+        if (!orderBys.isEmpty()) {
+            query.orderBy(new ArrayList<>(orderBys));
+        }
     }
 }
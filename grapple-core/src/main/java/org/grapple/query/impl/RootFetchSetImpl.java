@@ -8,9 +8,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
+import org.grapple.query.EntityCollectionJoin;
 import org.grapple.query.EntityField;
 import org.grapple.query.EntityFilter;
 import org.grapple.query.EntityJoin;
@@ -21,9 +26,12 @@ import org.grapple.query.EntitySortKey;
 import org.grapple.query.FetchSet;
 import org.grapple.query.QueryField;
 import org.grapple.query.QueryParameter;
+import org.grapple.query.QueryPlanCache;
 import org.grapple.query.QueryResultList;
+import org.grapple.query.QueryResultRow;
 import org.grapple.query.RootFetchSet;
 import org.grapple.query.SortDirection;
+import org.grapple.query.TotalResultsMode;
 
 final class RootFetchSetImpl<X> extends AbstractFetchSetImpl<X> implements RootFetchSet<X> {
 
@@ -33,12 +41,39 @@ final class RootFetchSetImpl<X> extends AbstractFetchSetImpl<X> implements RootF
 
     private int maxResults = Integer.MAX_VALUE;
 
+    private TotalResultsMode totalResultsMode = TotalResultsMode.EXACT;
+
+    private int maxTotalResults = Integer.MAX_VALUE;
+
+    private boolean keysetPagination;
+
+    private String afterCursor;
+
+    private String beforeCursor;
+
+    private int fetchSize;
+
     final List<EntityOrderByImpl<?>> orderBy = new ArrayList<>();
 
     private final Map<QueryParameter<?>, Object> queryParameters = new HashMap<>();
 
+    private QueryPlanCacheImpl queryPlanCache;
+
+    private EntityManagerFactory countEntityManagerFactory;
+
+    private Executor countExecutor;
+
+    private final EntityCollectionJoin<?, X> collectionJoin;
+
     RootFetchSetImpl(Class<X> entityClass) {
         this.entityClass = requireNonNull(entityClass, "entityClass");
+        this.collectionJoin = null;
+    }
+
+    // Elements of a collection join, which are fetched by their own query
+    RootFetchSetImpl(EntityCollectionJoin<?, X> collectionJoin) {
+        this.collectionJoin = requireNonNull(collectionJoin, "collectionJoin");
+        this.entityClass = collectionJoin.getInverseAttribute().getDeclaringType().getJavaType();
     }
 
     @Override
@@ -71,6 +106,11 @@ final class RootFetchSetImpl<X> extends AbstractFetchSetImpl<X> implements RootF
         return (RootFetchSet<X>) super.join(join, consumer);
     }
 
+    @Override
+    public <Y> RootFetchSet<X> joinCollection(EntityCollectionJoin<X, Y> join, Consumer<RootFetchSet<Y>> consumer) {
+        return (RootFetchSet<X>) super.joinCollection(join, consumer);
+    }
+
     @Override
     public RootFetchSet<X> filter(EntityFilter<X> filter) {
         return (RootFetchSet<X>) super.filter(filter);
@@ -118,6 +158,145 @@ final class RootFetchSetImpl<X> extends AbstractFetchSetImpl<X> implements RootF
         return unmodifiableList(orderBy);
     }
 
+    @Override
+    public TotalResultsMode getTotalResultsMode() {
+        return totalResultsMode;
+    }
+
+    @Override
+    public RootFetchSet<X> setTotalResultsMode(TotalResultsMode totalResultsMode) {
+        this.totalResultsMode = requireNonNull(totalResultsMode, "totalResultsMode");
+        return this;
+    }
+
+    @Override
+    public int getMaxTotalResults() {
+        return maxTotalResults;
+    }
+
+    @Override
+    public RootFetchSet<X> setMaxTotalResults(int maxTotalResults) {
+        if (maxTotalResults < 0) {
+            throw new IllegalArgumentException("maxTotalResults must not be negative");
+        }
+        this.maxTotalResults = maxTotalResults;
+        return this;
+    }
+
+    // Whether we can stop counting early
+    boolean isTotalResultsCapped() {
+        return maxTotalResults != Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    @Override
+    public RootFetchSet<X> setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+        return this;
+    }
+
+    @Override
+    public String getAfterCursor() {
+        return afterCursor;
+    }
+
+    @Override
+    public RootFetchSet<X> setAfterCursor(String afterCursor) {
+        if (afterCursor != null && beforeCursor != null) {
+            throw new IllegalArgumentException("Cannot specify both after and before cursors");
+        }
+        this.afterCursor = afterCursor;
+        this.keysetPagination = true;
+        return this;
+    }
+
+    @Override
+    public String getBeforeCursor() {
+        return beforeCursor;
+    }
+
+    @Override
+    public RootFetchSet<X> setBeforeCursor(String beforeCursor) {
+        if (beforeCursor != null && afterCursor != null) {
+            throw new IllegalArgumentException("Cannot specify both after and before cursors");
+        }
+        this.beforeCursor = beforeCursor;
+        this.keysetPagination = true;
+        return this;
+    }
+
+    // Cursor we are seeking from, if any
+    KeysetCursor getKeysetCursor() {
+        if (afterCursor != null) {
+            return KeysetCursor.parseCursor(afterCursor);
+        }
+        if (beforeCursor != null) {
+            return KeysetCursor.parseCursor(beforeCursor);
+        }
+        return null;
+    }
+
+    boolean isKeysetBackwards() {
+        return beforeCursor != null;
+    }
+
+    // Null unless we are the elements of a collection join
+    EntityCollectionJoin<?, X> getCollectionJoin() {
+        return collectionJoin;
+    }
+
+    @Override
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    @Override
+    public RootFetchSet<X> setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize must not be negative");
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    @Override
+    public QueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+
+    @Override
+    public RootFetchSet<X> setQueryPlanCache(QueryPlanCache queryPlanCache) {
+        if (queryPlanCache != null && !(queryPlanCache instanceof QueryPlanCacheImpl)) {
+            throw new IllegalArgumentException("Unsupported queryPlanCache: " + queryPlanCache);
+        }
+        this.queryPlanCache = (QueryPlanCacheImpl) queryPlanCache;
+        return this;
+    }
+
+    @Override
+    public EntityManagerFactory getCountEntityManagerFactory() {
+        return countEntityManagerFactory;
+    }
+
+    @Override
+    public Executor getCountExecutor() {
+        return countExecutor;
+    }
+
+    @Override
+    public RootFetchSet<X> setConcurrentCount(EntityManagerFactory countEntityManagerFactory, Executor countExecutor) {
+        if (countEntityManagerFactory != null && countExecutor == null) {
+            throw new IllegalArgumentException("countExecutor must be specified with countEntityManagerFactory");
+        }
+        this.countEntityManagerFactory = countEntityManagerFactory;
+        this.countExecutor = (countEntityManagerFactory != null ? countExecutor : null);
+        return this;
+    }
+
     Map<QueryParameter<?>, Object> getQueryParameters() {
         return readOnlyCopy(queryParameters);
     }
@@ -133,12 +312,44 @@ final class RootFetchSetImpl<X> extends AbstractFetchSetImpl<X> implements RootF
     public QueryResultList<X> execute(EntityManager entityManager, EntityRoot<X> entityRoot) {
         requireNonNull(entityManager, "entityManager");
         requireNonNull(entityRoot, "entityRoot");
-        return new ExecutionContext(entityManager).execute(entityRoot, this);
+        if (queryPlanCache != null) {
+            return queryPlanCache.execute(entityManager, entityRoot, this);
+        }
+        return ExecutionContext.execute(entityManager, entityRoot, this);
+    }
+
+    @Override
+    public CompletableFuture<QueryResultList<X>> executeAsync(EntityManagerFactory entityManagerFactory, EntityRoot<X> entityRoot, Executor executor) {
+        requireNonNull(entityManagerFactory, "entityManagerFactory");
+        requireNonNull(entityRoot, "entityRoot");
+        requireNonNull(executor, "executor");
+        // Results are fully processed before we return, so the entity manager is no longer needed by then
+        return CompletableFuture.supplyAsync(() -> {
+            final EntityManager entityManager = entityManagerFactory.createEntityManager();
+            try {
+                return execute(entityManager, entityRoot);
+            }
+            finally {
+                entityManager.close();
+            }
+        }, executor);
+    }
+
+    @Override
+    public Stream<QueryResultRow<X>> stream(EntityManager entityManager, EntityRoot<X> entityRoot) {
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(entityRoot, "entityRoot");
+        if (queryPlanCache != null) {
+            return queryPlanCache.stream(entityManager, entityRoot, this);
+        }
+        return ExecutionContext.stream(entityManager, entityRoot, this);
     }
 
     @Override
     public EntityResultList<X> entityQuery(EntityManager entityManager, EntityRoot<X> entityRoot) {
-        throw new UnsupportedOperationException();
+        requireNonNull(entityManager, "entityManager");
+        requireNonNull(entityRoot, "entityRoot");
+        return ExecutionContext.entityQuery(entityManager, entityRoot, this);
     }
 
     @Override
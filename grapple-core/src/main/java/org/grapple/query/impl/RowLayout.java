@@ -0,0 +1,150 @@
+package org.grapple.query.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.grapple.query.EntityCollectionJoin;
+import org.grapple.query.EntityField;
+import org.grapple.query.FetchSet;
+import org.grapple.utils.LazyValue;
+import org.grapple.utils.NoDuplicatesMap;
+
+// Fixed position of each value within result rows, assigned once per query plan
+// Fetch sets are referenced by index, as cached plans are shared between fetch sets of the same shape
+final class RowLayout {
+
+    private static final Object ENTITY_KEY = new Object();
+
+    // Slot of each field, collection join and entity key, by fetch set index
+    private final List<Map<Object, Integer>> fetchSetSlots = new ArrayList<>();
+
+    private final List<Integer> slotFetchSets = new ArrayList<>();
+
+    private final List<Object> slotElements = new ArrayList<>();
+
+    int addFieldSlot(int fetchSetIndex, EntityField<?, ?> field) {
+        requireNonNull(field, "field");
+        return addSlot(fetchSetIndex, field);
+    }
+
+    int addCollectionSlot(int fetchSetIndex, EntityCollectionJoin<?, ?> collectionJoin) {
+        requireNonNull(collectionJoin, "collectionJoin");
+        return addSlot(fetchSetIndex, collectionJoin);
+    }
+
+    int addEntityKeySlot(int fetchSetIndex) {
+        return addSlot(fetchSetIndex, ENTITY_KEY);
+    }
+
+    int getCollectionSlot(int fetchSetIndex, EntityCollectionJoin<?, ?> collectionJoin) {
+        return getSlot(fetchSetIndex, collectionJoin);
+    }
+
+    int getEntityKeySlot(int fetchSetIndex) {
+        return getSlot(fetchSetIndex, ENTITY_KEY);
+    }
+
+    int getSlotCount() {
+        return slotElements.size();
+    }
+
+    RowBinding bind(List<FetchSet<?>> fetchSets) {
+        return new RowBinding(this, fetchSets);
+    }
+
+    private int addSlot(int fetchSetIndex, Object element) {
+        while (fetchSetSlots.size() <= fetchSetIndex) {
+            fetchSetSlots.add(new NoDuplicatesMap<>());
+        }
+        final int slot = slotElements.size();
+        fetchSetSlots.get(fetchSetIndex).put(element, slot);
+        slotFetchSets.add(fetchSetIndex);
+        slotElements.add(element);
+        return slot;
+    }
+
+    private int getSlot(int fetchSetIndex, Object element) {
+        if (fetchSetIndex < 0 || fetchSetIndex >= fetchSetSlots.size()) {
+            return -1;
+        }
+        final Integer slot = fetchSetSlots.get(fetchSetIndex).get(element);
+        return (slot != null ? slot : -1);
+    }
+
+    // Layout bound to the fetch sets of a given execution
+    static final class RowBinding {
+
+        private final RowLayout layout;
+
+        private final List<FetchSet<?>> fetchSets;
+
+        private final Map<FetchSet<?>, Integer> fetchSetIndexes = new IdentityHashMap<>();
+
+        private final LazyValue<List<String>> slotNames = LazyValue.of(this::resolveSlotNames);
+
+        private RowBinding(RowLayout layout, List<FetchSet<?>> fetchSets) {
+            this.layout = requireNonNull(layout, "layout");
+            this.fetchSets = requireNonNull(fetchSets, "fetchSets");
+            for (int i = 0; i < fetchSets.size(); i++) {
+                fetchSetIndexes.put(fetchSets.get(i), i);
+            }
+        }
+
+        List<FetchSet<?>> getFetchSets() {
+            return fetchSets;
+        }
+
+        int getSlotCount() {
+            return layout.getSlotCount();
+        }
+
+        int getFetchSetIndex(FetchSet<?> fetchSet) {
+            final Integer fetchSetIndex = fetchSetIndexes.get(fetchSet);
+            return (fetchSetIndex != null ? fetchSetIndex : -1);
+        }
+
+        int getFieldSlot(FetchSet<?> fetchSet, EntityField<?, ?> field) {
+            return layout.getSlot(getFetchSetIndex(fetchSet), field);
+        }
+
+        int getCollectionSlot(FetchSet<?> fetchSet, EntityCollectionJoin<?, ?> collectionJoin) {
+            return layout.getSlot(getFetchSetIndex(fetchSet), collectionJoin);
+        }
+
+        int getEntityKeySlot(FetchSet<?> fetchSet) {
+            return layout.getEntityKeySlot(getFetchSetIndex(fetchSet));
+        }
+
+        boolean isCollectionSlot(int slot) {
+            return (layout.slotElements.get(slot) instanceof EntityCollectionJoin<?, ?>);
+        }
+
+        // Null for entity keys, which aren't exposed
+        String getSlotName(int slot) {
+            return slotNames.get().get(slot);
+        }
+
+        private List<String> resolveSlotNames() {
+            final List<String> names = new ArrayList<>(layout.getSlotCount());
+            for (int i = 0; i < layout.getSlotCount(); i++) {
+                names.add(resolveSlotName(i));
+            }
+            return names;
+        }
+
+        private String resolveSlotName(int slot) {
+            final FetchSet<?> fetchSet = fetchSets.get(layout.slotFetchSets.get(slot));
+            final Object element = layout.slotElements.get(slot);
+            if (element instanceof EntityField<?, ?>) {
+                return QueryImplUtils.resolveFullName(fetchSet, ((EntityField<?, ?>) element).getName());
+            }
+            if (element instanceof EntityCollectionJoin<?, ?>) {
+                return QueryImplUtils.resolveFullName(fetchSet, ((EntityCollectionJoin<?, ?>) element).getName());
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.grapple.query.impl;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.function.Function;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Selection;
+import org.grapple.query.EntityField;
+import org.grapple.query.FetchSet;
+import org.grapple.query.NullNotAllowedException;
+
+// Maps each row into a result row, compiled once per query plan
+// Tuple positions and slots are resolved up front, so each row is a single pass over flat arrays rather than a callback per column
+final class RowMapper {
+
+    // Joined entity existence, in fetch set order so parents are always checked before their children
+    private final int[] existsPositions;
+
+    private final int[] existsFetchSets;
+
+    private final int[] existsParents;
+
+    private final boolean[] existsNullAllowed;
+
+    // Primary key of entities with collection joins
+    private final int[] keyPositions;
+
+    private final int[] keySlots;
+
+    // Position of fields read straight from their selection, -1 for fields resolved by their own handler
+    private final int[] fieldPositions;
+
+    private final int[] fieldFetchSets;
+
+    private final int[] fieldSlots;
+
+    private final boolean[] fieldNullAllowed;
+
+    private final FieldMapping[] fields;
+
+    RowMapper(TupleLayout tupleLayout, List<ExistsMapping> existsMappings, List<EntityKeyMapping> keyMappings, List<FieldMapping> fieldMappings) {
+        requireNonNull(tupleLayout, "tupleLayout");
+        requireNonNull(existsMappings, "existsMappings");
+        requireNonNull(keyMappings, "keyMappings");
+        requireNonNull(fieldMappings, "fieldMappings");
+        this.existsPositions = new int[existsMappings.size()];
+        this.existsFetchSets = new int[existsMappings.size()];
+        this.existsParents = new int[existsMappings.size()];
+        this.existsNullAllowed = new boolean[existsMappings.size()];
+        for (int i = 0; i < existsMappings.size(); i++) {
+            final ExistsMapping mapping = existsMappings.get(i);
+            existsPositions[i] = tupleLayout.getPosition(mapping.entityExists);
+            existsFetchSets[i] = mapping.fetchSetIndex;
+            existsParents[i] = mapping.parentIndex;
+            existsNullAllowed[i] = mapping.nullAllowed;
+        }
+        this.keyPositions = new int[keyMappings.size()];
+        this.keySlots = new int[keyMappings.size()];
+        for (int i = 0; i < keyMappings.size(); i++) {
+            keyPositions[i] = tupleLayout.getPosition(keyMappings.get(i).entityKey);
+            keySlots[i] = keyMappings.get(i).slot;
+        }
+        this.fieldPositions = new int[fieldMappings.size()];
+        this.fieldFetchSets = new int[fieldMappings.size()];
+        this.fieldSlots = new int[fieldMappings.size()];
+        this.fieldNullAllowed = new boolean[fieldMappings.size()];
+        this.fields = fieldMappings.toArray(new FieldMapping[0]);
+        for (int i = 0; i < fieldMappings.size(); i++) {
+            final FieldMapping mapping = fieldMappings.get(i);
+            fieldPositions[i] = (mapping.resultHandler instanceof SelectionReader<?> ? tupleLayout.getPosition(((SelectionReader<?>) mapping.resultHandler).getSelection()) : -1);
+            fieldFetchSets[i] = mapping.fetchSetIndex;
+            fieldSlots[i] = mapping.slot;
+            fieldNullAllowed[i] = mapping.field.getResultType().isNullAllowed();
+        }
+    }
+
+    TabularResultRowImpl map(Tuple row, RowLayout.RowBinding binding) {
+        final Object[] values = TupleLayout.getValues(row);
+        final TabularResultRowImpl resultItem = new TabularResultRowImpl(binding);
+        for (int i = 0; i < existsPositions.length; i++) {
+            final boolean entityExists = requireNonNull((Boolean) values[existsPositions[i]], "entityExistsPath");
+            if (!entityExists && !existsNullAllowed[i] && resultItem.isExists(existsParents[i])) {
+                throw new NullNotAllowedException(format("Null result for non-null join: %s", QueryImplUtils.resolveFullName(binding.getFetchSets().get(existsFetchSets[i]))));
+            }
+            if (entityExists) {
+                resultItem.setEntityExists(existsFetchSets[i]);
+            }
+        }
+        for (int i = 0; i < keyPositions.length; i++) {
+            resultItem.setValue(keySlots[i], values[keyPositions[i]]);
+        }
+        for (int i = 0; i < fields.length; i++) {
+            final Object result = (fieldPositions[i] >= 0 ? values[fieldPositions[i]] : fields[i].resultHandler.apply(row));
+            // Null-checking: Throw error if result is null, yet field type doesn't allow nulls, and we are not null because our parent wasn't fetched
+            if (result == null && !fieldNullAllowed[i] && resultItem.isExists(fieldFetchSets[i])) {
+                throw new NullNotAllowedException(format("Null result for non-null field: %s", QueryImplUtils.resolveFullName(binding.getFetchSets().get(fieldFetchSets[i]), fields[i].field.getName())));
+            }
+            resultItem.setValue(fieldSlots[i], result);
+        }
+        return resultItem;
+    }
+
+    static final class ExistsMapping {
+
+        private final Selection<Boolean> entityExists;
+
+        private final int fetchSetIndex;
+
+        private final int parentIndex;
+
+        private final boolean nullAllowed;
+
+        ExistsMapping(Selection<Boolean> entityExists, int fetchSetIndex, int parentIndex, FetchSet<?> fetchSet) {
+            this.entityExists = requireNonNull(entityExists, "entityExists");
+            this.fetchSetIndex = fetchSetIndex;
+            this.parentIndex = parentIndex;
+            this.nullAllowed = requireNonNull(fetchSet.getJoinedBy(), "joinedBy").getResultType().isNullAllowed();
+        }
+    }
+
+    static final class EntityKeyMapping {
+
+        private final Selection<?> entityKey;
+
+        private final int slot;
+
+        EntityKeyMapping(Selection<?> entityKey, int slot) {
+            this.entityKey = requireNonNull(entityKey, "entityKey");
+            this.slot = slot;
+        }
+    }
+
+    static final class FieldMapping {
+
+        private final int fetchSetIndex;
+
+        private final int slot;
+
+        private final EntityField<?, ?> field;
+
+        private final Function<Tuple, ?> resultHandler;
+
+        FieldMapping(int fetchSetIndex, int slot, EntityField<?, ?> field, Function<Tuple, ?> resultHandler) {
+            this.fetchSetIndex = fetchSetIndex;
+            this.slot = slot;
+            this.field = requireNonNull(field, "field");
+            this.resultHandler = requireNonNull(resultHandler, "resultHandler");
+        }
+    }
+}
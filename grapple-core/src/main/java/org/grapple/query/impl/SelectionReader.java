@@ -0,0 +1,26 @@
+package org.grapple.query.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.Function;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Selection;
+
+// Reads a single selection from each row, row mappers resolve its position once per query plan rather than looking it up per row
+final class SelectionReader<T> implements Function<Tuple, T> {
+
+    private final Selection<T> selection;
+
+    SelectionReader(Selection<T> selection) {
+        this.selection = requireNonNull(selection, "selection");
+    }
+
+    Selection<T> getSelection() {
+        return selection;
+    }
+
+    @Override
+    public T apply(Tuple tuple) {
+        return tuple.get(selection);
+    }
+}
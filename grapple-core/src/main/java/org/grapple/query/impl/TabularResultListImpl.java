@@ -13,18 +13,18 @@ import org.grapple.query.TabularResultRow;
 
 final class TabularResultListImpl implements TabularResultList {
 
-    private final int totalResultCount;
+    private final long totalResultCount;
 
     private final List<TabularResultRowImpl> results;
 
-    TabularResultListImpl(int totalResultCount, List<TabularResultRowImpl> results) {
+    TabularResultListImpl(long totalResultCount, List<TabularResultRowImpl> results) {
         requireNonNull(results, "results");
         this.totalResultCount = totalResultCount;
         this.results = results;
     }
 
     @Override
-    public int getTotalResultCount() {
+    public long getTotalResultCount() {
         return totalResultCount;
     }
 
@@ -3,31 +3,43 @@ package org.grapple.query.impl;
 import static java.util.Objects.requireNonNull;
 import static org.grapple.utils.Utils.coalesce;
 import static org.grapple.utils.Utils.readOnlyCopy;
+import static org.jooq.lambda.Seq.seq;
 
+import java.util.BitSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
+import org.grapple.query.EntityCollectionJoin;
 import org.grapple.query.EntityField;
 import org.grapple.query.FetchSet;
 import org.grapple.query.TabularResultRow;
-import org.grapple.utils.NoDuplicatesMap;
-import org.grapple.utils.NoDuplicatesSet;
+import org.grapple.query.impl.RowLayout.RowBinding;
 import org.jetbrains.annotations.NotNull;
-import org.jooq.lambda.tuple.Tuple2;
 
 final class TabularResultRowImpl implements TabularResultRow {
 
-    private final Set<FetchSet<?>> entitiesExists = new NoDuplicatesSet<>();
+    private final RowBinding binding;
 
-    private final Map<Tuple2<FetchSet<?>, EntityField<?, ?>>, Object> values = new NoDuplicatesMap<>();
+    // Values by slot, as assigned by the row layout of our query plan
+    private final Object[] values;
 
-    private final Map<String, Object> valuesByName = new LinkedHashMap<>();
+    // Existence of each joined entity, by fetch set index
+    private final BitSet entitiesExists = new BitSet();
+
+    // Only built if requested
+    private Map<String, Object> valuesByName;
+
+    TabularResultRowImpl(RowBinding binding) {
+        this.binding = requireNonNull(binding, "binding");
+        this.values = new Object[binding.getSlotCount()];
+    }
 
     @Override
     public <X> boolean isExists(FetchSet<X> fetchSet) {
         requireNonNull(fetchSet, "fetchSet");
-        return entitiesExists.contains(fetchSet);
+        final int fetchSetIndex = binding.getFetchSetIndex(fetchSet);
+        return (fetchSetIndex != -1 && entitiesExists.get(fetchSetIndex));
     }
 
     @Override
@@ -35,11 +47,11 @@ final class TabularResultRowImpl implements TabularResultRow {
     public <X, T> T get(FetchSet<X> fetchSet, EntityField<X, T> field) {
         requireNonNull(fetchSet, "fetchSet");
         requireNonNull(field, "field");
-        final Tuple2<FetchSet<?>, EntityField<?, ?>> key = new Tuple2<>(fetchSet, field);
-        if (!values.containsKey(key)) {
+        final int slot = binding.getFieldSlot(fetchSet, field);
+        if (slot == -1) {
             throw new IllegalArgumentException(String.format("Requested element not fetched: %s", QueryImplUtils.resolveFullName(fetchSet, field.getName())));
         }
-        return (T) values.get(key);
+        return (T) values[slot];
     }
 
     @Override
@@ -47,22 +59,59 @@ final class TabularResultRowImpl implements TabularResultRow {
         return coalesce(get(fetchSet, field), valueIfNull);
     }
 
+    @SuppressWarnings("unchecked")
+    <X, Y> List<TabularResultRowImpl> getCollection(@NotNull FetchSet<X> fetchSet, @NotNull EntityCollectionJoin<X, Y> join) {
+        final int slot = binding.getCollectionSlot(fetchSet, join);
+        if (slot == -1) {
+            throw new IllegalArgumentException(String.format("Requested collection not fetched: %s", QueryImplUtils.resolveFullName(fetchSet, join.getName())));
+        }
+        return (List<TabularResultRowImpl>) values[slot];
+    }
+
+    // Null unless our primary key was fetched
+    <X> Object getEntityKey(@NotNull FetchSet<X> fetchSet) {
+        final int slot = binding.getEntityKeySlot(fetchSet);
+        return (slot != -1 ? values[slot] : null);
+    }
+
     @Override
-    public Map<String, Object> getValues() {
-        return readOnlyCopy(valuesByName);
+    public synchronized Map<String, Object> getValues() {
+        if (valuesByName == null) {
+            final Map<String, Object> results = new LinkedHashMap<>();
+            for (int slot = 0; slot < values.length; slot++) {
+                final String name = binding.getSlotName(slot);
+                if (name != null) {
+                    results.put(name, (binding.isCollectionSlot(slot) ? seq(getCollectionValue(slot)).map(TabularResultRowImpl::getValues).toList() : values[slot]));
+                }
+            }
+            valuesByName = readOnlyCopy(results);
+        }
+        return valuesByName;
+    }
+
+    boolean isExists(int fetchSetIndex) {
+        return entitiesExists.get(fetchSetIndex);
+    }
+
+    void setEntityExists(int fetchSetIndex) {
+        entitiesExists.set(fetchSetIndex);
+    }
+
+    Object getValue(int slot) {
+        return values[slot];
     }
 
-    <X, T> void setValue(@NotNull FetchSet<X> fetchSet, @NotNull EntityField<X, T> field, T value) {
-        values.put(new Tuple2<>(fetchSet, field), value);
-        valuesByName.put(QueryImplUtils.resolveFullName(fetchSet, field.getName()), value);
+    void setValue(int slot, Object value) {
+        values[slot] = value;
     }
 
-    <X> void setEntityExists(@NotNull FetchSet<X> fetchSet) {
-        entitiesExists.add(fetchSet);
+    @SuppressWarnings("unchecked")
+    private List<TabularResultRowImpl> getCollectionValue(int slot) {
+        return (List<TabularResultRowImpl>) values[slot];
     }
 
     @Override
     public String toString() {
-        return valuesByName.toString();
+        return getValues().toString();
     }
 }
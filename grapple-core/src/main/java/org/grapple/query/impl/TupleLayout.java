@@ -0,0 +1,118 @@
+package org.grapple.query.impl;
+
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.criteria.Selection;
+
+// Position of each selection within rows, assigned once per query plan
+// Providers typically resolve Tuple.get(TupleElement) by scanning every selection (for every column of every row)
+final class TupleLayout {
+
+    private final List<TupleElement<?>> elements;
+
+    private final Map<TupleElement<?>, Integer> positions = new IdentityHashMap<>();
+
+    TupleLayout(List<Selection<?>> selections) {
+        requireNonNull(selections, "selections");
+        this.elements = unmodifiableList(new ArrayList<>(selections));
+        for (int i = 0; i < selections.size(); i++) {
+            positions.putIfAbsent(selections.get(i), i);
+        }
+    }
+
+    int getPosition(TupleElement<?> element) {
+        requireNonNull(element, "element");
+        final Integer position = positions.get(element);
+        if (position == null) {
+            throw new IllegalArgumentException(format("Selection not found: %s", element));
+        }
+        return position;
+    }
+
+    // Values of a row we wrapped, so mappers can read them by position directly
+    static Object[] getValues(Tuple row) {
+        if (!(row instanceof IndexedTuple)) {
+            throw new IllegalArgumentException(format("Unexpected row: %s", row));
+        }
+        return ((IndexedTuple) row).values;
+    }
+
+    // Single selections aren't returned as arrays by all providers
+    Tuple wrap(Object row) {
+        return new IndexedTuple(this, (row instanceof Object[] ? (Object[]) row : new Object[] { row }));
+    }
+
+    private static final class IndexedTuple implements Tuple {
+
+        private final TupleLayout layout;
+
+        private final Object[] values;
+
+        private IndexedTuple(TupleLayout layout, Object[] values) {
+            this.layout = layout;
+            this.values = values;
+            if (values.length != layout.elements.size()) {
+                throw new IllegalArgumentException(format("Expected %d values, received: %d", layout.elements.size(), values.length));
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <X> X get(TupleElement<X> tupleElement) {
+            return (X) values[layout.getPosition(tupleElement)];
+        }
+
+        @Override
+        public <X> X get(String alias, Class<X> type) {
+            return type.cast(get(alias));
+        }
+
+        @Override
+        public Object get(String alias) {
+            requireNonNull(alias, "alias");
+            for (int i = 0; i < layout.elements.size(); i++) {
+                if (alias.equals(layout.elements.get(i).getAlias())) {
+                    return values[i];
+                }
+            }
+            throw new IllegalArgumentException(format("Alias not found: %s", alias));
+        }
+
+        @Override
+        public <X> X get(int i, Class<X> type) {
+            return type.cast(get(i));
+        }
+
+        @Override
+        public Object get(int i) {
+            if (i < 0 || i >= values.length) {
+                throw new IllegalArgumentException(format("Invalid position: %d", i));
+            }
+            return values[i];
+        }
+
+        @Override
+        public Object[] toArray() {
+            return values.clone();
+        }
+
+        @Override
+        public List<TupleElement<?>> getElements() {
+            return layout.elements;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
+    }
+}
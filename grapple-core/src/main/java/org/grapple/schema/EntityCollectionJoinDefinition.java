@@ -0,0 +1,14 @@
+package org.grapple.schema;
+
+import org.grapple.core.Chainable;
+import org.grapple.query.EntityCollectionJoin;
+
+public interface EntityCollectionJoinDefinition<X, Y> extends EntitySchemaElement, Chainable<EntityCollectionJoinDefinition<X, Y>> {
+
+    EntityDefinition<X> getEntity();
+
+    EntityCollectionJoin<X, Y> getJoin();
+
+    EntityDefinition<Y> getJoinedEntity();
+
+}
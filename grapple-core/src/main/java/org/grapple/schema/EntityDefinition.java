@@ -4,6 +4,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import org.grapple.core.Chainable;
+import org.grapple.query.EntityCollectionJoin;
 import org.grapple.query.EntityField;
 import org.grapple.query.EntityJoin;
 import org.grapple.reflect.TypeLiteral;
@@ -20,6 +21,10 @@ public interface EntityDefinition<X> extends EntitySchemaElement, Chainable<Enti
 
     Map<EntityJoin<X, ?>, ? extends EntityJoinDefinition<X, ?>> getJoins();
 
+    <Y> EntityCollectionJoinDefinition<X, Y> addCollectionJoin(EntityCollectionJoin<X, Y> join);
+
+    Map<EntityCollectionJoin<X, ?>, ? extends EntityCollectionJoinDefinition<X, ?>> getCollectionJoins();
+
     <T> EntityFilterItemDefinition<X, T> addFilterItem(TypeLiteral<T> fieldType, Consumer<EntityFilterItemDefinition<X, T>> consumer);
 
     Set<? extends EntityFilterItemDefinition<X, ?>> getFilterItems();
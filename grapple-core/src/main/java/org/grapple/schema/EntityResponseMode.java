@@ -0,0 +1,6 @@
+package org.grapple.schema;
+
+public enum EntityResponseMode {
+    MAP, // Each row is copied into a map as it is processed
+    ROW // Each row keeps its values in an array as it is processed (and is serialized from them, see EntitySchemaProvider.newJacksonModule())
+}
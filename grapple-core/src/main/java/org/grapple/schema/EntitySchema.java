@@ -1,7 +1,10 @@
 package org.grapple.schema;
 
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import org.grapple.core.Chainable;
+import org.grapple.query.QueryPlanCache;
+import org.grapple.query.TotalResultsMode;
 import org.grapple.reflect.TypeConverter;
 import org.grapple.reflect.TypeLiteral;
 
@@ -27,6 +30,26 @@ public interface EntitySchema extends Chainable<EntitySchema> {
 
     TypeConverter getTypeConverter();
 
+    QueryPlanCache getQueryPlanCache();
+
+    void setQueryPlanCache(QueryPlanCache queryPlanCache);
+
+    int getSchemaVisibilityCacheSize();
+
+    void setSchemaVisibilityCacheSize(int schemaVisibilityCacheSize);
+
+    TotalResultsMode getTotalResultsMode();
+
+    void setTotalResultsMode(TotalResultsMode totalResultsMode);
+
+    EntityResponseMode getResponseMode();
+
+    void setResponseMode(EntityResponseMode responseMode);
+
+    Executor getQueryExecutor();
+
+    void setQueryExecutor(Executor queryExecutor); // Root queries are executed asynchronously on this (so query resolvers must not share entity managers), null to execute on the calling thread
+
     void addUnmanagedQuery(String queryAlias, Consumer<UnmanagedQueryDefinition> consumer);
 
     <T> void addUnmanagedType(TypeLiteral<T> type, Consumer<UnmanagedTypeDefinition<T>> consumer);
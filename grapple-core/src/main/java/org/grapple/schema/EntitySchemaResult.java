@@ -7,6 +7,8 @@ public interface EntitySchemaResult {
 
     GraphQLSchema getSchema();
 
-    GraphQLSchema getSchemaWithVisibility(Set<String> rolesHeld);
+    GraphQLSchema getSchemaWithVisibility(Set<String> rolesHeld); // Cached by the fields hidden from the roles held
+
+    SchemaVisibilityCache getSchemaVisibilityCache();
 
 }
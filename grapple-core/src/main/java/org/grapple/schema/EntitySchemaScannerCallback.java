@@ -2,6 +2,7 @@ package org.grapple.schema;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import org.grapple.query.EntityCollectionJoin;
 import org.grapple.query.EntityField;
 import org.grapple.query.EntityJoin;
 
@@ -31,6 +32,14 @@ public class EntitySchemaScannerCallback {
         // Overridden by subclasses
     }
 
+    public boolean acceptCollectionJoin(EntityCollectionJoin<?, ?> collectionJoin) {
+        return true;
+    }
+
+    public void configureCollectionJoin(Field field, EntityCollectionJoinDefinition<?, ?> joinDefinition) {
+        // Overridden by subclasses
+    }
+
     public <X, T> boolean acceptFilter(Method method, EntityDefinition<X> entity, EntityFilterItemBuilder<X, T> builder) {
         return true;
     }
@@ -0,0 +1,17 @@
+package org.grapple.schema;
+
+public interface SchemaVisibilityCache {
+
+    int getMaximumSize();
+
+    int getSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    void clear();
+
+}
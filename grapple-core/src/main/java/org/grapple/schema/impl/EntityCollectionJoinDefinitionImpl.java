@@ -0,0 +1,129 @@
+package org.grapple.schema.impl;
+
+import static graphql.schema.GraphQLArgument.newArgument;
+import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition;
+import static graphql.schema.GraphQLList.list;
+import static graphql.schema.GraphQLNonNull.nonNull;
+import static java.util.Objects.requireNonNull;
+import static org.grapple.schema.impl.RuntimeWiring.entitySelectionCollectionJoinWiring;
+
+import graphql.Scalars;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLTypeReference;
+import org.grapple.core.ElementVisibility;
+import org.grapple.query.EntityCollectionJoin;
+import org.grapple.query.EntityMetadataKeys;
+import org.grapple.schema.EntityCollectionJoinDefinition;
+
+final class EntityCollectionJoinDefinitionImpl<X, Y> implements EntityCollectionJoinDefinition<X, Y> {
+
+    private final EntitySchemaImpl schema;
+
+    private final EntityDefinitionImpl<X> entity;
+
+    private final EntityCollectionJoin<X, Y> join;
+
+    private String fieldName;
+
+    private String description;
+
+    private String deprecationReason;
+
+    private ElementVisibility visibility;
+
+    EntityCollectionJoinDefinitionImpl(EntitySchemaImpl schema, EntityDefinitionImpl<X> entity, EntityCollectionJoin<X, Y> join) {
+        this.schema = requireNonNull(schema, "schema");
+        this.entity = requireNonNull(entity, "entity");
+        this.join = requireNonNull(join, "join");
+        // Initialise default values
+        this.fieldName = join.getName();
+        this.description = join.getMetadata(EntityMetadataKeys.Description);
+        this.deprecationReason = join.getMetadata(EntityMetadataKeys.DeprecationReason);
+        this.visibility = join.getMetadata(EntityMetadataKeys.Visibility);
+    }
+
+    @Override
+    public EntityDefinitionImpl<X> getEntity() {
+        return entity;
+    }
+
+    @Override
+    public EntityCollectionJoin<X, Y> getJoin() {
+        return join;
+    }
+
+    @Override
+    public EntityDefinitionImpl<Y> getJoinedEntity() {
+        return schema.getEntityFor(join.getResultType());
+    }
+
+    @Override
+    public String getName() {
+        return fieldName;
+    }
+
+    @Override
+    public void setName(String fieldName) {
+        requireNonNull(fieldName, "fieldName");
+        this.fieldName = fieldName;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    @Override
+    public String getDeprecationReason() {
+        return deprecationReason;
+    }
+
+    @Override
+    public void setDeprecationReason(String deprecationReason) {
+        this.deprecationReason = deprecationReason;
+    }
+
+    @Override
+    public ElementVisibility getVisibility() {
+        return visibility;
+    }
+
+    @Override
+    public void setVisibility(ElementVisibility visibility) {
+        this.visibility = visibility;
+    }
+
+    GraphQLFieldDefinition build(SchemaBuilderContext ctx) {
+        final EntityDefinitionImpl<Y> targetEntity = getJoinedEntity();
+        if (targetEntity == null) {
+            // Ignore joins to entites not found
+            return null;
+        }
+        ctx.addEntitySelectionWiring(entitySelectionCollectionJoinWiring(entity.getEntityClass(), entity.resolveName(), fieldName, targetEntity.getEntityClass(), join));
+        if (visibility != null) {
+            ctx.getSchemaBuilderElementVisibility().setFieldVisibility(entity.getName(), fieldName, visibility);
+        }
+        final GraphQLFieldDefinition.Builder fieldBuilder = newFieldDefinition()
+                .name(fieldName)
+                .type(nonNull(list(nonNull(targetEntity.getEntityTypeRef()))))
+                .description(description)
+                .deprecate(deprecationReason);
+        // Elements are filtered, ordered and paged per parent
+        final GraphQLTypeReference filterTypeRef = targetEntity.getFilterTypeRef(ctx);
+        if (filterTypeRef != null) {
+            fieldBuilder.argument(newArgument().name("filter").type(filterTypeRef).build());
+        }
+        final GraphQLTypeReference orderByTypeRef = targetEntity.getOrderByTypeRef(ctx);
+        if (orderByTypeRef != null) {
+            fieldBuilder.argument(newArgument().name("orderBy").type(list(nonNull(orderByTypeRef))).build());
+        }
+        fieldBuilder.argument(newArgument().name("offset").type(Scalars.GraphQLInt).build());
+        fieldBuilder.argument(newArgument().name("count").type(Scalars.GraphQLInt).build());
+        return fieldBuilder.build();
+    }
+}
@@ -22,6 +22,7 @@ import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import graphql.Scalars;
+import graphql.scalars.ExtendedScalars;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLInputType;
 import graphql.schema.GraphQLList;
@@ -30,11 +31,13 @@ import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLTypeReference;
 import org.grapple.core.ElementVisibility;
 import org.grapple.core.Validatable;
+import org.grapple.query.EntityCollectionJoin;
 import org.grapple.query.EntityField;
 import org.grapple.query.EntityJoin;
 import org.grapple.query.QueryField;
 import org.grapple.reflect.EntityQueryMetadata.EntityQueryMethodMetadata;
 import org.grapple.reflect.TypeLiteral;
+import org.grapple.schema.EntityCollectionJoinDefinition;
 import org.grapple.schema.EntityDefinition;
 import org.grapple.schema.EntityFieldDefinition;
 import org.grapple.schema.EntityFilterItemDefinition;
@@ -67,6 +70,8 @@ final class EntityDefinitionImpl<X> implements EntityDefinition<X>, Validatable
 
     private final Map<EntityJoin<X, ?>, EntityJoinDefinitionImpl<X, ?>> joins = new NoDuplicatesMap<>();
 
+    private final Map<EntityCollectionJoin<X, ?>, EntityCollectionJoinDefinitionImpl<X, ?>> collectionJoins = new NoDuplicatesMap<>();
+
     private final Set<EntityFilterItemDefinitionImpl<X, ?>> customFilters = new NoDuplicatesSet<>();
 
     private final Set<EntityQueryDefinitionImpl<X>> queries = new NoDuplicatesSet<>();
@@ -159,6 +164,23 @@ final class EntityDefinitionImpl<X> implements EntityDefinition<X>, Validatable
         return readOnlyCopy(joins);
     }
 
+    @Override
+    public <Y> EntityCollectionJoinDefinition<X, Y> addCollectionJoin(EntityCollectionJoin<X, Y> join) {
+        requireNonNull(join, "join");
+        final @SuppressWarnings("unchecked") EntityCollectionJoinDefinitionImpl<X, Y> existing = (EntityCollectionJoinDefinitionImpl<X, Y>) collectionJoins.get(join);
+        if (existing != null) {
+            return existing;
+        }
+        final EntityCollectionJoinDefinitionImpl<X, Y> joinDefinition = new EntityCollectionJoinDefinitionImpl<>(schema, this, join);
+        collectionJoins.put(join, joinDefinition);
+        return joinDefinition;
+    }
+
+    @Override
+    public Map<EntityCollectionJoin<X, ?>, EntityCollectionJoinDefinitionImpl<X, ?>> getCollectionJoins() {
+        return readOnlyCopy(collectionJoins);
+    }
+
     @Override
     public <T> EntityFilterItemDefinitionImpl<X, T> addFilterItem(TypeLiteral<T> fieldType, Consumer<EntityFilterItemDefinition<X, T>> consumer) {
         requireNonNull(fieldType, "fieldType");
@@ -218,7 +240,9 @@ final class EntityDefinitionImpl<X> implements EntityDefinition<X>, Validatable
     }
 
     GraphQLTypeReference getOrderByTypeRef(SchemaBuilderContext ctx) {
-        return ctx.getEntityOrderBy(this).getTypeRef();
+        // Built on demand, as collection joins can reference entities that haven't been built yet
+        final EntityOrderByDefinitionImpl<X> orderByDefinition = buildOrderByType(ctx);
+        return (orderByDefinition != null ? orderByDefinition.getTypeRef() : null);
     }
 
     String resolveContainerName() {
@@ -255,6 +279,13 @@ final class EntityDefinitionImpl<X> implements EntityDefinition<X>, Validatable
             }
         }
 
+        for (EntityCollectionJoinDefinitionImpl<X, ?> collectionJoin: collectionJoins.values()) {
+            final GraphQLFieldDefinition graphQLFieldDefinition = collectionJoin.build(ctx);
+            if (graphQLFieldDefinition != null) {
+                entityBuilder.field(graphQLFieldDefinition);
+            }
+        }
+
         ctx.addEntityType(this, entityBuilder);
 
         buildContainerType(ctx);
@@ -288,7 +319,22 @@ final class EntityDefinitionImpl<X> implements EntityDefinition<X>, Validatable
                         .type(GraphQLNonNull.nonNull(GraphQLList.list(GraphQLNonNull.nonNull(typeRef(resolveName()))))))
                 .field(newFieldDefinition()
                         .name("total")
-                        .type(Scalars.GraphQLInt)));
+                        .type(ExtendedScalars.GraphQLLong))
+                .field(newFieldDefinition()
+                        .name("totalIsExact")
+                        .type(Scalars.GraphQLBoolean))
+                .field(newFieldDefinition()
+                        .name("startCursor")
+                        .type(Scalars.GraphQLString))
+                .field(newFieldDefinition()
+                        .name("endCursor")
+                        .type(Scalars.GraphQLString))
+                .field(newFieldDefinition()
+                        .name("hasNextPage")
+                        .type(Scalars.GraphQLBoolean))
+                .field(newFieldDefinition()
+                        .name("hasPreviousPage")
+                        .type(Scalars.GraphQLBoolean)));
 
     }
 
@@ -1,5 +1,6 @@
 package org.grapple.schema.impl;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
 import static org.grapple.utils.Utils.coalesce;
@@ -10,18 +11,24 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import graphql.language.SelectionSet;
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetchingEnvironment;
 import org.grapple.query.QueryResultList;
+import org.grapple.query.QueryResultListUtils;
 import org.grapple.query.QueryResultRow;
 import org.grapple.query.RootFetchSet;
+import org.grapple.query.TotalResultsMode;
 import org.grapple.schema.EntityQueryExecutionListener.QueryListenerContext;
 import org.grapple.utils.Utils;
 
-final class EntityListQueryDataFetcher<X> implements DataFetcher<Map<String, Object>> {
+final class EntityListQueryDataFetcher<X> implements DataFetcher<Object> {
 
-    private final SchemaBuilderContext ctx;
+    private static final List<String> KEYSET_FIELDS = asList("startCursor", "endCursor", "hasNextPage", "hasPreviousPage");
+
+    private final SchemaRuntime ctx;
 
     private final Class<X> entityClass;
 
@@ -29,7 +36,7 @@ final class EntityListQueryDataFetcher<X> implements DataFetcher<Map<String, Obj
 
     private final Object queryTag;
 
-    EntityListQueryDataFetcher(SchemaBuilderContext ctx, Class<X> entityClass, String queryName, Object queryTag) {
+    EntityListQueryDataFetcher(SchemaRuntime ctx, Class<X> entityClass, String queryName, Object queryTag) {
         this.ctx = requireNonNull(ctx, "ctx");
         this.entityClass = requireNonNull(entityClass, "entityClass");
         this.queryName = requireNonNull(queryName, "queryName");
@@ -37,15 +44,26 @@ final class EntityListQueryDataFetcher<X> implements DataFetcher<Map<String, Obj
     }
 
     @Override
-    public Map<String, Object> get(DataFetchingEnvironment environment) {
-        final SelectionSet selectionSet = SchemaUtils.walkFieldHierachy(environment.getField(), "results");
-        if (selectionSet == null) {
-            return buildResponse(0, 0, 0, emptyList());
+    public Object get(DataFetchingEnvironment environment) {
+        // Returning a future allows sibling root queries to execute in parallel
+        final Executor queryExecutor = ctx.getQueryExecutor();
+        if (queryExecutor != null) {
+            return CompletableFuture.supplyAsync(() -> fetch(environment), queryExecutor);
+        }
+        return fetch(environment);
+    }
+
+    private Map<String, Object> fetch(DataFetchingEnvironment environment) {
+        final SelectionSet selectionSet = SelectionPlan.collectSelectionSet(environment, "results");
+        if (selectionSet == null && !isTotalRequested(environment) && !isKeysetRequested(environment)) {
+            return buildResponse(0, 0, false, QueryResultListUtils.emptyResultList(), emptyList());
         }
-        final RootFetchSet<X> fetchSet = buildFetchSet(environment, selectionSet);
+        // Without results, our fetch set is empty, so is only counted (or only seeks, for cursors)
+        final SelectionPlan<X> selectionPlan = (selectionSet != null ? SelectionPlan.compile(ctx, environment, entityClass, selectionSet) : SelectionPlan.empty());
+        final RootFetchSet<X> fetchSet = buildFetchSet(environment, selectionPlan);
         final QueryListenerContext queryListenerContext = ctx.getEntityQueryExecutionListeners().queryStarted(environment, fetchSet, queryName, queryTag);
         try {
-            final Map<String, Object> response = executeQuery(environment, selectionSet, fetchSet);
+            final Map<String, Object> response = executeQuery(environment, selectionPlan, fetchSet);
             queryListenerContext.complete(response);
             return response;
         }
@@ -55,23 +73,23 @@ final class EntityListQueryDataFetcher<X> implements DataFetcher<Map<String, Obj
         }
     }
 
-    private Map<String, Object> executeQuery(DataFetchingEnvironment environment, SelectionSet selectionSet, RootFetchSet<X> fetchSet) {
+    private Map<String, Object> executeQuery(DataFetchingEnvironment environment, SelectionPlan<X> selectionPlan, RootFetchSet<X> fetchSet) {
         final QueryResultList<X> results = ctx.executeEntityQuery(environment, entityClass, queryName, fetchSet, environment.getArguments());
         requireNonNull(results, "results");
         if (results.getTotalResults() == 0 || results.getRowsRetrieved() == 0) {
-            return buildResponse(fetchSet.getFirstResult(), fetchSet.getMaxResults(), results.getTotalResults(), emptyList());
+            return buildResponse(fetchSet.getFirstResult(), fetchSet.getMaxResults(), fetchSet.isKeysetPagination(), results, emptyList());
         }
         final List<Map<String, Object>> response = new ArrayList<>();
         for (QueryResultRow<X> resultRow : results) {
-            response.add(ctx.parseQueryResponse(environment, entityClass, selectionSet, resultRow));
+            response.add(selectionPlan.resolveResponse(ctx, environment, resultRow));
         }
-        return buildResponse(fetchSet.getFirstResult(), fetchSet.getMaxResults(), results.getTotalResults(), response);
+        return buildResponse(fetchSet.getFirstResult(), fetchSet.getMaxResults(), fetchSet.isKeysetPagination(), results, response);
     }
 
-    private RootFetchSet<X> buildFetchSet(DataFetchingEnvironment environment, SelectionSet selectionSet) {
-        final RootFetchSet<X> fetchSet = SchemaUtils.buildFetchSet(environment, queryName, entityClass);
+    private RootFetchSet<X> buildFetchSet(DataFetchingEnvironment environment, SelectionPlan<X> selectionPlan) {
+        final RootFetchSet<X> fetchSet = SchemaUtils.buildFetchSet(ctx, environment, queryName, entityClass);
         // First add all "selects"
-        ctx.applyEntitySelection(environment, entityClass, fetchSet, selectionSet);
+        selectionPlan.applySelection(ctx, environment, fetchSet);
         final Map<String, Object> arguments = environment.getArguments();
         // Then where clauses
         if (arguments.containsKey("filter")) {
@@ -85,17 +103,44 @@ final class EntityListQueryDataFetcher<X> implements DataFetcher<Map<String, Obj
                 ctx.applyEntityOrderBy(environment, entityClass, fetchSet, args);
             }
         }
-        // Finally first/max results
+        // Finally first/max results (or cursors if keyset paging)
         fetchSet.setFirstResult(coalesce((Integer) arguments.get("offset"), 0));
         fetchSet.setMaxResults(coalesce((Integer) arguments.get("count"), 1024));
+        if (arguments.get("after") != null || arguments.get("before") != null) {
+            if (arguments.get("offset") != null) {
+                throw new IllegalArgumentException("offset cannot be combined with after or before");
+            }
+            fetchSet.setAfterCursor((String) arguments.get("after"));
+            fetchSet.setBeforeCursor((String) arguments.get("before"));
+        }
+        else if (arguments.get("offset") == null && isKeysetRequested(environment)) {
+            // First page of a keyset paginated query
+            fetchSet.setKeysetPagination(true);
+        }
+        // No need to count if total wasn't requested (selection set includes fragments and merged fields)
+        fetchSet.setTotalResultsMode(isTotalRequested(environment) ? ctx.getTotalResultsMode() : TotalResultsMode.NONE);
+        fetchSet.setMaxTotalResults(coalesce((Integer) arguments.get("totalLimit"), Integer.MAX_VALUE));
         return fetchSet;
     }
 
-    private Map<String, Object> buildResponse(int offset, int count, int totalResults, List<Map<String, Object>> results) {
+    private static boolean isTotalRequested(DataFetchingEnvironment environment) {
+        return environment.getSelectionSet().containsAnyOf("total", "totalIsExact");
+    }
+
+    private static boolean isKeysetRequested(DataFetchingEnvironment environment) {
+        return seq(KEYSET_FIELDS).anyMatch(environment.getSelectionSet()::contains);
+    }
+
+    private Map<String, Object> buildResponse(int offset, int count, boolean keysetPagination, QueryResultList<X> queryResults, List<Map<String, Object>> results) {
         final Map<String, Object> response = new HashMap<>();
-        response.put("offset", offset);
+        response.put("offset", (keysetPagination ? null : offset));
         response.put("count", count);
-        response.put("total", totalResults);
+        response.put("total", (queryResults.getTotalResults() >= 0 ? queryResults.getTotalResults() : null));
+        response.put("totalIsExact", (queryResults.getTotalResults() >= 0 ? queryResults.isTotalExact() : null));
+        response.put("startCursor", (keysetPagination ? queryResults.getStartCursor() : null));
+        response.put("endCursor", (keysetPagination ? queryResults.getEndCursor() : null));
+        response.put("hasNextPage", (keysetPagination ? queryResults.hasNextPage() : null));
+        response.put("hasPreviousPage", (keysetPagination ? queryResults.hasPreviousPage() : null));
         response.put("results", results);
         return response;
     }
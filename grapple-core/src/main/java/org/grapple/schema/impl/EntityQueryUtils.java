@@ -80,6 +80,9 @@ final class EntityQueryUtils {
 
             fieldBuilder.argument(newArgument().name("offset").type(Scalars.GraphQLInt).build());
             fieldBuilder.argument(newArgument().name("count").type(Scalars.GraphQLInt).build());
+            fieldBuilder.argument(newArgument().name("totalLimit").type(Scalars.GraphQLInt).build());
+            fieldBuilder.argument(newArgument().name("after").type(Scalars.GraphQLString).build());
+            fieldBuilder.argument(newArgument().name("before").type(Scalars.GraphQLString).build());
         }
 
         for (EntityQueryDefinitionParameter<?> parameter: queryDefinition.getParameters()) {
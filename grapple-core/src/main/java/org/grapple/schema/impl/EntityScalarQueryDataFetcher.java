@@ -3,6 +3,8 @@ package org.grapple.schema.impl;
 import static java.util.Objects.requireNonNull;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import graphql.language.SelectionSet;
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetchingEnvironment;
@@ -11,9 +13,9 @@ import org.grapple.query.RootFetchSet;
 import org.grapple.schema.EntityQueryExecutionListener.QueryListenerContext;
 import org.grapple.schema.NonScalarQueryResultException;
 
-final class EntityScalarQueryDataFetcher<X> implements DataFetcher<Map<String, Object>> {
+final class EntityScalarQueryDataFetcher<X> implements DataFetcher<Object> {
 
-    private final SchemaBuilderContext ctx;
+    private final SchemaRuntime ctx;
 
     private final Class<X> entityClass;
 
@@ -21,7 +23,7 @@ final class EntityScalarQueryDataFetcher<X> implements DataFetcher<Map<String, O
 
     private final Object queryTag;
 
-    EntityScalarQueryDataFetcher(SchemaBuilderContext ctx, Class<X> entityClass, String queryName, Object queryTag) {
+    EntityScalarQueryDataFetcher(SchemaRuntime ctx, Class<X> entityClass, String queryName, Object queryTag) {
         this.ctx = requireNonNull(ctx, "ctx");
         this.entityClass = requireNonNull(entityClass, "entityClass");
         this.queryName = requireNonNull(queryName, "queryName");
@@ -29,17 +31,27 @@ final class EntityScalarQueryDataFetcher<X> implements DataFetcher<Map<String, O
     }
 
     @Override
-    public Map<String, Object> get(DataFetchingEnvironment environment) {
-        final SelectionSet selectionSet = SchemaUtils.walkFieldHierachy(environment.getField());
+    public Object get(DataFetchingEnvironment environment) {
+        // Returning a future allows sibling root queries to execute in parallel
+        final Executor queryExecutor = ctx.getQueryExecutor();
+        if (queryExecutor != null) {
+            return CompletableFuture.supplyAsync(() -> fetch(environment), queryExecutor);
+        }
+        return fetch(environment);
+    }
+
+    private Map<String, Object> fetch(DataFetchingEnvironment environment) {
+        final SelectionSet selectionSet = SelectionPlan.collectSelectionSet(environment);
         if (selectionSet == null) {
             return null;
         }
-        final RootFetchSet<X> fetchSet = SchemaUtils.buildFetchSet(environment, queryName, entityClass);
-        ctx.applyEntitySelection(environment, entityClass, fetchSet, selectionSet);
+        final RootFetchSet<X> fetchSet = SchemaUtils.buildFetchSet(ctx, environment, queryName, entityClass);
+        final SelectionPlan<X> selectionPlan = SelectionPlan.compile(ctx, environment, entityClass, selectionSet);
+        selectionPlan.applySelection(ctx, environment, fetchSet);
         fetchSet.setMaxResults(2); // So we can detect if we have non-unique results
         final QueryListenerContext queryListenerContext = ctx.getEntityQueryExecutionListeners().queryStarted(environment, fetchSet, queryName, queryTag);
         try {
-            final Map<String, Object> response = executeQuery(environment, selectionSet, fetchSet);
+            final Map<String, Object> response = executeQuery(environment, selectionPlan, fetchSet);
             queryListenerContext.complete(response);
             return response;
         }
@@ -49,7 +61,7 @@ final class EntityScalarQueryDataFetcher<X> implements DataFetcher<Map<String, O
         }
     }
 
-    private Map<String, Object> executeQuery(DataFetchingEnvironment environment, SelectionSet selectionSet, RootFetchSet<X> fetchSet) {
+    private Map<String, Object> executeQuery(DataFetchingEnvironment environment, SelectionPlan<X> selectionPlan, RootFetchSet<X> fetchSet) {
         final QueryResultList<X> results = ctx.executeEntityQuery(environment, entityClass, queryName, fetchSet, environment.getArguments());
         if (results == null || results.getRowsRetrieved() == 0) {
             return null;
@@ -57,6 +69,6 @@ final class EntityScalarQueryDataFetcher<X> implements DataFetcher<Map<String, O
         if (results.getRowsRetrieved() != 1) {
             throw new NonScalarQueryResultException(String.format("Scalar query: %s returned multiple rows", queryName));
         }
-        return ctx.parseQueryResponse(environment, entityClass, selectionSet, results.iterator().next());
+        return selectionPlan.resolveResponse(ctx, environment, results.iterator().next());
     }
 }
\ No newline at end of file
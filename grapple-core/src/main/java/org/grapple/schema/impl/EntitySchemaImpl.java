@@ -13,6 +13,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 import graphql.schema.GraphQLInputType;
@@ -22,11 +23,14 @@ import graphql.schema.GraphQLSchema;
 import graphql.schema.GraphQLType;
 import graphql.schema.idl.SchemaPrinter;
 import org.grapple.query.EntityResultType;
+import org.grapple.query.QueryPlanCache;
+import org.grapple.query.TotalResultsMode;
 import org.grapple.reflect.ReflectUtils;
 import org.grapple.reflect.TypeConverter;
 import org.grapple.reflect.TypeLiteral;
 import org.grapple.schema.EntityDefaultNameGenerator;
 import org.grapple.schema.EntityQueryExecutionListener;
+import org.grapple.schema.EntityResponseMode;
 import org.grapple.schema.EntitySchema;
 import org.grapple.schema.EntitySchemaListener;
 import org.grapple.schema.EntitySchemaScannerCallback;
@@ -50,6 +54,16 @@ final class EntitySchemaImpl implements EntitySchema {
 
     private final TypeConverter typeConverter = new TypeConverter();
 
+    private QueryPlanCache queryPlanCache;
+
+    private int schemaVisibilityCacheSize = 64;
+
+    private TotalResultsMode totalResultsMode = TotalResultsMode.EXACT;
+
+    private EntityResponseMode responseMode = EntityResponseMode.MAP;
+
+    private Executor queryExecutor;
+
     private final Map<String, UnmanagedQueryDefinitionImpl> unmanagedQueries = new NoDuplicatesMap<>();
 
     private final Map<Type, UnmanagedTypeDefinitionImpl<?>> unmanagedTypes = new NoDuplicatesMap<>(new LinkedHashMap<>());
@@ -132,6 +146,59 @@ final class EntitySchemaImpl implements EntitySchema {
         return typeConverter;
     }
 
+    @Override
+    public QueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+
+    @Override
+    public void setQueryPlanCache(QueryPlanCache queryPlanCache) {
+        this.queryPlanCache = queryPlanCache; // May be null to disable caching
+    }
+
+    @Override
+    public int getSchemaVisibilityCacheSize() {
+        return schemaVisibilityCacheSize;
+    }
+
+    @Override
+    public void setSchemaVisibilityCacheSize(int schemaVisibilityCacheSize) {
+        if (schemaVisibilityCacheSize < 0) {
+            throw new IllegalArgumentException("schemaVisibilityCacheSize must not be negative");
+        }
+        this.schemaVisibilityCacheSize = schemaVisibilityCacheSize; // May be 0 to disable caching
+    }
+
+    @Override
+    public TotalResultsMode getTotalResultsMode() {
+        return totalResultsMode;
+    }
+
+    @Override
+    public void setTotalResultsMode(TotalResultsMode totalResultsMode) {
+        this.totalResultsMode = requireNonNull(totalResultsMode, "totalResultsMode");
+    }
+
+    @Override
+    public EntityResponseMode getResponseMode() {
+        return responseMode;
+    }
+
+    @Override
+    public void setResponseMode(EntityResponseMode responseMode) {
+        this.responseMode = requireNonNull(responseMode, "responseMode");
+    }
+
+    @Override
+    public Executor getQueryExecutor() {
+        return queryExecutor;
+    }
+
+    @Override
+    public void setQueryExecutor(Executor queryExecutor) {
+        this.queryExecutor = queryExecutor; // May be null to execute synchronously
+    }
+
     @Override
     public void addUnmanagedQuery(String queryAlias, Consumer<UnmanagedQueryDefinition> consumer) {
         requireNonNull(queryAlias, "queryAlias");
@@ -191,6 +258,10 @@ final class EntitySchemaImpl implements EntitySchema {
                 enumTypeBuilder,
                 typeConverter,
                 entityQueryExecutionListeners.copy(),
+                queryPlanCache,
+                totalResultsMode,
+                responseMode,
+                queryExecutor,
                 "Query");
 
         for (UnmanagedTypeDefinitionImpl<?> unmanagedType: unmanagedTypes.values()) {
@@ -208,7 +279,8 @@ final class EntitySchemaImpl implements EntitySchema {
 
         return new EntitySchemaResultImpl(
                 builder.build(),
-                ctx.getSchemaBuilderElementVisibility());
+                ctx.getSchemaBuilderElementVisibility(),
+                schemaVisibilityCacheSize);
     }
 
     @SuppressWarnings("unchecked")
@@ -1,5 +1,6 @@
 package org.grapple.schema.impl;
 
+import com.fasterxml.jackson.databind.Module;
 import org.grapple.schema.EntitySchema;
 
 public final class EntitySchemaProvider {
@@ -11,4 +12,9 @@ public final class EntitySchemaProvider {
     public static EntitySchema newSchema() {
         return new EntitySchemaImpl();
     }
+
+    // Serializes responses of EntityResponseMode.ROW directly from their values
+    public static Module newJacksonModule() {
+        return SelectionPlan.jacksonModule();
+    }
 }
@@ -2,10 +2,12 @@ package org.grapple.schema.impl;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.BitSet;
 import java.util.Set;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.visibility.GraphqlFieldVisibility;
 import org.grapple.schema.EntitySchemaResult;
+import org.grapple.schema.SchemaVisibilityCache;
 
 final class EntitySchemaResultImpl implements EntitySchemaResult {
 
@@ -13,9 +15,12 @@ final class EntitySchemaResultImpl implements EntitySchemaResult {
 
     private final SchemaBuilderElementVisibility schemaBuilderElementVisibility;
 
-    EntitySchemaResultImpl(GraphQLSchema schema, SchemaBuilderElementVisibility schemaBuilderElementVisibility) {
+    private final SchemaVisibilityCacheImpl schemaVisibilityCache;
+
+    EntitySchemaResultImpl(GraphQLSchema schema, SchemaBuilderElementVisibility schemaBuilderElementVisibility, int schemaVisibilityCacheSize) {
         this.schema = requireNonNull(schema, "schema");
         this.schemaBuilderElementVisibility = requireNonNull(schemaBuilderElementVisibility, "schemaBuilderElementVisibility");
+        this.schemaVisibilityCache = new SchemaVisibilityCacheImpl(schemaVisibilityCacheSize);
     }
 
     @Override
@@ -26,7 +31,19 @@ final class EntitySchemaResultImpl implements EntitySchemaResult {
     @Override
     public GraphQLSchema getSchemaWithVisibility(Set<String> rolesHeld) {
         requireNonNull(rolesHeld, "rolesHeld");
-        final GraphqlFieldVisibility graphqlFieldVisibility = schemaBuilderElementVisibility.compileVisibility(rolesHeld);
+        return schemaVisibilityCache.getSchema(schemaBuilderElementVisibility.blockedFields(rolesHeld), this::buildSchemaWithVisibility);
+    }
+
+    @Override
+    public SchemaVisibilityCache getSchemaVisibilityCache() {
+        return schemaVisibilityCache;
+    }
+
+    private GraphQLSchema buildSchemaWithVisibility(BitSet blockedFields) {
+        final GraphqlFieldVisibility graphqlFieldVisibility = schemaBuilderElementVisibility.compileVisibility(blockedFields);
+        if (graphqlFieldVisibility == null) { // Nothing hidden from these roles
+            return schema;
+        }
         return GraphQLSchema.newSchema(schema)
                 .codeRegistry(schema.getCodeRegistry().transform(codeRegistry -> codeRegistry.fieldVisibility(graphqlFieldVisibility)))
                 .build();
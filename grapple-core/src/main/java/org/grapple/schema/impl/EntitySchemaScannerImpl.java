@@ -22,6 +22,7 @@ import org.grapple.invoker.GrappleParameter;
 import org.grapple.invoker.GrappleQuery;
 import org.grapple.metadata.DeprecationReason;
 import org.grapple.metadata.FieldNotExported;
+import org.grapple.query.EntityCollectionJoin;
 import org.grapple.query.EntityField;
 import org.grapple.query.EntityJoin;
 import org.grapple.query.EntityMetadataKeys;
@@ -87,7 +88,7 @@ final class EntitySchemaScannerImpl implements EntitySchemaScanner {
         if (source.isAnnotationPresent(FieldNotExported.class)) {
             return;
         }
-        if ((value instanceof EntityField<?, ?>) || (value instanceof EntityJoin<?, ?>)) {
+        if ((value instanceof EntityField<?, ?>) || (value instanceof EntityJoin<?, ?>) || (value instanceof EntityCollectionJoin<?, ?>)) {
             processEntityFieldOrJoin(source, (Class<?>) getGenericTypeArgument(type, 0), value);
         }
         if (value instanceof Collection<?>) {
@@ -125,6 +126,16 @@ final class EntitySchemaScannerImpl implements EntitySchemaScanner {
             }
             entityDefinition.addJoin(entityJoin).apply(joinDefinition -> scannerCallback.configureJoin(source, joinDefinition));
         }
+        if (value instanceof EntityCollectionJoin<?, ?>) {
+            final @SuppressWarnings("unchecked") EntityCollectionJoin<X, Y> collectionJoin = (EntityCollectionJoin<X, Y>) value;
+            if (Boolean.TRUE.equals(collectionJoin.getMetadata(EntityMetadataKeys.FieldNotExported))) {
+                return;
+            }
+            if (!scannerCallback.acceptCollectionJoin(collectionJoin)) {
+                return;
+            }
+            entityDefinition.addCollectionJoin(collectionJoin).apply(joinDefinition -> scannerCallback.configureCollectionJoin(source, joinDefinition));
+        }
     }
 
     private <X, T> void importFilter(EntityFilterMethodMetadata<X, T> methodMetadata) {
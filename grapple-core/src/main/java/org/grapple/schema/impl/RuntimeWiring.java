@@ -1,6 +1,5 @@
 package org.grapple.schema.impl;
 
-import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 import static org.grapple.utils.Utils.reifyMap;
 import static org.jooq.lambda.Seq.seq;
@@ -9,11 +8,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import graphql.execution.ValuesResolver;
 import graphql.language.Field;
 import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLFieldDefinition;
+import org.grapple.query.EntityCollectionJoin;
 import org.grapple.query.EntityField;
 import org.grapple.query.EntityFilter;
 import org.grapple.query.EntityJoin;
+import org.grapple.query.EntityMetadataKeys;
 import org.grapple.query.FetchSet;
 import org.grapple.query.Filters;
 import org.grapple.query.QueryField;
@@ -25,7 +28,6 @@ import org.grapple.reflect.TypeLiteral;
 import org.grapple.schema.EntityFilterItemResolver;
 import org.grapple.schema.EntityQueryResolver;
 import org.grapple.schema.EntityQueryType;
-import org.grapple.utils.UnexpectedException;
 
 final class RuntimeWiring {
 
@@ -35,9 +37,11 @@ final class RuntimeWiring {
 
         String getFieldName();
 
-        void addSelection(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Field field);
+        Class<?> getJoinedEntityClass(); // Null unless we select a joined entity, whose selection is then planned separately
 
-        Object resolveResponse(SchemaBuilderContext ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow, Field field);
+        void addSelection(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Field field, SelectionPlan<?> joinedPlan);
+
+        Object resolveResponse(SchemaRuntime ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow, Field field, SelectionPlan<?> joinedPlan);
     }
 
     static <X, T> EntitySelectionWiring<X> entitySelectionFieldWiring(Class<X> entityClass, String fieldName, EntityField<X, T> entityField) {
@@ -57,14 +61,19 @@ final class RuntimeWiring {
             }
 
             @Override
-            public void addSelection(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Field field) {
+            public Class<?> getJoinedEntityClass() {
+                return null;
+            }
+
+            @Override
+            public void addSelection(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Field field, SelectionPlan<?> joinedPlan) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(field, "field");
                 fetchSet.select(entityField);
             }
 
             @Override
-            public Object resolveResponse(SchemaBuilderContext ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow, Field field) {
+            public Object resolveResponse(SchemaRuntime ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow, Field field, SelectionPlan<?> joinedPlan) {
                 requireNonNull(resultRow, "resultRow");
                 requireNonNull(field, "field");
                 return resultRow.get(entityField);
@@ -90,24 +99,98 @@ final class RuntimeWiring {
             }
 
             @Override
-            public void addSelection(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Field field) {
+            public Class<?> getJoinedEntityClass() {
+                return joinedEntityClass;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void addSelection(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Field field, SelectionPlan<?> joinedPlan) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(field, "field");
-                ctx.applyEntitySelection(environment, joinedEntityClass, fetchSet.join(entityJoin), field.getSelectionSet());
+                requireNonNull(joinedPlan, "joinedPlan");
+                ((SelectionPlan<Y>) joinedPlan).applySelection(ctx, environment, fetchSet.join(entityJoin));
             }
 
             @Override
-            public Object resolveResponse(SchemaBuilderContext ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow, Field field) {
+            @SuppressWarnings("unchecked")
+            public Object resolveResponse(SchemaRuntime ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow, Field field, SelectionPlan<?> joinedPlan) {
                 requireNonNull(resultRow, "resultRow");
                 requireNonNull(field, "field");
-                if (field.getSelectionSet() == null) {
-                    throw new UnexpectedException(format("Expected selection set for :%s", field));
-                }
+                requireNonNull(joinedPlan, "joinedPlan");
                 final QueryResultRow<Y> joinedResultRow = resultRow.getJoin(entityJoin);
                 if (!joinedResultRow.isExists()) {
                     return null;
                 }
-                return ctx.parseQueryResponse(environment, joinedEntityClass, field.getSelectionSet(), joinedResultRow);
+                if (Boolean.TRUE.equals(entityJoin.getMetadata(EntityMetadataKeys.SharedResponse))) {
+                    return ((SelectionPlan<Y>) joinedPlan).resolveSharedResponse(ctx, environment, joinedResultRow);
+                }
+                return ((SelectionPlan<Y>) joinedPlan).resolveResponse(ctx, environment, joinedResultRow);
+            }
+        };
+    }
+
+    static <X, Y> EntitySelectionWiring<X> entitySelectionCollectionJoinWiring(Class<X> entityClass, String typeName, String fieldName, Class<Y> joinedEntityClass, EntityCollectionJoin<X, Y> collectionJoin) {
+        requireNonNull(entityClass, "entityClass");
+        requireNonNull(typeName, "typeName");
+        requireNonNull(fieldName, "fieldName");
+        requireNonNull(joinedEntityClass, "joinedEntityClass");
+        requireNonNull(collectionJoin, "collectionJoin");
+        return new EntitySelectionWiring<X>() {
+
+            @Override
+            public Class<X> getEntityClass() {
+                return entityClass;
+            }
+
+            @Override
+            public String getFieldName() {
+                return fieldName;
+            }
+
+            @Override
+            public Class<?> getJoinedEntityClass() {
+                return joinedEntityClass;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void addSelection(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Field field, SelectionPlan<?> joinedPlan) {
+                requireNonNull(fetchSet, "fetchSet");
+                requireNonNull(field, "field");
+                requireNonNull(joinedPlan, "joinedPlan");
+                final RootFetchSet<Y> joinedFetchSet = fetchSet.joinCollection(collectionJoin);
+                ((SelectionPlan<Y>) joinedPlan).applySelection(ctx, environment, joinedFetchSet);
+                // Arguments of nested fields aren't resolved by graphql-java until they are fetched, which is too late for us
+                final GraphQLFieldDefinition fieldDefinition = environment.getGraphQLSchema().getObjectType(typeName).getFieldDefinition(fieldName);
+                final Map<String, Object> arguments = new ValuesResolver().getArgumentValues(fieldDefinition.getArguments(), field.getArguments(), environment.getVariables());
+                if (arguments.get("filter") != null) {
+                    joinedFetchSet.filter(ctx.generateEntityFilter(environment, joinedEntityClass, joinedFetchSet, reifyMap((Map<?, ?>) arguments.get("filter"))));
+                }
+                if (arguments.get("orderBy") != null) {
+                    for (Object orderBy: (Collection<?>) arguments.get("orderBy")) {
+                        ctx.applyEntityOrderBy(environment, joinedEntityClass, joinedFetchSet, reifyMap((Map<?, ?>) orderBy));
+                    }
+                }
+                if (arguments.get("offset") != null) {
+                    joinedFetchSet.setFirstResult((Integer) arguments.get("offset"));
+                }
+                if (arguments.get("count") != null) {
+                    joinedFetchSet.setMaxResults((Integer) arguments.get("count"));
+                }
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object resolveResponse(SchemaRuntime ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow, Field field, SelectionPlan<?> joinedPlan) {
+                requireNonNull(resultRow, "resultRow");
+                requireNonNull(field, "field");
+                requireNonNull(joinedPlan, "joinedPlan");
+                final List<Map<String, Object>> response = new ArrayList<>();
+                for (QueryResultRow<Y> joinedResultRow: resultRow.getCollection(collectionJoin)) {
+                    response.add(((SelectionPlan<Y>) joinedPlan).resolveResponse(ctx, environment, joinedResultRow));
+                }
+                return response;
             }
         };
     }
@@ -118,7 +201,7 @@ final class RuntimeWiring {
 
         String getFieldName();
 
-        EntityFilter<X> resolveFilter(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs);
+        EntityFilter<X> resolveFilter(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs);
     }
 
     static <X, T> EntityFilterWiring<X> entityFilterCustomWiring(Class<X> entityClass, String fieldName, TypeLiteral<T> fieldType, EntityFilterItemResolver<X, T> resolver) {
@@ -139,7 +222,7 @@ final class RuntimeWiring {
             }
 
             @Override
-            public EntityFilter<X> resolveFilter(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
+            public EntityFilter<X> resolveFilter(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(rawArgs, "rawArgs");
                 return resolver.get(environment, fetchSet, ctx.convertInput(fieldType, rawArgs));
@@ -166,7 +249,7 @@ final class RuntimeWiring {
             }
 
             @Override
-            public EntityFilter<X> resolveFilter(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
+            public EntityFilter<X> resolveFilter(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(rawArgs, "rawArgs");
                 final Map<String, Object> args = reifyMap((Map<?, ?>) rawArgs);
@@ -193,7 +276,7 @@ final class RuntimeWiring {
             }
 
             @Override
-            public EntityFilter<X> resolveFilter(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
+            public EntityFilter<X> resolveFilter(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(rawArgs, "rawArgs");
                 final Map<String, Object> args = reifyMap((Map<?, ?>) rawArgs);
@@ -218,7 +301,7 @@ final class RuntimeWiring {
             }
 
             @Override
-            public EntityFilter<X> resolveFilter(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
+            public EntityFilter<X> resolveFilter(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(rawArgs, "rawArgs");
                 final List<EntityFilter<X>> filters = new ArrayList<>();
@@ -246,7 +329,7 @@ final class RuntimeWiring {
             }
 
             @Override
-            public EntityFilter<X> resolveFilter(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
+            public EntityFilter<X> resolveFilter(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(rawArgs, "rawArgs");
                 final List<EntityFilter<X>> filters = new ArrayList<>();
@@ -274,7 +357,7 @@ final class RuntimeWiring {
             }
 
             @Override
-            public EntityFilter<X> resolveFilter(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
+            public EntityFilter<X> resolveFilter(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(rawArgs, "rawArgs");
                 final List<EntityFilter<X>> filters = new ArrayList<>();
@@ -294,7 +377,7 @@ final class RuntimeWiring {
 
         EntityQueryType getQueryType();
 
-        QueryResultList<X> executeQuery(SchemaBuilderContext ctx, DataFetchingEnvironment environment, RootFetchSet<X> fetchSet, Map<String, Object> args);
+        QueryResultList<X> executeQuery(SchemaRuntime ctx, DataFetchingEnvironment environment, RootFetchSet<X> fetchSet, Map<String, Object> args);
     }
 
     static <X> EntityQueryWiring<X> entityQueryWiring(Class<X> entityClass, String queryName, EntityQueryType queryType, EntityQueryResolver<X> queryResolver) {
@@ -320,7 +403,7 @@ final class RuntimeWiring {
             }
 
             @Override
-            public QueryResultList<X> executeQuery(SchemaBuilderContext ctx, DataFetchingEnvironment environment, RootFetchSet<X> fetchSet, Map<String, Object> queryParameters) {
+            public QueryResultList<X> executeQuery(SchemaRuntime ctx, DataFetchingEnvironment environment, RootFetchSet<X> fetchSet, Map<String, Object> queryParameters) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(queryParameters, "queryParameters");
                 return queryResolver.execute(environment, fetchSet, queryParameters);
@@ -412,7 +495,7 @@ final class RuntimeWiring {
 
         String getFieldName();
 
-        void applyOrderBy(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object args);
+        void applyOrderBy(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object args);
     }
 
     static <X, T> EntityOrderByWiring<X> entityOrderByFieldWiring(Class<X> entityClass, String fieldName, QueryField<X, T> queryField) {
@@ -432,7 +515,7 @@ final class RuntimeWiring {
             }
 
             @Override
-            public void applyOrderBy(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
+            public void applyOrderBy(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(rawArgs, "rawArgs");
                 fetchSet.orderBy(queryField, (SortDirection) rawArgs);
@@ -458,7 +541,7 @@ final class RuntimeWiring {
             }
 
             @Override
-            public void applyOrderBy(SchemaBuilderContext ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
+            public void applyOrderBy(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet, Object rawArgs) {
                 requireNonNull(fetchSet, "fetchSet");
                 requireNonNull(rawArgs, "rawArgs");
                 final Map<String, Object> args = reifyMap((Map<?, ?>) rawArgs);
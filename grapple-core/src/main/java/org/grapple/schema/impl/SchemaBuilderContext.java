@@ -8,22 +8,18 @@ import static java.util.Objects.requireNonNull;
 import static org.grapple.schema.impl.RuntimeWiring.FieldFilterWiring.fieldFilterWiring;
 import static org.grapple.schema.impl.SchemaBuilderContextUtils.enumTypeCache;
 import static org.grapple.utils.Utils.readOnlyCopy;
-import static org.jooq.lambda.Seq.seq;
 
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import graphql.language.Field;
-import graphql.language.SelectionSet;
+import java.util.concurrent.Executor;
 import graphql.schema.DataFetcher;
-import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.FieldCoordinates;
 import graphql.schema.GraphQLCodeRegistry;
 import graphql.schema.GraphQLEnumType;
@@ -35,20 +31,16 @@ import graphql.schema.GraphQLOutputType;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.GraphQLType;
 import org.grapple.core.ElementVisibility;
-import org.grapple.query.EntityFilter;
 import org.grapple.query.EntityResultType;
-import org.grapple.query.FetchSet;
-import org.grapple.query.Filters;
-import org.grapple.query.QueryField;
-import org.grapple.query.QueryResultList;
-import org.grapple.query.QueryResultRow;
-import org.grapple.query.RootFetchSet;
+import org.grapple.query.QueryPlanCache;
+import org.grapple.query.TotalResultsMode;
 import org.grapple.reflect.ClassLiteral;
 import org.grapple.reflect.ReflectUtils;
 import org.grapple.reflect.TypeConverter;
 import org.grapple.reflect.TypeLiteral;
 import org.grapple.schema.EntityDefinition;
 import org.grapple.schema.EntityQueryType;
+import org.grapple.schema.EntityResponseMode;
 import org.grapple.schema.EnumTypeBuilder;
 import org.grapple.schema.TypeNotMappedException;
 import org.grapple.schema.impl.RuntimeWiring.EntityFilterWiring;
@@ -59,7 +51,6 @@ import org.grapple.schema.impl.RuntimeWiring.EntitySelectionWiring;
 import org.grapple.schema.impl.RuntimeWiring.FieldFilterWiring;
 import org.grapple.schema.impl.SchemaBuilderContextUtils.EnumTypeCache;
 import org.grapple.utils.NoDuplicatesMap;
-import org.grapple.utils.UnexpectedException;
 import org.jooq.lambda.tuple.Tuple2;
 
 final class SchemaBuilderContext implements org.grapple.schema.SchemaBuilderContext {
@@ -76,6 +67,14 @@ final class SchemaBuilderContext implements org.grapple.schema.SchemaBuilderCont
 
     private final EntityQueryExecutionListeners entityQueryExecutionListeners;
 
+    private final QueryPlanCache queryPlanCache;
+
+    private final TotalResultsMode totalResultsMode;
+
+    private final EntityResponseMode responseMode;
+
+    private final Executor queryExecutor;
+
     private final Map<EntityDefinition<?>, GraphQLObjectType.Builder> entityTypes = new HashMap<>();
 
     private final Map<EntityDefinition<?>, GraphQLObjectType.Builder> containerTypes = new HashMap<>();
@@ -117,12 +116,20 @@ final class SchemaBuilderContext implements org.grapple.schema.SchemaBuilderCont
                          EnumTypeBuilder enumTypeBuilder,
                          TypeConverter typeConverter,
                          EntityQueryExecutionListeners entityQueryExecutionListeners,
+                         QueryPlanCache queryPlanCache,
+                         TotalResultsMode totalResultsMode,
+                         EntityResponseMode responseMode,
+                         Executor queryExecutor,
                          String rootQueryTypeName) {
         this.schema = requireNonNull(schema, "schema");
         this.rolesHeld = readOnlyCopy(rolesHeld);
         this.enumTypeCache = enumTypeCache(this, enumTypeBuilder);
         this.typeConverter = requireNonNull(typeConverter, "typeConverter");
         this.entityQueryExecutionListeners = requireNonNull(entityQueryExecutionListeners, "entityQueryExecutionListeners").copy();
+        this.queryPlanCache = queryPlanCache;
+        this.totalResultsMode = requireNonNull(totalResultsMode, "totalResultsMode");
+        this.responseMode = requireNonNull(responseMode, "responseMode");
+        this.queryExecutor = queryExecutor;
         this.rootQueryTypeName = requireNonNull(rootQueryTypeName, "rootQueryTypeName");
         this.schemaBuilderElementVisibility = new SchemaBuilderElementVisibility(rootQueryTypeName);
     }
@@ -193,40 +200,6 @@ final class SchemaBuilderContext implements org.grapple.schema.SchemaBuilderCont
         entitySelectionWirings.put(new Tuple2<>(entitySelectionWiring.getEntityClass(), entitySelectionWiring.getFieldName()), entitySelectionWiring);
     }
 
-    @SuppressWarnings("unchecked")
-    <X> void applyEntitySelection(DataFetchingEnvironment environment, Class<X> entityClass, FetchSet<X> fetchSet, SelectionSet selectionSet) {
-        requireNonNull(environment, "environment");
-        requireNonNull(entityClass, "entityClass");
-        requireNonNull(fetchSet, "fetchSet");
-        requireNonNull(selectionSet, "selectionSet");
-        for (Field field: seq(selectionSet.getSelections()).filter(SchemaUtils::isQueryableField).cast(Field.class)) {
-            final Tuple2<Class<?>, String> selectionKey = new Tuple2<>(entityClass, field.getName());
-            final EntitySelectionWiring<X> selectionWiring = (EntitySelectionWiring<X>) entitySelectionWirings.get(selectionKey);
-            if (selectionWiring == null) {
-                throw new UnexpectedException(format("Entity selection wiring not found: %s", selectionKey));
-            }
-            selectionWiring.addSelection(this, environment, fetchSet, field);
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    <X> Map<String, Object> parseQueryResponse(DataFetchingEnvironment environment, Class<X> entityClass, SelectionSet selectionSet, QueryResultRow<X> resultRow) {
-        requireNonNull(environment, "environment");
-        requireNonNull(entityClass, "entityClass");
-        requireNonNull(selectionSet, "selectionSet");
-        requireNonNull(resultRow, "resultRow");
-        final Map<String, Object> response = new HashMap<>();
-        for (Field field: seq(selectionSet.getSelections()).filter(SchemaUtils::isQueryableField).cast(Field.class)) {
-            final Tuple2<Class<?>, String> selectionKey = new Tuple2<>(entityClass, field.getName());
-            final EntitySelectionWiring<X> selectionWiring = (EntitySelectionWiring<X>) entitySelectionWirings.get(selectionKey);
-            if (selectionWiring == null) {
-                throw new UnexpectedException(format("Entity selection wiring not found: %s", selectionKey));
-            }
-            response.put(field.getName(), selectionWiring.resolveResponse(this, environment, resultRow, field));
-        }
-        return response;
-    }
-
     <X> void addEntityFilterWiring(EntityFilterWiring<X> entityFilterWiring) {
         requireNonNull(entityFilterWiring, "entityFilterWiring");
         entityFilterWirings.put(new Tuple2<>(entityFilterWiring.getEntityClass(), entityFilterWiring.getFieldName()), entityFilterWiring);
@@ -252,53 +225,6 @@ final class SchemaBuilderContext implements org.grapple.schema.SchemaBuilderCont
         entityQueryParameterWirings.put(new Tuple2<>(entityQueryParameterWiring.getQueryName(), entityQueryParameterWiring.getParameterName()), entityQueryParameterWiring);
     }
 
-    @SuppressWarnings("unchecked")
-    <X> QueryResultList<X> executeEntityQuery(DataFetchingEnvironment environment, Class<X> entityClass, String queryName, RootFetchSet<X> fetchSet, Map<String, Object> args) {
-        requireNonNull(entityClass, "entityClass");
-        requireNonNull(queryName, "queryName");
-        requireNonNull(fetchSet, "fetchSet");
-        requireNonNull(args, "args");
-        final EntityQueryWiring<X> queryWiring = (EntityQueryWiring<X>) entityQueryWirings.get(queryName);
-        if (queryWiring == null) {
-            throw new UnexpectedException(format("Entity query wiring not found: %s", queryName));
-        }
-        final Map<String, Object> queryParameters = new HashMap<>();
-        for (Map.Entry<String, Object> arg: args.entrySet()) {
-            final EntityQueryParameterWiring<?> queryParameterWiring = entityQueryParameterWirings.get(new Tuple2<>(queryName, arg.getKey()));
-            if (queryParameterWiring != null) {
-                queryParameters.put(arg.getKey(), typeConverter.convertObjectToType(queryParameterWiring.getParameterType(), arg.getValue()));
-            }
-        }
-        return queryWiring.executeQuery(this, environment, fetchSet, queryParameters);
-    }
-
-    @SuppressWarnings("unchecked")
-    <X> EntityFilter<X> generateEntityFilter(DataFetchingEnvironment environment, Class<X> entityClass, FetchSet<X> fetchSet, Map<String, Object> args) {
-        requireNonNull(environment, "environment");
-        requireNonNull(entityClass, "entityClass");
-        requireNonNull(fetchSet, "fetchSet");
-        requireNonNull(args, "args");
-
-        final List<EntityFilter<X>> filters = new ArrayList<>();
-
-        args.forEach((argName, argValue) -> {
-            if (argName == null || argValue == null) {
-                return;
-            }
-            final Tuple2<Class<?>, String> filterKey = new Tuple2<>(entityClass, argName);
-            final EntityFilterWiring<X> entityFilterWiring = (EntityFilterWiring<X>) entityFilterWirings.get(filterKey);
-            if (entityFilterWiring == null) {
-                throw new UnexpectedException(format("Unmapped entity filter: %s", filterKey));
-            }
-            final EntityFilter<X> entityFilter = entityFilterWiring.resolveFilter(this, environment, fetchSet, argValue);
-            if (entityFilter != null) {
-                filters.add(entityFilter);
-            }
-        });
-
-        return Filters.and(filters);
-    }
-
     @SuppressWarnings("unchecked")
     <T> GeneratedFieldFilter<T> buildFieldFilter(EntityResultType<T> resultType) {
         requireNonNull(resultType, "resultType");
@@ -332,52 +258,6 @@ final class SchemaBuilderContext implements org.grapple.schema.SchemaBuilderCont
         return generatedFilter;
     }
 
-    @SuppressWarnings("unchecked")
-    <X> void applyEntityOrderBy(DataFetchingEnvironment environment, Class<X> entityClass, FetchSet<X> fetchSet, Map<String, Object> args) {
-        requireNonNull(environment, "environment");
-        requireNonNull(entityClass, "entityClass");
-        requireNonNull(fetchSet, "fetchSet");
-        requireNonNull(args, "args");
-
-        args.forEach((argName, argValue) -> {
-            if (argName == null || argValue == null) {
-                return;
-            }
-            final Tuple2<Class<?>, String> orderByKey = new Tuple2<>(entityClass, argName);
-            final EntityOrderByWiring<X> entityOrderByWiring = (EntityOrderByWiring<X>) entityOrderByWirings.get(orderByKey);
-            if (entityOrderByWiring == null) {
-                throw new UnexpectedException(format("Unmapped entity order by item: %s.%s", entityClass.getName(), argName));
-            }
-            entityOrderByWiring.applyOrderBy(this, environment, fetchSet, argValue);
-        });
-    }
-
-    @SuppressWarnings("unchecked")
-    <X, T> EntityFilter<X> generateFieldFilter(DataFetchingEnvironment environment, TypeLiteral<T> filterType, QueryField<X, T> queryField, Map<String, Object> args) {
-        requireNonNull(environment, "environment");
-        requireNonNull(filterType, "filterType");
-        requireNonNull(queryField, "queryField");
-        requireNonNull(args, "args");
-
-        // eg: userName: {id: 1, age: 2, country: 'UK'} -> (id = 1 AND age == 2 AND country == 'UK)
-
-        final List<EntityFilter<X>> filters = new ArrayList<>();
-
-        args.forEach((argName, argValue) -> {
-            if (argName == null || argValue == null) {
-                return;
-            }
-            final Tuple2<TypeLiteral<?>, String> filterKey = new Tuple2<>(filterType, argName);
-            final FieldFilterWiring<T> fieldFilterWiring = (FieldFilterWiring<T>) fieldFilterWirings.get(filterKey);
-            if (fieldFilterWiring == null) {
-                throw new UnexpectedException(format("Unmapped field filter item: %s.%s", filterType.getType().getTypeName(), argName));
-            }
-            filters.add(fieldFilterWiring.resolveFilter(environment, queryField, argValue));
-        });
-
-        return Filters.and(filters);
-    }
-
     GraphQLInputType getInputTypeFor(Type type) {
         requireNonNull(type, "type");
         final GraphQLInputType result = inputTypeCache.computeIfAbsent(type, this::computeInputTypeFor);
@@ -472,7 +352,24 @@ final class SchemaBuilderContext implements org.grapple.schema.SchemaBuilderCont
         }
 
         schemaBuilder.query(buildRootQueryObject());
-        schemaBuilder.codeRegistry(buildCodeRegistry());
+        schemaBuilder.codeRegistry(buildCodeRegistry(buildRuntime()));
+    }
+
+    // All wirings have been registered by now
+    private SchemaRuntime buildRuntime() {
+        return new SchemaRuntime(
+                typeConverter,
+                entityQueryExecutionListeners,
+                queryPlanCache,
+                totalResultsMode,
+                responseMode,
+                queryExecutor,
+                WiringTable.freeze(entitySelectionWirings),
+                WiringTable.freeze(entityFilterWirings),
+                WiringTable.freeze(entityOrderByWirings),
+                WiringTable.NameTable.freeze(entityQueryWirings),
+                WiringTable.freeze(entityQueryParameterWirings),
+                WiringTable.freeze(fieldFilterWirings));
     }
 
     // Query field - the root object of the GraphQL system
@@ -487,16 +384,17 @@ final class SchemaBuilderContext implements org.grapple.schema.SchemaBuilderCont
 
 
     // Code registry is where we define our resolvers
-    private GraphQLCodeRegistry buildCodeRegistry() {
+    private GraphQLCodeRegistry buildCodeRegistry(SchemaRuntime runtime) {
         final GraphQLCodeRegistry.Builder codeRegistry = newCodeRegistry();
+        codeRegistry.defaultDataFetcher(SelectionPlan.responseDataFetcherFactory());
 
         for (EntityQueryWiring<?> entityQueryWiring: entityQueryWirings.values()) {
             final FieldCoordinates fieldCoordinates = coordinates(rootQueryTypeName, entityQueryWiring.getQueryName());
             if (entityQueryWiring.getQueryType() == EntityQueryType.LIST) {
-                codeRegistry.dataFetcher(fieldCoordinates, new EntityListQueryDataFetcher<>(this, entityQueryWiring.getEntityClass(), entityQueryWiring.getQueryName(), null));
+                codeRegistry.dataFetcher(fieldCoordinates, new EntityListQueryDataFetcher<>(runtime, entityQueryWiring.getEntityClass(), entityQueryWiring.getQueryName(), null));
             }
             if (entityQueryWiring.getQueryType() == EntityQueryType.SCALAR_NON_NULL || entityQueryWiring.getQueryType() == EntityQueryType.SCALAR_NULL_ALLOWED) {
-                codeRegistry.dataFetcher(fieldCoordinates, new EntityScalarQueryDataFetcher<>(this, entityQueryWiring.getEntityClass(), entityQueryWiring.getQueryName(), null));
+                codeRegistry.dataFetcher(fieldCoordinates, new EntityScalarQueryDataFetcher<>(runtime, entityQueryWiring.getEntityClass(), entityQueryWiring.getQueryName(), null));
             }
         }
 
@@ -507,14 +405,6 @@ final class SchemaBuilderContext implements org.grapple.schema.SchemaBuilderCont
         return codeRegistry.build();
     }
 
-    public <T> T convertInput(TypeLiteral<T> type, Object object) {
-        return typeConverter.convertObjectToType(type, object);
-    }
-
-    EntityQueryExecutionListeners getEntityQueryExecutionListeners() {
-        return entityQueryExecutionListeners;
-    }
-
     SchemaBuilderElementVisibility getSchemaBuilderElementVisibility() {
         return schemaBuilderElementVisibility;
     }
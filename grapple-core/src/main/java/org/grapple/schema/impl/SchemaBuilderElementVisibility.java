@@ -1,14 +1,17 @@
 package org.grapple.schema.impl;
 
 import static graphql.schema.FieldCoordinates.coordinates;
-import static java.util.Collections.unmodifiableSet;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
 import static org.jooq.lambda.Seq.seq;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import graphql.schema.FieldCoordinates;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLFieldsContainer;
@@ -16,14 +19,19 @@ import graphql.schema.GraphQLInputFieldsContainer;
 import graphql.schema.GraphQLInputObjectField;
 import graphql.schema.visibility.GraphqlFieldVisibility;
 import org.grapple.core.ElementVisibility;
-import org.grapple.utils.NoDuplicatesMap;
 import org.grapple.utils.NoDuplicatesSet;
 
 final class SchemaBuilderElementVisibility {
 
     private final String rootQueryTypeName;
 
-    private final Map<FieldCoordinates, ElementVisibility> fieldVisibility = new NoDuplicatesMap<>();
+    private final Set<FieldCoordinates> fieldCoordinates = new NoDuplicatesSet<>();
+
+    // Visibility of each field, by ordinal
+    private final List<ElementVisibility> fieldVisibility = new ArrayList<>();
+
+    // Ordinal of each field, by type name then field name
+    private final Map<String, Map<String, Integer>> fieldOrdinals = new HashMap<>();
 
     SchemaBuilderElementVisibility(String rootQueryTypeName) {
         this.rootQueryTypeName = requireNonNull(rootQueryTypeName, "rootQueryTypeName");
@@ -39,42 +47,65 @@ final class SchemaBuilderElementVisibility {
         requireNonNull(typeName, "typeName");
         requireNonNull(fieldName, "fieldName");
         requireNonNull(visibility, "visibility");
-        fieldVisibility.put(coordinates(typeName, fieldName), visibility);
+        fieldCoordinates.add(coordinates(typeName, fieldName));
+        fieldOrdinals.computeIfAbsent(typeName, unused -> new HashMap<>()).put(fieldName, fieldVisibility.size());
+        fieldVisibility.add(visibility);
     }
 
-    GraphqlFieldVisibility compileVisibility(Set<String> rolesHeld) {
+    // Ordinals of the fields hidden from these roles
+    BitSet blockedFields(Set<String> rolesHeld) {
         requireNonNull(rolesHeld, "rolesHeld");
-        final Set<FieldCoordinates> blockedFields = new NoDuplicatesSet<>();
-        for (Map.Entry<FieldCoordinates, ElementVisibility> entry: fieldVisibility.entrySet()) {
-            if (!entry.getValue().isVisible(rolesHeld)) {
-                blockedFields.add(entry.getKey());
+        final BitSet blockedFields = new BitSet(fieldVisibility.size());
+        for (int i = 0; i < fieldVisibility.size(); i++) {
+            if (!fieldVisibility.get(i).isVisible(rolesHeld)) {
+                blockedFields.set(i);
             }
         }
-        return new GraphqlFieldVisibilityImpl(blockedFields);
+        return blockedFields;
     }
 
+    // Null if all fields are visible
+    GraphqlFieldVisibility compileVisibility(BitSet blockedFields) {
+        requireNonNull(blockedFields, "blockedFields");
+        if (blockedFields.isEmpty()) {
+            return null;
+        }
+        return new GraphqlFieldVisibilityImpl(fieldOrdinals, blockedFields);
+    }
+
+    // Visible fields are resolved once per type, so lookups don't allocate
     private static final class GraphqlFieldVisibilityImpl implements GraphqlFieldVisibility
     {
-        private final Set<FieldCoordinates> blockedFields;
+        private final Map<String, Map<String, Integer>> fieldOrdinals;
+
+        private final BitSet blockedFields;
+
+        private final Map<String, List<GraphQLFieldDefinition>> visibleFields = new ConcurrentHashMap<>();
 
-        private GraphqlFieldVisibilityImpl(Set<FieldCoordinates> blockedFields) {
-            this.blockedFields = unmodifiableSet(new HashSet<>(blockedFields));
+        private final Map<String, List<GraphQLInputObjectField>> visibleInputFields = new ConcurrentHashMap<>();
+
+        private GraphqlFieldVisibilityImpl(Map<String, Map<String, Integer>> fieldOrdinals, BitSet blockedFields) {
+            this.fieldOrdinals = requireNonNull(fieldOrdinals, "fieldOrdinals");
+            this.blockedFields = requireNonNull(blockedFields, "blockedFields");
         }
 
         @Override
         public List<GraphQLFieldDefinition> getFieldDefinitions(GraphQLFieldsContainer fieldsContainer) {
             requireNonNull(fieldsContainer, "fieldsContainer");
-            final String typeName = fieldsContainer.getName();
-            return seq(fieldsContainer.getFieldDefinitions())
-                    .filter(field -> !blockedFields.contains(coordinates(typeName, field.getName())))
-                    .toList();
+            final Map<String, Integer> typeOrdinals = fieldOrdinals.get(fieldsContainer.getName());
+            if (typeOrdinals == null) {
+                return fieldsContainer.getFieldDefinitions();
+            }
+            return visibleFields.computeIfAbsent(fieldsContainer.getName(), typeName -> unmodifiableList(seq(fieldsContainer.getFieldDefinitions())
+                    .filter(field -> !isBlocked(typeOrdinals, field.getName()))
+                    .toList()));
         }
 
         @Override
         public GraphQLFieldDefinition getFieldDefinition(GraphQLFieldsContainer fieldsContainer, String fieldName) {
             requireNonNull(fieldsContainer, "fieldsContainer");
             requireNonNull(fieldName, "fieldName");
-            if (blockedFields.contains(coordinates(fieldsContainer.getName(), fieldName))) {
+            if (isBlocked(fieldOrdinals.get(fieldsContainer.getName()), fieldName)) {
                 return null;
             }
             return fieldsContainer.getFieldDefinition(fieldName);
@@ -83,20 +114,31 @@ final class SchemaBuilderElementVisibility {
         @Override
         public List<GraphQLInputObjectField> getFieldDefinitions(GraphQLInputFieldsContainer fieldsContainer) {
             requireNonNull(fieldsContainer, "fieldsContainer");
-            final String typeName = fieldsContainer.getName();
-            return seq(fieldsContainer.getFieldDefinitions())
-                    .filter(field -> !blockedFields.contains(coordinates(typeName, field.getName())))
-                    .toList();
+            final Map<String, Integer> typeOrdinals = fieldOrdinals.get(fieldsContainer.getName());
+            if (typeOrdinals == null) {
+                return fieldsContainer.getFieldDefinitions();
+            }
+            return visibleInputFields.computeIfAbsent(fieldsContainer.getName(), typeName -> unmodifiableList(seq(fieldsContainer.getFieldDefinitions())
+                    .filter(field -> !isBlocked(typeOrdinals, field.getName()))
+                    .toList()));
         }
 
         @Override
         public GraphQLInputObjectField getFieldDefinition(GraphQLInputFieldsContainer fieldsContainer, String fieldName) {
             requireNonNull(fieldsContainer, "fieldsContainer");
             requireNonNull(fieldName, "fieldName");
-            if (blockedFields.contains(coordinates(fieldsContainer.getName(), fieldName))) {
+            if (isBlocked(fieldOrdinals.get(fieldsContainer.getName()), fieldName)) {
                 return null;
             }
             return fieldsContainer.getFieldDefinition(fieldName);
         }
+
+        private boolean isBlocked(Map<String, Integer> typeOrdinals, String fieldName) {
+            if (typeOrdinals == null) {
+                return false;
+            }
+            final Integer ordinal = typeOrdinals.get(fieldName);
+            return (ordinal != null && blockedFields.get(ordinal));
+        }
     }
 }
@@ -0,0 +1,216 @@
+package org.grapple.schema.impl;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import graphql.schema.DataFetchingEnvironment;
+import org.grapple.query.EntityFilter;
+import org.grapple.query.FetchSet;
+import org.grapple.query.Filters;
+import org.grapple.query.QueryField;
+import org.grapple.query.QueryPlanCache;
+import org.grapple.query.QueryResultList;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.TotalResultsMode;
+import org.grapple.reflect.TypeConverter;
+import org.grapple.reflect.TypeLiteral;
+import org.grapple.schema.EntityResponseMode;
+import org.grapple.schema.impl.RuntimeWiring.EntityFilterWiring;
+import org.grapple.schema.impl.RuntimeWiring.EntityOrderByWiring;
+import org.grapple.schema.impl.RuntimeWiring.EntityQueryParameterWiring;
+import org.grapple.schema.impl.RuntimeWiring.EntityQueryWiring;
+import org.grapple.schema.impl.RuntimeWiring.EntitySelectionWiring;
+import org.grapple.schema.impl.RuntimeWiring.FieldFilterWiring;
+import org.grapple.schema.impl.WiringTable.NameTable;
+import org.grapple.utils.UnexpectedException;
+
+// Everything our fetchers need once the schema has been generated, so they don't retain (or share) the builder context
+final class SchemaRuntime {
+
+    private final TypeConverter typeConverter;
+
+    private final EntityQueryExecutionListeners entityQueryExecutionListeners;
+
+    private final QueryPlanCache queryPlanCache;
+
+    private final TotalResultsMode totalResultsMode;
+
+    private final EntityResponseMode responseMode;
+
+    private final Executor queryExecutor;
+
+    // Entity Class -> Field Name -> EntitySelectionWiring
+    private final WiringTable<Class<?>, EntitySelectionWiring<?>> entitySelectionWirings;
+
+    // Entity Class -> Field Name -> EntityFilterWiring
+    private final WiringTable<Class<?>, EntityFilterWiring<?>> entityFilterWirings;
+
+    // Entity Class -> Field Name -> EntityOrderByWiring
+    private final WiringTable<Class<?>, EntityOrderByWiring<?>> entityOrderByWirings;
+
+    // Query Name -> EntityQueryWiring
+    private final NameTable<EntityQueryWiring<?>> entityQueryWirings;
+
+    // Query Name -> Parameter Name -> EntityQueryParameterWiring
+    private final WiringTable<String, EntityQueryParameterWiring<?>> entityQueryParameterWirings;
+
+    // Filter Type -> Item Name -> FieldFilterWiring
+    private final WiringTable<TypeLiteral<?>, FieldFilterWiring<?>> fieldFilterWirings;
+
+    SchemaRuntime(TypeConverter typeConverter,
+                  EntityQueryExecutionListeners entityQueryExecutionListeners,
+                  QueryPlanCache queryPlanCache,
+                  TotalResultsMode totalResultsMode,
+                  EntityResponseMode responseMode,
+                  Executor queryExecutor,
+                  WiringTable<Class<?>, EntitySelectionWiring<?>> entitySelectionWirings,
+                  WiringTable<Class<?>, EntityFilterWiring<?>> entityFilterWirings,
+                  WiringTable<Class<?>, EntityOrderByWiring<?>> entityOrderByWirings,
+                  NameTable<EntityQueryWiring<?>> entityQueryWirings,
+                  WiringTable<String, EntityQueryParameterWiring<?>> entityQueryParameterWirings,
+                  WiringTable<TypeLiteral<?>, FieldFilterWiring<?>> fieldFilterWirings) {
+        this.typeConverter = requireNonNull(typeConverter, "typeConverter");
+        this.entityQueryExecutionListeners = requireNonNull(entityQueryExecutionListeners, "entityQueryExecutionListeners");
+        this.queryPlanCache = queryPlanCache;
+        this.totalResultsMode = requireNonNull(totalResultsMode, "totalResultsMode");
+        this.responseMode = requireNonNull(responseMode, "responseMode");
+        this.queryExecutor = queryExecutor;
+        this.entitySelectionWirings = requireNonNull(entitySelectionWirings, "entitySelectionWirings");
+        this.entityFilterWirings = requireNonNull(entityFilterWirings, "entityFilterWirings");
+        this.entityOrderByWirings = requireNonNull(entityOrderByWirings, "entityOrderByWirings");
+        this.entityQueryWirings = requireNonNull(entityQueryWirings, "entityQueryWirings");
+        this.entityQueryParameterWirings = requireNonNull(entityQueryParameterWirings, "entityQueryParameterWirings");
+        this.fieldFilterWirings = requireNonNull(fieldFilterWirings, "fieldFilterWirings");
+    }
+
+    @SuppressWarnings("unchecked")
+    <X> EntitySelectionWiring<X> getEntitySelectionWiring(Class<X> entityClass, String fieldName) {
+        requireNonNull(entityClass, "entityClass");
+        requireNonNull(fieldName, "fieldName");
+        final EntitySelectionWiring<X> selectionWiring = (EntitySelectionWiring<X>) entitySelectionWirings.get(entityClass, fieldName);
+        if (selectionWiring == null) {
+            throw new UnexpectedException(format("Entity selection wiring not found: %s.%s", entityClass.getName(), fieldName));
+        }
+        return selectionWiring;
+    }
+
+    @SuppressWarnings("unchecked")
+    <X> QueryResultList<X> executeEntityQuery(DataFetchingEnvironment environment, Class<X> entityClass, String queryName, RootFetchSet<X> fetchSet, Map<String, Object> args) {
+        requireNonNull(entityClass, "entityClass");
+        requireNonNull(queryName, "queryName");
+        requireNonNull(fetchSet, "fetchSet");
+        requireNonNull(args, "args");
+        final EntityQueryWiring<X> queryWiring = (EntityQueryWiring<X>) entityQueryWirings.get(queryName);
+        if (queryWiring == null) {
+            throw new UnexpectedException(format("Entity query wiring not found: %s", queryName));
+        }
+        final Map<String, Object> queryParameters = new HashMap<>();
+        for (Map.Entry<String, Object> arg: args.entrySet()) {
+            final EntityQueryParameterWiring<?> queryParameterWiring = entityQueryParameterWirings.get(queryName, arg.getKey());
+            if (queryParameterWiring != null) {
+                queryParameters.put(arg.getKey(), typeConverter.convertObjectToType(queryParameterWiring.getParameterType(), arg.getValue()));
+            }
+        }
+        return queryWiring.executeQuery(this, environment, fetchSet, queryParameters);
+    }
+
+    @SuppressWarnings("unchecked")
+    <X> EntityFilter<X> generateEntityFilter(DataFetchingEnvironment environment, Class<X> entityClass, FetchSet<X> fetchSet, Map<String, Object> args) {
+        requireNonNull(environment, "environment");
+        requireNonNull(entityClass, "entityClass");
+        requireNonNull(fetchSet, "fetchSet");
+        requireNonNull(args, "args");
+
+        final List<EntityFilter<X>> filters = new ArrayList<>();
+
+        args.forEach((argName, argValue) -> {
+            if (argName == null || argValue == null) {
+                return;
+            }
+            final EntityFilterWiring<X> entityFilterWiring = (EntityFilterWiring<X>) entityFilterWirings.get(entityClass, argName);
+            if (entityFilterWiring == null) {
+                throw new UnexpectedException(format("Unmapped entity filter: %s.%s", entityClass.getName(), argName));
+            }
+            final EntityFilter<X> entityFilter = entityFilterWiring.resolveFilter(this, environment, fetchSet, argValue);
+            if (entityFilter != null) {
+                filters.add(entityFilter);
+            }
+        });
+
+        return Filters.and(filters);
+    }
+
+    @SuppressWarnings("unchecked")
+    <X> void applyEntityOrderBy(DataFetchingEnvironment environment, Class<X> entityClass, FetchSet<X> fetchSet, Map<String, Object> args) {
+        requireNonNull(environment, "environment");
+        requireNonNull(entityClass, "entityClass");
+        requireNonNull(fetchSet, "fetchSet");
+        requireNonNull(args, "args");
+
+        args.forEach((argName, argValue) -> {
+            if (argName == null || argValue == null) {
+                return;
+            }
+            final EntityOrderByWiring<X> entityOrderByWiring = (EntityOrderByWiring<X>) entityOrderByWirings.get(entityClass, argName);
+            if (entityOrderByWiring == null) {
+                throw new UnexpectedException(format("Unmapped entity order by item: %s.%s", entityClass.getName(), argName));
+            }
+            entityOrderByWiring.applyOrderBy(this, environment, fetchSet, argValue);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    <X, T> EntityFilter<X> generateFieldFilter(DataFetchingEnvironment environment, TypeLiteral<T> filterType, QueryField<X, T> queryField, Map<String, Object> args) {
+        requireNonNull(environment, "environment");
+        requireNonNull(filterType, "filterType");
+        requireNonNull(queryField, "queryField");
+        requireNonNull(args, "args");
+
+        // eg: userName: {id: 1, age: 2, country: 'UK'} -> (id = 1 AND age == 2 AND country == 'UK)
+
+        final List<EntityFilter<X>> filters = new ArrayList<>();
+
+        args.forEach((argName, argValue) -> {
+            if (argName == null || argValue == null) {
+                return;
+            }
+            final FieldFilterWiring<T> fieldFilterWiring = (FieldFilterWiring<T>) fieldFilterWirings.get(filterType, argName);
+            if (fieldFilterWiring == null) {
+                throw new UnexpectedException(format("Unmapped field filter item: %s.%s", filterType.getType().getTypeName(), argName));
+            }
+            filters.add(fieldFilterWiring.resolveFilter(environment, queryField, argValue));
+        });
+
+        return Filters.and(filters);
+    }
+
+    <T> T convertInput(TypeLiteral<T> type, Object object) {
+        return typeConverter.convertObjectToType(type, object);
+    }
+
+    EntityQueryExecutionListeners getEntityQueryExecutionListeners() {
+        return entityQueryExecutionListeners;
+    }
+
+    QueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+
+    TotalResultsMode getTotalResultsMode() {
+        return totalResultsMode;
+    }
+
+    EntityResponseMode getResponseMode() {
+        return responseMode;
+    }
+
+    // Null if root queries are to be executed synchronously
+    Executor getQueryExecutor() {
+        return queryExecutor;
+    }
+}
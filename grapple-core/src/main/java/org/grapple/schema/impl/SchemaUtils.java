@@ -4,11 +4,9 @@ import static graphql.schema.GraphQLNonNull.nonNull;
 import static graphql.schema.GraphQLTypeUtil.isList;
 import static graphql.schema.GraphQLTypeUtil.isNonNull;
 import static java.util.Objects.requireNonNull;
-import static org.jooq.lambda.Seq.seq;
 
 import graphql.language.Field;
 import graphql.language.Node;
-import graphql.language.SelectionSet;
 import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.GraphQLList;
 import graphql.schema.GraphQLNonNull;
@@ -41,33 +39,18 @@ public final class SchemaUtils {
         return (resultType.isNullAllowed() || (unwrappedType instanceof GraphQLNonNull) ? unwrappedType : nonNull(unwrappedType));
     }
 
-    static SelectionSet walkFieldHierachy(Field field, String... paths) {
-        requireNonNull(field, "field");
-        requireNonNull(paths, "paths");
-        for (String path : paths) {
-            final SelectionSet selectionSet = field.getSelectionSet();
-            if (selectionSet == null) {
-                return null;
-            }
-            final Field nextField = seq(selectionSet.getChildren()).filter(SchemaUtils::isQueryableField).cast(Field.class).findFirst(child -> path.equals(child.getName())).orElse(null);
-            if (nextField == null) {
-                return null;
-            }
-            field = nextField;
-        }
-        return field.getSelectionSet();
-    }
-
     static boolean isQueryableField(Node<?> node) {
         // Skip introspection types (types beginning with__)
         return (node instanceof Field) && !((Field) node).getName().startsWith("__");
     }
 
-    static <X> RootFetchSet<X> buildFetchSet(DataFetchingEnvironment environment, String queryName, Class<X> entityClass) {
+    static <X> RootFetchSet<X> buildFetchSet(SchemaRuntime ctx, DataFetchingEnvironment environment, String queryName, Class<X> entityClass) {
+        requireNonNull(ctx, "ctx");
         requireNonNull(environment, "environment");
         requireNonNull(queryName, "queryName");
         requireNonNull(entityClass, "entityClass");
         return QueryProvider.newQuery(entityClass)
+                .setQueryPlanCache(ctx.getQueryPlanCache())
                 .setQueryParameter(GraphQLQueryParameters.QueryName, queryName)
                 .setQueryParameter(GraphQLQueryParameters.Environment, environment)
                 .setQueryParameter(GraphQLQueryParameters.QuerySource, environment.getSource());
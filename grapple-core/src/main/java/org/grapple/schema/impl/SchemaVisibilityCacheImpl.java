@@ -0,0 +1,67 @@
+package org.grapple.schema.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.BitSet;
+import java.util.function.Function;
+import graphql.schema.GraphQLSchema;
+import org.grapple.schema.SchemaVisibilityCache;
+import org.grapple.utils.BoundedCache;
+
+// Schemas are keyed by the fields they hide, rather than by roles held, so that different roles with the same visibility share a schema
+final class SchemaVisibilityCacheImpl implements SchemaVisibilityCache {
+
+    private final BoundedCache<BitSet, GraphQLSchema> schemas;
+
+    SchemaVisibilityCacheImpl(int maximumSize) {
+        this.schemas = new BoundedCache<>(maximumSize);
+    }
+
+    GraphQLSchema getSchema(BitSet blockedFields, Function<BitSet, GraphQLSchema> schemaBuilder) {
+        requireNonNull(blockedFields, "blockedFields");
+        requireNonNull(schemaBuilder, "schemaBuilder");
+        final GraphQLSchema existing = schemas.get(blockedFields);
+        if (existing != null) {
+            return existing;
+        }
+        // Schema is built outside of lock, worst case two threads build the same schema concurrently
+        final GraphQLSchema schema = schemaBuilder.apply(blockedFields);
+        schemas.put(blockedFields, schema);
+        return schema;
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return schemas.getMaximumSize();
+    }
+
+    @Override
+    public int getSize() {
+        return schemas.getSize();
+    }
+
+    @Override
+    public long getHitCount() {
+        return schemas.getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return schemas.getMissCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return schemas.getEvictionCount();
+    }
+
+    @Override
+    public void clear() {
+        schemas.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SchemaVisibilityCache[%s]", schemas);
+    }
+}
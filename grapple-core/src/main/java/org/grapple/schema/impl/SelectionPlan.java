@@ -0,0 +1,345 @@
+package org.grapple.schema.impl;
+
+import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static org.jooq.lambda.Seq.seq;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import graphql.language.Argument;
+import graphql.language.BooleanValue;
+import graphql.language.Directive;
+import graphql.language.DirectivesContainer;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.language.Value;
+import graphql.language.VariableReference;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetcherFactory;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.PropertyDataFetcher;
+import org.grapple.query.FetchSet;
+import org.grapple.query.QueryResultRow;
+import org.grapple.schema.EntityResponseMode;
+import org.grapple.schema.impl.RuntimeWiring.EntitySelectionWiring;
+import org.grapple.utils.UnexpectedException;
+import org.jooq.lambda.Seq;
+
+// Selection set of an entity resolved against our wirings, compiled once per query execution
+// Fragments are expanded, skipped fields removed, and fields merged by result key (so aliases are kept apart)
+final class SelectionPlan<X> {
+
+    private final List<PlannedField<X>> fields;
+
+    // Result Key -> Field Index
+    private final Map<String, Integer> fieldIndexes = new HashMap<>();
+
+    // Responses of shared joins, by primary key of the joined entity
+    private final Map<Object, Map<String, Object>> sharedResponses = new ConcurrentHashMap<>();
+
+    private SelectionPlan(List<PlannedField<X>> fields) {
+        this.fields = unmodifiableList(requireNonNull(fields, "fields"));
+        for (int index = 0; index < fields.size(); index++) {
+            fieldIndexes.put(fields.get(index).field.getResultKey(), index);
+        }
+    }
+
+    void applySelection(SchemaRuntime ctx, DataFetchingEnvironment environment, FetchSet<X> fetchSet) {
+        requireNonNull(fetchSet, "fetchSet");
+        for (PlannedField<X> plannedField: fields) {
+            plannedField.wiring.addSelection(ctx, environment, fetchSet, plannedField.field, plannedField.joinedPlan);
+        }
+    }
+
+    Map<String, Object> resolveResponse(SchemaRuntime ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow) {
+        requireNonNull(resultRow, "resultRow");
+        if (ctx.getResponseMode() == EntityResponseMode.ROW) {
+            return new RowResponse<>(this, ctx, environment, resultRow);
+        }
+        final MapResponse response = new MapResponse(fields.size());
+        for (PlannedField<X> plannedField: fields) {
+            response.put(plannedField.field.getResultKey(), plannedField.resolve(ctx, environment, resultRow));
+        }
+        return response;
+    }
+
+    // Rows joining the same entity reference the same response, which is only resolved once
+    Map<String, Object> resolveSharedResponse(SchemaRuntime ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow) {
+        requireNonNull(resultRow, "resultRow");
+        final Object entityKey = resultRow.getEntityKey();
+        if (entityKey == null) {
+            return resolveResponse(ctx, environment, resultRow);
+        }
+        return sharedResponses.computeIfAbsent(entityKey, unused -> resolveResponse(ctx, environment, resultRow));
+    }
+
+    // Selects nothing, for when only the total of a query was requested
+    static <X> SelectionPlan<X> empty() {
+        return new SelectionPlan<>(emptyList());
+    }
+
+    static <X> SelectionPlan<X> compile(SchemaRuntime ctx, DataFetchingEnvironment environment, Class<X> entityClass, SelectionSet selectionSet) {
+        requireNonNull(ctx, "ctx");
+        requireNonNull(environment, "environment");
+        requireNonNull(entityClass, "entityClass");
+        requireNonNull(selectionSet, "selectionSet");
+        final List<PlannedField<X>> fields = new ArrayList<>();
+        for (Field field: collectFields(environment, selectionSet)) {
+            final EntitySelectionWiring<X> wiring = ctx.getEntitySelectionWiring(entityClass, field.getName());
+            final Class<?> joinedEntityClass = wiring.getJoinedEntityClass();
+            if (joinedEntityClass == null) {
+                fields.add(new PlannedField<>(field, wiring, null));
+                continue;
+            }
+            if (field.getSelectionSet() == null) {
+                throw new UnexpectedException(format("Expected selection set for :%s", field));
+            }
+            fields.add(new PlannedField<>(field, wiring, compile(ctx, environment, joinedEntityClass, field.getSelectionSet())));
+        }
+        return new SelectionPlan<>(fields);
+    }
+
+    // Selections of the field being fetched (or of its children along the given path), including fragments and every field merged with it
+    static SelectionSet collectSelectionSet(DataFetchingEnvironment environment, String... path) {
+        requireNonNull(environment, "environment");
+        requireNonNull(path, "path");
+        List<Field> fields = environment.getMergedField().getFields();
+        for (String name: path) {
+            final List<Field> children = new ArrayList<>();
+            for (Field field: fields) {
+                if (field.getSelectionSet() != null) {
+                    seq(collectFields(environment, field.getSelectionSet())).filter(child -> name.equals(child.getName())).forEach(children::add);
+                }
+            }
+            fields = children;
+        }
+        final SelectionSet.Builder selections = SelectionSet.newSelectionSet();
+        boolean selected = false;
+        for (Field field: fields) {
+            if (field.getSelectionSet() != null) {
+                field.getSelectionSet().getSelections().forEach(selections::selection);
+                selected = true;
+            }
+        }
+        return (selected ? selections.build() : null);
+    }
+
+    // Fields by result key, with the selections of fields sharing a result key merged together
+    private static List<Field> collectFields(DataFetchingEnvironment environment, SelectionSet selectionSet) {
+        final Map<String, List<Field>> fieldsByResultKey = new LinkedHashMap<>();
+        collectFields(environment, selectionSet, fieldsByResultKey);
+        final List<Field> fields = new ArrayList<>();
+        for (List<Field> sameFields: fieldsByResultKey.values()) {
+            fields.add(mergeFields(sameFields));
+        }
+        return fields;
+    }
+
+    private static void collectFields(DataFetchingEnvironment environment, SelectionSet selectionSet, Map<String, List<Field>> fieldsByResultKey) {
+        for (Selection<?> selection: selectionSet.getSelections()) {
+            if (selection instanceof DirectivesContainer<?> && !isIncluded(environment, (DirectivesContainer<?>) selection)) {
+                continue;
+            }
+            if (selection instanceof Field) {
+                final Field field = (Field) selection;
+                if (SchemaUtils.isQueryableField(field)) {
+                    fieldsByResultKey.computeIfAbsent(field.getResultKey(), unused -> new ArrayList<>()).add(field);
+                }
+            }
+            else if (selection instanceof InlineFragment) {
+                // Our entities are object types, so any type condition must be our own type
+                collectFields(environment, ((InlineFragment) selection).getSelectionSet(), fieldsByResultKey);
+            }
+            else if (selection instanceof FragmentSpread) {
+                final FragmentDefinition fragmentDefinition = environment.getFragmentsByName().get(((FragmentSpread) selection).getName());
+                if (fragmentDefinition == null) {
+                    throw new UnexpectedException(format("Fragment not found: %s", ((FragmentSpread) selection).getName()));
+                }
+                collectFields(environment, fragmentDefinition.getSelectionSet(), fieldsByResultKey);
+            }
+        }
+    }
+
+    private static Field mergeFields(List<Field> fields) {
+        if (fields.size() == 1) {
+            return fields.get(0);
+        }
+        final List<Selection<?>> selections = new ArrayList<>();
+        for (Field field: fields) {
+            if (field.getSelectionSet() != null) {
+                for (Selection<?> selection: field.getSelectionSet().getSelections()) {
+                    selections.add(selection);
+                }
+            }
+        }
+        if (selections.isEmpty()) {
+            return fields.get(0);
+        }
+        return fields.get(0).transform(builder -> builder.selectionSet(SelectionSet.newSelectionSet(selections).build()));
+    }
+
+    // Standard @skip and @include directives
+    private static boolean isIncluded(DataFetchingEnvironment environment, DirectivesContainer<?> node) {
+        for (Directive directive: node.getDirectives()) {
+            if ("skip".equals(directive.getName()) && resolveCondition(environment, directive)) {
+                return false;
+            }
+            if ("include".equals(directive.getName()) && !resolveCondition(environment, directive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean resolveCondition(DataFetchingEnvironment environment, Directive directive) {
+        final Argument argument = directive.getArgument("if");
+        final Value<?> value = (argument != null ? argument.getValue() : null);
+        if (value instanceof BooleanValue) {
+            return ((BooleanValue) value).isValue();
+        }
+        if (value instanceof VariableReference) {
+            return Boolean.TRUE.equals(environment.getVariables().get(((VariableReference) value).getName()));
+        }
+        throw new UnexpectedException(format("Unsupported condition for directive: %s", directive));
+    }
+
+    // Entity responses are keyed by result key rather than field name, anything else is fetched as usual
+    static DataFetcherFactory<Object> responseDataFetcherFactory() {
+        return factoryEnvironment -> {
+            final DataFetcher<?> propertyDataFetcher = PropertyDataFetcher.fetching(factoryEnvironment.getFieldDefinition().getName());
+            return environment -> {
+                if (environment.getSource() instanceof SelectionResponse) {
+                    return ((Map<?, ?>) environment.getSource()).get(environment.getField().getResultKey());
+                }
+                return propertyDataFetcher.get(environment);
+            };
+        };
+    }
+
+    private static final class PlannedField<X> {
+
+        private final Field field;
+
+        private final EntitySelectionWiring<X> wiring;
+
+        private final SelectionPlan<?> joinedPlan;
+
+        private PlannedField(Field field, EntitySelectionWiring<X> wiring, SelectionPlan<?> joinedPlan) {
+            this.field = requireNonNull(field, "field");
+            this.wiring = requireNonNull(wiring, "wiring");
+            this.joinedPlan = joinedPlan;
+        }
+
+        private Object resolve(SchemaRuntime ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow) {
+            return wiring.resolveResponse(ctx, environment, resultRow, field, joinedPlan);
+        }
+    }
+
+    // Responses keyed by result key
+    private interface SelectionResponse extends Map<String, Object> {
+
+    }
+
+    private static final class MapResponse extends HashMap<String, Object> implements SelectionResponse {
+
+        private static final long serialVersionUID = 1L;
+
+        private MapResponse(int expectedSize) {
+            super(expectedSize * 2);
+        }
+    }
+
+    // Read only response over the values of a result row, resolved by field index as the row is fetched (so any failure is raised by the query)
+    private static final class RowResponse<X> extends AbstractMap<String, Object> implements SelectionResponse {
+
+        private final SelectionPlan<X> selectionPlan;
+
+        // Resolved values, by field index
+        private final Object[] values;
+
+        private RowResponse(SelectionPlan<X> selectionPlan, SchemaRuntime ctx, DataFetchingEnvironment environment, QueryResultRow<X> resultRow) {
+            this.selectionPlan = requireNonNull(selectionPlan, "selectionPlan");
+            requireNonNull(resultRow, "resultRow");
+            this.values = new Object[selectionPlan.fields.size()];
+            for (int index = 0; index < values.length; index++) {
+                values[index] = selectionPlan.fields.get(index).resolve(ctx, environment, resultRow);
+            }
+        }
+
+        @Override
+        public Object get(Object resultKey) {
+            final Integer index = selectionPlan.fieldIndexes.get(resultKey);
+            return (index != null ? values[index] : null);
+        }
+
+        @Override
+        public boolean containsKey(Object resultKey) {
+            return selectionPlan.fieldIndexes.containsKey(resultKey);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return Seq.range(0, values.length).<Entry<String, Object>> map(index -> new SimpleImmutableEntry<>(selectionPlan.fields.get(index).field.getResultKey(), values[index])).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return values.length;
+                }
+            };
+        }
+
+        // Written field by field, without building entries
+        private void serialize(JsonGenerator generator, SerializerProvider serializerProvider) throws IOException {
+            generator.writeStartObject();
+            for (int index = 0; index < values.length; index++) {
+                generator.writeFieldName(selectionPlan.fields.get(index).field.getResultKey());
+                serializerProvider.defaultSerializeValue(values[index], generator);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    static Module jacksonModule() {
+        final SimpleModule module = new SimpleModule("grapple");
+        module.addSerializer(new StdSerializer<RowResponse<?>>(RowResponse.class, false) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void serialize(RowResponse<?> response, JsonGenerator generator, SerializerProvider serializerProvider) throws IOException {
+                response.serialize(generator, serializerProvider);
+            }
+        });
+        return module;
+    }
+}
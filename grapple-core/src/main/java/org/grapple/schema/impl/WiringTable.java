@@ -0,0 +1,78 @@
+package org.grapple.schema.impl;
+
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jooq.lambda.tuple.Tuple2;
+
+// Read-only wirings by owner (entity class, query name ...) then name, frozen from the wirings registered whilst building the schema
+// Safe for concurrent lookups, which don't allocate
+final class WiringTable<K, W> {
+
+    private final Map<K, NameTable<W>> owners;
+
+    private WiringTable(Map<K, NameTable<W>> owners) {
+        this.owners = requireNonNull(owners, "owners");
+    }
+
+    W get(K owner, String name) {
+        final NameTable<W> nameTable = owners.get(owner);
+        return (nameTable != null ? nameTable.get(name) : null);
+    }
+
+    static <K, W> WiringTable<K, W> freeze(Map<Tuple2<K, String>, ? extends W> wirings) {
+        requireNonNull(wirings, "wirings");
+        final Map<K, Map<String, W>> wiringsByOwner = new LinkedHashMap<>();
+        for (Map.Entry<Tuple2<K, String>, ? extends W> wiring: wirings.entrySet()) {
+            wiringsByOwner.computeIfAbsent(wiring.getKey().v1(), unused -> new LinkedHashMap<>()).put(wiring.getKey().v2(), wiring.getValue());
+        }
+        final Map<K, NameTable<W>> owners = new HashMap<>();
+        wiringsByOwner.forEach((owner, ownerWirings) -> owners.put(owner, NameTable.freeze(ownerWirings)));
+        return new WiringTable<>(owners);
+    }
+
+    // Wirings of a single owner, stored by ordinal (in order of registration)
+    // Names are looked up in a read-only hash map, which uses the hash code strings cache rather than hashing each name per lookup
+    static final class NameTable<W> {
+
+        private final Object[] wirings;
+
+        private final Map<String, Integer> ordinals;
+
+        private NameTable(Object[] wirings, Map<String, Integer> ordinals) {
+            this.wirings = requireNonNull(wirings, "wirings");
+            this.ordinals = requireNonNull(ordinals, "ordinals");
+        }
+
+        // -1 if not found
+        int ordinalOf(String name) {
+            requireNonNull(name, "name");
+            final Integer ordinal = ordinals.get(name);
+            return (ordinal != null ? ordinal : -1);
+        }
+
+        @SuppressWarnings("unchecked")
+        W get(int ordinal) {
+            return (W) wirings[ordinal];
+        }
+
+        W get(String name) {
+            final int ordinal = ordinalOf(name);
+            return (ordinal >= 0 ? get(ordinal) : null);
+        }
+
+        static <W> NameTable<W> freeze(Map<String, ? extends W> wirings) {
+            requireNonNull(wirings, "wirings");
+            final Object[] values = new Object[wirings.size()];
+            final Map<String, Integer> ordinals = new HashMap<>(Math.max((int) (wirings.size() / 0.75f) + 1, 16));
+            for (Map.Entry<String, ? extends W> wiring: wirings.entrySet()) {
+                values[ordinals.size()] = wiring.getValue();
+                ordinals.put(wiring.getKey(), ordinals.size());
+            }
+            return new NameTable<>(values, unmodifiableMap(ordinals));
+        }
+    }
+}
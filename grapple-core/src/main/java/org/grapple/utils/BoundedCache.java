@@ -0,0 +1,92 @@
+package org.grapple.utils;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Least recently used entries are evicted once we exceed our maximum size (zero disables caching)
+public final class BoundedCache<K, V> {
+
+    private final int maximumSize;
+
+    private final Map<K, V> entries;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    public BoundedCache(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative");
+        }
+        this.maximumSize = maximumSize;
+        // Access-ordered, so the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > BoundedCache.this.maximumSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Null (and recorded as a miss) if not present
+    public synchronized V get(K key) {
+        requireNonNull(key, "key");
+        final V value = entries.get(key);
+        if (value == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        requireNonNull(key, "key");
+        requireNonNull(value, "value");
+        if (maximumSize == 0) {
+            return;
+        }
+        entries.put(key, value);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return format("size=%d/%d, hits=%d, misses=%d, evictions=%d", entries.size(), maximumSize, hitCount, missCount, evictionCount);
+    }
+}
@@ -6,10 +6,13 @@ import static java.util.Collections.unmodifiableMap;
 import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -146,6 +149,26 @@ public final class Utils {
         return (source != null ? (!source.isEmpty() ? unmodifiableMap(new HashMap<>(source)) : emptyMap()) : null);
     }
 
+    // Splits values into chunks of at most maxChunkSize (a power of two), each padded to a power of two by repeating its last value
+    // Only suitable for values compared by membership (such as IN lists), where the repeated values make no difference
+    public static <T> List<List<T>> padToPowerOfTwo(Collection<T> values, int maxChunkSize) {
+        requireNonNull(values, "values");
+        if (maxChunkSize < 1 || Integer.bitCount(maxChunkSize) != 1) {
+            throw new IllegalArgumentException("maxChunkSize");
+        }
+        final List<T> source = new ArrayList<>(values);
+        final List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < source.size(); i += maxChunkSize) {
+            final List<T> chunk = new ArrayList<>(source.subList(i, Math.min(i + maxChunkSize, source.size())));
+            final int paddedSize = (chunk.size() == 1 ? 1 : Integer.highestOneBit(chunk.size() - 1) << 1);
+            while (chunk.size() < paddedSize) {
+                chunk.add(chunk.get(chunk.size() - 1));
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
     @FunctionalInterface
     public interface TupleConsumer3<X, Y, Z> {
 
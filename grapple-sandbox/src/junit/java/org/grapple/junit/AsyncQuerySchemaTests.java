@@ -0,0 +1,80 @@
+package org.grapple.junit;
+
+import static org.grapple.query.EntityRootBuilder.entityRoot;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import graphql.GraphQL;
+import org.grapple.invoker.GrappleQuery;
+import org.grapple.query.QueryResultList;
+import org.grapple.query.RootFetchSet;
+import org.grapple.schema.EntitySchemaScannerCallback;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.entity.User;
+
+public class AsyncQuerySchemaTests extends SchemaTestSupport {
+
+    private static final String QUERY = "query { "
+            + "first: listUsersOnOwnEntityManager(count: 3, orderBy: [{id: ASC}]) { total results { id displayName company { id displayName } } } "
+            + "second: listUsersOnOwnEntityManager(offset: 3, count: 3, orderBy: [{id: ASC}]) { total results { id displayName company { id displayName } } } "
+            + "}";
+
+    @Test
+    public void testAsyncResultsMatchSynchronous() {
+        final ExecutorService queryExecutor = Executors.newFixedThreadPool(2);
+        try {
+            final OwnEntityManagerService asyncService = new OwnEntityManagerService(getEntityManagerFactory());
+            final GraphQL asyncGraphQL = buildSchema(asyncService, queryExecutor);
+            final Map<String, Object> synchronous = executeQuery(buildSchema(new OwnEntityManagerService(getEntityManagerFactory()), null), QUERY);
+            assertEquals(3, ((List<?>) ((Map<?, ?>) synchronous.get("first")).get("results")).size());
+            assertEquals(synchronous, executeQuery(asyncGraphQL, QUERY));
+            // Several times, as root queries may complete in either order
+            assertEquals(synchronous, executeQuery(asyncGraphQL, QUERY));
+            assertEquals(synchronous, executeQuery(asyncGraphQL, QUERY));
+            assertFalse(asyncService.threads.isEmpty());
+            assertFalse(asyncService.threads.contains(Thread.currentThread()));
+        }
+        finally {
+            queryExecutor.shutdown();
+        }
+    }
+
+    private GraphQL buildSchema(OwnEntityManagerService service, ExecutorService queryExecutor) {
+        return buildSampleSchema(entitySchema -> {
+            entitySchema.setQueryExecutor(queryExecutor);
+            entitySchema.buildEntitySchemaScanner(new EntitySchemaScannerCallback()).apply(entitySchemaScanner -> entitySchemaScanner.importOperations(service));
+        });
+    }
+
+    // Root queries may run concurrently, so each needs its own entity manager
+    public static final class OwnEntityManagerService {
+
+        private final EntityManagerFactory entityManagerFactory;
+
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        OwnEntityManagerService(EntityManagerFactory entityManagerFactory) {
+            this.entityManagerFactory = entityManagerFactory;
+        }
+
+        @GrappleQuery
+        public QueryResultList<User> listUsersOnOwnEntityManager(RootFetchSet<User> fetches) {
+            threads.add(Thread.currentThread());
+            final EntityManager entityManager = entityManagerFactory.createEntityManager();
+            try {
+                return fetches.execute(entityManager, entityRoot(User.class));
+            }
+            finally {
+                entityManager.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.grapple.junit;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Path;
+import graphql.GraphQL;
+import org.grapple.query.BatchedNonQueryField;
+import org.grapple.query.EntityFieldBuilder;
+import org.grapple.query.EntityResultType;
+import org.grapple.query.QueryResultRow;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.SortDirection;
+import org.grapple.query.impl.QueryProvider;
+import org.grapple.schema.EntitySchemaScannerCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.UserPrivateMessageField;
+import sandbox.grapple.entity.User;
+import sandbox.grapple.entity.UserPrivateMessage;
+import sandbox.grapple.entity.User_;
+
+public class BatchedFieldSchemaTests extends SchemaTestSupport {
+
+    private static final AtomicInteger batchCount = new AtomicInteger();
+
+    public static final BatchedNonQueryField<User, String> Label = EntityFieldBuilder.batchedNonQueryField(fieldBuilder -> fieldBuilder
+            .name("label")
+            .resultType(EntityResultType.nonNull(String.class))
+            .resolver((ctx, queryBuilder) -> {
+                final Path<Integer> userId = ctx.addSelection(ctx.get(User_.id));
+                return tuples -> {
+                    batchCount.incrementAndGet();
+                    final Map<Tuple, String> labels = new HashMap<>();
+                    for (Tuple tuple: tuples) {
+                        labels.put(tuple, "User #" + tuple.get(userId));
+                    }
+                    return labels;
+                };
+            }));
+
+    @BeforeEach
+    public void resetBatchCount() {
+        batchCount.set(0);
+    }
+
+    @Test
+    public void testResolvedOncePerPage() {
+        final List<QueryResultRow<UserPrivateMessage>> messages = messagesWithSenderLabels().setMaxResults(30).execute(getEntityManager(), UserPrivateMessageField.ALL_PRIVATE_MESSAGES).map(row -> row);
+        assertEquals(30, messages.size());
+        assertEquals(1, batchCount.get());
+        assertSenderLabels(getEntityManager(), messages);
+    }
+
+    @Test
+    public void testResolvedOncePerStreamedChunk() {
+        final EntityManager entityManager = getEntityManager();
+        final List<QueryResultRow<UserPrivateMessage>> messages;
+        try (Stream<QueryResultRow<UserPrivateMessage>> stream = messagesWithSenderLabels().setFetchSize(10).setMaxResults(30).stream(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES)) {
+            messages = stream.collect(toList());
+        }
+        assertEquals(30, messages.size());
+        assertEquals(3, batchCount.get());
+        assertSenderLabels(entityManager, messages);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testResolvedOncePerPageInSchema() {
+        final GraphQL graphQL = buildSampleSchema(entitySchema -> entitySchema.buildEntitySchemaScanner(new EntitySchemaScannerCallback()).apply(entitySchemaScanner -> entitySchemaScanner.importDefinitions(BatchedFieldSchemaTests.class)));
+        final Map<String, Object> listUsers = (Map<String, Object>) executeQuery(graphQL, "query { listUsers(count: 5) { results { id label } } }").get("listUsers");
+        final List<Map<String, Object>> users = (List<Map<String, Object>>) listUsers.get("results");
+        assertEquals(5, users.size());
+        for (Map<String, Object> user: users) {
+            assertEquals("User #" + user.get("id"), user.get("label"));
+        }
+        assertEquals(1, batchCount.get());
+    }
+
+    private static RootFetchSet<UserPrivateMessage> messagesWithSenderLabels() {
+        final RootFetchSet<UserPrivateMessage> fetchSet = QueryProvider.newQuery(UserPrivateMessage.class);
+        fetchSet.select(UserPrivateMessageField.ID)
+                .join(UserPrivateMessageField.SENDER, sender -> sender.select(Label))
+                .orderBy(UserPrivateMessageField.ID, SortDirection.ASC);
+        return fetchSet;
+    }
+
+    private static void assertSenderLabels(EntityManager entityManager, List<QueryResultRow<UserPrivateMessage>> messages) {
+        for (QueryResultRow<UserPrivateMessage> message: messages) {
+            final UserPrivateMessage expected = entityManager.find(UserPrivateMessage.class, message.get(UserPrivateMessageField.ID));
+            assertEquals("User #" + expected.getSender().getId(), message.getJoin(UserPrivateMessageField.SENDER).get(Label));
+        }
+    }
+}
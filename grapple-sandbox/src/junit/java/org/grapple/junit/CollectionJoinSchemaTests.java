@@ -0,0 +1,136 @@
+package org.grapple.junit;
+
+import static org.grapple.junit.StatementRecorder.clearStatements;
+import static org.grapple.junit.StatementRecorder.getStatements;
+import static org.grapple.query.EntityRootBuilder.entityRoot;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import graphql.GraphQL;
+import org.grapple.query.EntityCollectionJoin;
+import org.grapple.query.EntityFieldBuilder;
+import org.grapple.query.Filters;
+import org.grapple.query.QueryResultList;
+import org.grapple.query.QueryResultRow;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.SortDirection;
+import org.grapple.query.TotalResultsMode;
+import org.grapple.query.impl.QueryProvider;
+import org.grapple.schema.EntitySchemaScannerCallback;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.CompanyField;
+import sandbox.grapple.UserField;
+import sandbox.grapple.UserPrivateMessageField;
+import sandbox.grapple.entity.User;
+import sandbox.grapple.entity.UserPrivateMessage;
+import sandbox.grapple.entity.UserPrivateMessage_;
+
+public class CollectionJoinSchemaTests extends SchemaTestSupport {
+
+    public static final EntityCollectionJoin<User, UserPrivateMessage> SentMessages = EntityFieldBuilder.collectionJoin(UserPrivateMessage_.sender, fieldBuilder -> fieldBuilder
+            .name("sentMessages"));
+
+    @Test
+    public void testCollectionsFetchedInOneQuery() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<User> fetchSet = usersWithSentMessages(0, Integer.MAX_VALUE);
+        clearStatements();
+        final QueryResultList<User> users = fetchSet.execute(entityManager, entityRoot(User.class));
+        assertEquals(2, getStatements().size());
+        assertSentMessages(entityManager, users, 0, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testPagedCollections() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<User> fetchSet = usersWithSentMessages(1, 2);
+        clearStatements();
+        final QueryResultList<User> users = fetchSet.execute(entityManager, entityRoot(User.class));
+        // Each parent's elements are paged within the same query
+        assertEquals(2, getStatements().size());
+        assertSentMessages(entityManager, users, 1, 2);
+    }
+
+    @Test
+    public void testPagedCollectionsOrderedByJoinsWithTies() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id).orderBy(UserField.Id, SortDirection.ASC).setTotalResultsMode(TotalResultsMode.NONE);
+        fetchSet.joinCollection(SentMessages, messages -> messages
+                .select(UserPrivateMessageField.ID)
+                .join(UserPrivateMessageField.RECIPIENT, recipient -> recipient.join(UserField.Company, company -> company.orderBy(CompanyField.Name, SortDirection.DESC)))
+                .orderBy(UserPrivateMessageField.PRIORITY, SortDirection.ASC)
+                .setFirstResult(3)
+                .setMaxResults(4)
+                .setTotalResultsMode(TotalResultsMode.NONE));
+
+        clearStatements();
+        final QueryResultList<User> users = fetchSet.execute(entityManager, entityRoot(User.class));
+        assertEquals(2, getStatements().size());
+
+        // Ties are broken by primary key
+        for (QueryResultRow<User> user: users) {
+            final List<Object> messageIds = new ArrayList<>();
+            for (QueryResultRow<UserPrivateMessage> message: user.getCollection(SentMessages)) {
+                messageIds.add(message.get(UserPrivateMessageField.ID));
+            }
+            assertEquals(entityManager.createQuery("select m.id from UserPrivateMessage m where m.sender.id = :senderId order by m.recipient.company.displayName desc, m.priority, m.id", Object.class)
+                    .setParameter("senderId", user.get(UserField.Id))
+                    .setFirstResult(3)
+                    .setMaxResults(4)
+                    .getResultList(), messageIds);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPagedCollectionsInSchema() {
+        final EntityManager entityManager = getEntityManager();
+        final GraphQL graphQL = buildSampleSchema(entitySchema -> entitySchema.buildEntitySchemaScanner(new EntitySchemaScannerCallback()).apply(entitySchemaScanner -> entitySchemaScanner.importDefinitions(CollectionJoinSchemaTests.class)));
+        clearStatements();
+        final Map<String, Object> listUsers = (Map<String, Object>) executeQuery(graphQL, "query { listUsers(count: 3, orderBy: [{id: ASC}]) { results { id sentMessages(offset: 1, count: 2, orderBy: [{id: DESC}], filter: {priority: {is: 1}}) { id } } } }").get("listUsers");
+        assertEquals(2, getStatements().size());
+        for (Map<String, Object> user: (List<Map<String, Object>>) listUsers.get("results")) {
+            final List<Object> messageIds = new ArrayList<>();
+            for (Map<String, Object> message: (List<Map<String, Object>>) user.get("sentMessages")) {
+                messageIds.add(message.get("id"));
+            }
+            assertEquals(fetchSentMessageIds(entityManager, (Integer) user.get("id"), 1, 2), messageIds);
+        }
+    }
+
+    private static RootFetchSet<User> usersWithSentMessages(int firstResult, int maxResults) {
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id).orderBy(UserField.Id, SortDirection.ASC).setFirstResult(2).setMaxResults(5).setTotalResultsMode(TotalResultsMode.NONE);
+        fetchSet.joinCollection(SentMessages, messages -> messages
+                .select(UserPrivateMessageField.ID)
+                .filter(Filters.isEqual(UserPrivateMessageField.PRIORITY, 1))
+                .orderBy(UserPrivateMessageField.ID, SortDirection.DESC)
+                .setFirstResult(firstResult)
+                .setMaxResults(maxResults)
+                .setTotalResultsMode(TotalResultsMode.NONE));
+        return fetchSet;
+    }
+
+    private static void assertSentMessages(EntityManager entityManager, QueryResultList<User> users, int firstResult, int maxResults) {
+        assertEquals(5, users.getRowsRetrieved());
+        for (QueryResultRow<User> user: users) {
+            final List<Object> messageIds = new ArrayList<>();
+            for (QueryResultRow<UserPrivateMessage> message: user.getCollection(SentMessages)) {
+                messageIds.add(message.get(UserPrivateMessageField.ID));
+            }
+            assertEquals(fetchSentMessageIds(entityManager, user.get(UserField.Id), firstResult, maxResults), messageIds);
+        }
+    }
+
+    private static List<Object> fetchSentMessageIds(EntityManager entityManager, int senderId, int firstResult, int maxResults) {
+        return entityManager.createQuery("select m.id from UserPrivateMessage m where m.priority = 1 and m.sender.id = :senderId order by m.id desc", Object.class)
+                .setParameter("senderId", senderId)
+                .setFirstResult(firstResult)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+}
@@ -0,0 +1,64 @@
+package org.grapple.junit;
+
+import static org.grapple.junit.StatementRecorder.clearStatements;
+import static org.grapple.junit.StatementRecorder.getStatements;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.grapple.query.EntityJoin;
+import org.grapple.query.EntityResultList;
+import org.grapple.query.Filters;
+import org.grapple.query.QueryResultList;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.SortDirection;
+import org.grapple.query.impl.QueryProvider;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.CompanyField;
+import sandbox.grapple.UserField;
+import sandbox.grapple.UserPrivateMessageField;
+import sandbox.grapple.entity.Company;
+import sandbox.grapple.entity.User;
+import sandbox.grapple.entity.UserPrivateMessage;
+import sandbox.grapple.entity.UserPrivateMessage_;
+
+public class EntityQuerySchemaTests extends SchemaTestSupport {
+
+    @Test
+    public void testEntityQueryMatchesExecute() {
+        final EntityManager entityManager = getEntityManager();
+        final QueryResultList<UserPrivateMessage> rows = unreadMessages(UserField.Company).execute(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES);
+        entityManager.clear();
+
+        clearStatements();
+        final EntityResultList<UserPrivateMessage> entities = unreadMessages(UserField.Company).entityQuery(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES);
+        final List<Object> entityIds = new ArrayList<>();
+        for (UserPrivateMessage message: entities) {
+            entityIds.add(message.getId());
+        }
+        // Joined entities are fetched by the page query itself, through its entity graph
+        assertTrue(getStatements().stream().anyMatch(sql -> sql.contains("user_private_message") && sql.contains("company")));
+
+        assertEquals(rows.map(row -> row.get(UserPrivateMessageField.ID)), entityIds);
+        assertEquals(rows.getTotalResults(), entities.getTotalResults());
+        assertEquals(rows.getRowsRetrieved(), entities.getEntitiesRetrieved());
+    }
+
+    @Test
+    public void testFilteredJoinsAreRejected() {
+        assertThrows(UnsupportedOperationException.class, () -> unreadMessages(UserField.CompanyWithId99).entityQuery(getEntityManager(), UserPrivateMessageField.ALL_PRIVATE_MESSAGES));
+    }
+
+    private static RootFetchSet<UserPrivateMessage> unreadMessages(EntityJoin<User, Company> companyJoin) {
+        final RootFetchSet<UserPrivateMessage> fetchSet = QueryProvider.newQuery(UserPrivateMessage.class);
+        fetchSet.select(UserPrivateMessageField.ID)
+                .join(UserPrivateMessageField.SENDER, sender -> sender.select(UserField.Id).join(companyJoin, company -> company.select(CompanyField.ID)))
+                .filter(Filters.isTrue(UserPrivateMessage_.unread))
+                .orderBy(UserPrivateMessageField.ID, SortDirection.DESC);
+        fetchSet.setFirstResult(3).setMaxResults(7);
+        return fetchSet;
+    }
+}
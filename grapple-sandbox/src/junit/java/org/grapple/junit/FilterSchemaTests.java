@@ -0,0 +1,170 @@
+package org.grapple.junit;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.grapple.junit.StatementRecorder.clearStatements;
+import static org.grapple.junit.StatementRecorder.getStatements;
+import static org.grapple.query.EntityRootBuilder.entityRoot;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import org.grapple.query.EntityFilter;
+import org.grapple.query.Filters;
+import org.grapple.query.QueryBuilder;
+import org.grapple.query.QueryPlanCache;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.SortDirection;
+import org.grapple.query.TotalResultsMode;
+import org.grapple.query.impl.QueryProvider;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.UserField;
+import sandbox.grapple.UserPrivateMessageField;
+import sandbox.grapple.entity.User;
+import sandbox.grapple.entity.UserPrivateMessage;
+
+public class FilterSchemaTests extends SchemaTestSupport {
+
+    @Test
+    public void testManyFiltersAppliedOnce() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id).orderBy(UserField.Id, SortDirection.ASC).setTotalResultsMode(TotalResultsMode.NONE);
+        for (int i = 0; i < 200; i += 2) {
+            final int excludedId = i;
+            fetchSet.filter((ctx, queryBuilder) -> queryBuilder.notEqual(ctx.get(UserField.Id), excludedId));
+        }
+
+        clearStatements();
+        final List<Object> userIds = fetchSet.execute(entityManager, entityRoot(User.class)).map(row -> row.get(UserField.Id));
+        final List<String> statements = getStatements();
+
+        final List<Object> expected = new ArrayList<>();
+        for (Integer userId: entityManager.createQuery("select u.id from User u order by u.id", Integer.class).getResultList()) {
+            if (userId >= 200 || userId % 2 != 0) {
+                expected.add(userId);
+            }
+        }
+        assertEquals(expected, userIds);
+        assertEquals(1, statements.size());
+        assertEquals(100, countOccurrences(statements.get(0), "<>"));
+    }
+
+    @Test
+    public void testNestedJunctionsAreFlattened() {
+        final EntityFilter<User> a = Filters.isNotEqual(UserField.Id, 1);
+        final EntityFilter<User> b = Filters.like(UserField.DisplayName, "User%");
+        final EntityFilter<User> c = Filters.isNotNull(UserField.DisplayName);
+        final EntityFilter<User> nested = Filters.and(a, Filters.and(b, c));
+        final EntityFilter<User> flattened = Filters.and(Filters.and(a, b), c, a);
+
+        assertEquals(nested, flattened);
+        assertEquals(nested.hashCode(), flattened.hashCode());
+        assertEquals(nested.getPlanKey(), flattened.getPlanKey());
+
+        final EntityManager entityManager = getEntityManager();
+        final QueryPlanCache queryPlanCache = QueryProvider.newQueryPlanCache(16);
+        assertEquals(fetchUserIds(entityManager, queryPlanCache, nested), fetchUserIds(entityManager, queryPlanCache, flattened));
+        assertEquals(1, queryPlanCache.getMissCount());
+        assertEquals(1, queryPlanCache.getHitCount());
+    }
+
+    @Test
+    public void testEqualityFiltersMergedIntoIn() {
+        final EntityFilter<User> merged = Filters.or(Filters.isEqual(UserField.Id, 1), Filters.or(Filters.isEqual(UserField.Id, 2), Filters.in(UserField.Id, new HashSet<>(asList(2, 3)))));
+        assertEquals(Filters.in(UserField.Id, new HashSet<>(asList(1, 2, 3))), merged);
+        assertEquals(asList(1, 2, 3), fetchUserIds(getEntityManager(), null, merged));
+
+        // Intersected for AND, down to a single value, or none at all
+        assertEquals(Filters.isEqual(UserField.Id, 2), Filters.and(Filters.in(UserField.Id, new HashSet<>(asList(1, 2))), Filters.in(UserField.Id, new HashSet<>(asList(2, 3)))));
+        final EntityFilter<User> disjoint = Filters.and(Filters.isEqual(UserField.Id, 1), Filters.isEqual(UserField.Id, 2));
+        assertTrue(disjoint.isAlwaysFalse());
+        assertEquals(emptyList(), fetchUserIds(getEntityManager(), null, disjoint));
+    }
+
+    @Test
+    public void testConstantsAndBoundsFolded() {
+        final EntityFilter<User> filter = Filters.isNotEqual(UserField.Id, 1);
+        assertEquals(filter, Filters.and(Filters.alwaysTrue(), filter));
+        assertEquals(filter, Filters.or(Filters.alwaysFalse(), filter));
+        assertTrue(Filters.or(Filters.alwaysTrue(), filter).isAlwaysTrue());
+        assertTrue(Filters.and(Filters.alwaysFalse(), filter).isAlwaysFalse());
+        assertEquals(filter, Filters.not(Filters.not(filter)));
+        assertEquals(Filters.isEqual(UserField.Id, 1), Filters.not(filter));
+
+        // Tightest bound for AND, loosest for OR
+        assertEquals(Filters.greaterThan(UserField.Id, 5), Filters.and(Filters.greaterThan(UserField.Id, 2), Filters.greaterThanOrEqualTo(UserField.Id, 5), Filters.greaterThan(UserField.Id, 5)));
+        assertEquals(Filters.lessThanOrEqualTo(UserField.Id, 5), Filters.or(Filters.lessThan(UserField.Id, 2), Filters.lessThanOrEqualTo(UserField.Id, 5), Filters.lessThan(UserField.Id, 5)));
+
+        final EntityFilter<User> range = Filters.and(Filters.greaterThan(UserField.Id, 2), Filters.greaterThan(UserField.Id, 5), Filters.lessThan(UserField.Id, 9), Filters.alwaysTrue());
+        assertEquals(getEntityManager().createQuery("select u.id from User u where u.id > 5 and u.id < 9 order by u.id", Object.class).getResultList(), fetchUserIds(getEntityManager(), null, range));
+    }
+
+    @Test
+    public void testInListsOfSimilarSizeSharePlan() {
+        final EntityFilter<User> threeValues = Filters.in(UserField.Id, new HashSet<>(asList(1, 2, 3)));
+        final EntityFilter<User> fourValues = Filters.in(UserField.Id, new HashSet<>(asList(4, 5, 6, 7)));
+        assertEquals(threeValues.getPlanKey(), fourValues.getPlanKey());
+
+        final EntityManager entityManager = getEntityManager();
+        final QueryPlanCache queryPlanCache = QueryProvider.newQueryPlanCache(16);
+        clearStatements();
+        assertEquals(asList(1, 2, 3), fetchUserIds(entityManager, queryPlanCache, threeValues));
+        assertEquals(asList(4, 5, 6, 7), fetchUserIds(entityManager, queryPlanCache, fourValues));
+        final List<String> statements = getStatements();
+
+        assertEquals(1, queryPlanCache.getMissCount());
+        assertEquals(1, queryPlanCache.getHitCount());
+        // Both bound as four parameters, so the same statement
+        assertEquals(statements.get(0), statements.get(1));
+        assertEquals(4, countOccurrences(inLists(statements.get(0)), "?"));
+    }
+
+    @Test
+    public void testInListsLargerThanLimitAreChunked() {
+        final EntityManager entityManager = getEntityManager();
+        final Set<Integer> oddIds = new LinkedHashSet<>();
+        for (int i = 1; oddIds.size() < QueryBuilder.MAX_IN_LIST_SIZE + 1; i += 2) {
+            oddIds.add(i);
+        }
+        final RootFetchSet<UserPrivateMessage> fetchSet = QueryProvider.newQuery(UserPrivateMessage.class);
+        fetchSet.select(UserPrivateMessageField.ID)
+                .filter(Filters.in(UserPrivateMessageField.ID, oddIds))
+                .orderBy(UserPrivateMessageField.ID, SortDirection.ASC)
+                .setTotalResultsMode(TotalResultsMode.NONE);
+
+        clearStatements();
+        final List<Object> messageIds = fetchSet.execute(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES).map(row -> row.get(UserPrivateMessageField.ID));
+        final List<String> statements = getStatements();
+
+        assertEquals(entityManager.createQuery("select m.id from UserPrivateMessage m where mod(m.id, 2) = 1 and m.id <= 1025 order by m.id", Object.class).getResultList(), messageIds);
+        assertEquals(1, statements.size());
+        // A full chunk, plus a chunk of the one remaining value
+        assertEquals(QueryBuilder.MAX_IN_LIST_SIZE + 1, countOccurrences(inLists(statements.get(0)), "?"));
+        assertEquals(2, countOccurrences(statements.get(0), " in ("));
+    }
+
+    private static List<Object> fetchUserIds(EntityManager entityManager, QueryPlanCache queryPlanCache, EntityFilter<User> filter) {
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.setQueryPlanCache(queryPlanCache);
+        fetchSet.select(UserField.Id).filter(filter).orderBy(UserField.Id, SortDirection.ASC);
+        return fetchSet.execute(entityManager, entityRoot(User.class)).map(row -> row.get(UserField.Id));
+    }
+
+    private static String inLists(String sql) {
+        return sql.substring(sql.indexOf(" in ("), sql.indexOf(" order by "));
+    }
+
+    private static int countOccurrences(String sql, String token) {
+        int count = 0;
+        for (int index = sql.indexOf(token); index >= 0; index = sql.indexOf(token, index + token.length())) {
+            count++;
+        }
+        return count;
+    }
+}
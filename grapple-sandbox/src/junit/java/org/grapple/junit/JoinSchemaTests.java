@@ -0,0 +1,232 @@
+package org.grapple.junit;
+
+import static org.grapple.junit.StatementRecorder.clearStatements;
+import static org.grapple.junit.StatementRecorder.getStatements;
+import static org.grapple.query.EntityFieldBuilder.expressionJoin;
+import static org.grapple.query.EntityRootBuilder.entityRoot;
+import static org.grapple.query.EntityResultType.nullAllowed;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.grapple.query.EntityJoin;
+import org.grapple.query.Filters;
+import org.grapple.query.QueryResultList;
+import org.grapple.query.QueryResultRow;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.SortDirection;
+import org.grapple.query.impl.QueryProvider;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.CompanyField;
+import sandbox.grapple.UserField;
+import sandbox.grapple.entity.Company;
+import sandbox.grapple.entity.Company_;
+import sandbox.grapple.entity.User;
+
+public class JoinSchemaTests extends SchemaTestSupport {
+
+    public static final EntityJoin<Company, User> Users = expressionJoin(fieldBuilder -> fieldBuilder
+            .name("users")
+            .resultType(nullAllowed(User.class))
+            .expression((ctx, queryBuilder) -> ctx.joinUnshared(Company_.users, tbl -> queryBuilder.conjunction())));
+
+    @Test
+    public void testNoDistinctForToOneJoins() {
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id)
+                .join(UserField.Company, company -> company
+                        .select(CompanyField.Name)
+                        .join(CompanyField.OwnerNullAllowed, owner -> owner.select(UserField.DisplayName)))
+                .orderBy(UserField.Id, SortDirection.ASC);
+
+        clearStatements();
+        final QueryResultList<User> users = fetchSet.execute(getEntityManager(), entityRoot(User.class));
+        final List<String> statements = getStatements();
+
+        assertEquals(getEntityManager().createQuery("select u.id from User u order by u.id", Object.class).getResultList(), users.map(user -> user.get(UserField.Id)));
+        assertFalse(statements.isEmpty());
+        assertTrue(statements.stream().noneMatch(JoinSchemaTests::isDistinct));
+    }
+
+    @Test
+    public void testNoDistinctForJoinsDeclaredToOne() {
+        final RootFetchSet<Company> fetchSet = QueryProvider.newQuery(Company.class);
+        fetchSet.select(CompanyField.ID)
+                .join(CompanyField.UsersWithId99, users -> users.select(UserField.Id))
+                .orderBy(CompanyField.ID, SortDirection.ASC);
+
+        clearStatements();
+        final QueryResultList<Company> companies = fetchSet.execute(getEntityManager(), entityRoot(Company.class));
+        final List<String> statements = getStatements();
+
+        assertEquals(getEntityManager().createQuery("select c.id from Company c order by c.id", Object.class).getResultList(), companies.map(company -> company.get(CompanyField.ID)));
+        assertTrue(statements.stream().noneMatch(JoinSchemaTests::isDistinct));
+    }
+
+    @Test
+    public void testDistinctForToManyJoins() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<Company> fetchSet = QueryProvider.newQuery(Company.class);
+        fetchSet.select(CompanyField.ID)
+                .filter((ctx, queryBuilder) -> queryBuilder.like(ctx.join(Users).get(UserField.DisplayName), "User 1%"))
+                .orderBy(CompanyField.ID, SortDirection.ASC)
+                .setMaxResults(1);
+
+        clearStatements();
+        final QueryResultList<Company> companies = fetchSet.execute(entityManager, entityRoot(Company.class));
+        final List<String> statements = getStatements();
+
+        final List<Object> expected = entityManager.createQuery("select distinct c.id from Company c join c.users u where u.displayName like 'User 1%' order by c.id", Object.class).getResultList();
+        assertEquals(2, expected.size());
+        assertEquals(expected.subList(0, 1), companies.map(company -> company.get(CompanyField.ID)));
+        // Counted distinct as well
+        assertEquals(expected.size(), companies.getTotalResults());
+        assertEquals(2, statements.size());
+        assertTrue(statements.stream().allMatch(JoinSchemaTests::isDistinct));
+    }
+
+    @Test
+    public void testPrimaryKeyJoinsElided() {
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id)
+                .join(UserField.Company, company -> company.select(CompanyField.ID))
+                .orderBy(UserField.Id, SortDirection.ASC);
+
+        clearStatements();
+        final QueryResultList<User> users = fetchSet.execute(getEntityManager(), entityRoot(User.class));
+        final List<String> statements = getStatements();
+
+        final List<Object[]> expected = getEntityManager().createQuery("select u.id, u.company.id from User u order by u.id", Object[].class).getResultList();
+        assertEquals(expected.size(), users.getRowsRetrieved());
+        int index = 0;
+        for (QueryResultRow<User> user: users) {
+            assertEquals(expected.get(index)[0], user.get(UserField.Id));
+            assertEquals(expected.get(index)[1], user.getJoin(UserField.Company).get(CompanyField.ID));
+            index++;
+        }
+        // The foreign key stands in for the joined primary key
+        assertTrue(statements.stream().noneMatch(sql -> sql.contains(" join ")));
+    }
+
+    @Test
+    public void testRepeatedJoinsShared() {
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id)
+                .join(UserField.Company, company -> company.select(CompanyField.Name))
+                .filter((ctx, queryBuilder) -> queryBuilder.isNotNull(ctx.join(UserField.Company).get(CompanyField.Name)))
+                .filter(Filters.rebase(UserField.Company, Filters.isNotNull(CompanyField.Name)))
+                .orderBy(UserField.Id, SortDirection.ASC);
+
+        clearStatements();
+        final QueryResultList<User> users = fetchSet.execute(getEntityManager(), entityRoot(User.class));
+        final List<String> statements = getStatements();
+
+        assertEquals(getEntityManager().createQuery("select u.id from User u where u.company.displayName is not null order by u.id", Object.class).getResultList(), users.map(user -> user.get(UserField.Id)));
+        assertFalse(statements.isEmpty());
+        assertTrue(statements.stream().allMatch(sql -> countOccurrences(sql, " join ") == 1));
+    }
+
+    @Test
+    public void testInnerJoinsForRequiredEntities() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id)
+                .join(UserField.Company, company -> company
+                        .select(CompanyField.Name)
+                        .join(CompanyField.OwnerNullAllowed, owner -> owner.select(UserField.DisplayName)))
+                .orderBy(UserField.Id, SortDirection.ASC);
+
+        clearStatements();
+        fetchSet.execute(entityManager, entityRoot(User.class));
+        final String sql = getStatements().get(0);
+        // Companies can't be null, but their owners can
+        assertEquals(1, countOccurrences(sql, "inner join"));
+        assertEquals(1, countOccurrences(sql, "left outer join"));
+
+        // Unless a filter requires them
+        fetchSet.join(UserField.Company, company -> company.filter(Filters.rebase(CompanyField.OwnerNullAllowed, Filters.like(UserField.DisplayName, "%"))));
+        clearStatements();
+        final QueryResultList<User> users = fetchSet.execute(entityManager, entityRoot(User.class));
+        final String filteredSql = getStatements().get(0);
+        assertEquals(2, countOccurrences(filteredSql, "inner join"));
+        assertEquals(0, countOccurrences(filteredSql, "left outer join"));
+        assertEquals(entityManager.createQuery("select u.id from User u where u.company.owner.displayName like '%' order by u.id", Object.class).getResultList(), users.map(user -> user.get(UserField.Id)));
+    }
+
+    @Test
+    public void testFilterOnlyJoinsUseExists() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<Company> fetchSet = QueryProvider.newQuery(Company.class);
+        fetchSet.select(CompanyField.ID)
+                .filter(Filters.rebase(Users, Filters.like(UserField.DisplayName, "User 1%")))
+                .orderBy(CompanyField.ID, SortDirection.ASC)
+                .setMaxResults(1);
+
+        clearStatements();
+        final QueryResultList<Company> companies = fetchSet.execute(entityManager, entityRoot(Company.class));
+        final List<String> statements = getStatements();
+
+        final List<Object> expected = entityManager.createQuery("select distinct c.id from Company c join c.users u where u.displayName like 'User 1%' order by c.id", Object.class).getResultList();
+        assertEquals(expected.subList(0, 1), companies.map(company -> company.get(CompanyField.ID)));
+        assertEquals(expected.size(), companies.getTotalResults());
+        // Users are only joined within the subquery, so rows aren't widened and need no distinct
+        assertEquals(2, statements.size());
+        for (String sql: statements) {
+            assertTrue(sql.contains("exists"));
+            assertFalse(isDistinct(sql));
+            assertFalse(sql.substring(0, sql.indexOf("exists")).contains(" join "));
+        }
+    }
+
+    @Test
+    public void testNegatedFilterOnlyJoinsAreJoined() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<Company> fetchSet = QueryProvider.newQuery(Company.class);
+        fetchSet.select(CompanyField.ID)
+                .filter(Filters.not(Filters.rebase(Users, Filters.like(UserField.DisplayName, "User 1%"))))
+                .orderBy(CompanyField.ID, SortDirection.ASC);
+
+        clearStatements();
+        final QueryResultList<Company> companies = fetchSet.execute(entityManager, entityRoot(Company.class));
+        final List<String> statements = getStatements();
+
+        // Companies without users never match, and companies match if any of their users doesn't
+        final List<Object> expected = entityManager.createQuery("select distinct c.id from Company c join c.users u where u.displayName not like 'User 1%' order by c.id", Object.class).getResultList();
+        assertFalse(expected.isEmpty());
+        assertTrue(expected.size() < entityManager.createQuery("select count(c) from Company c", Long.class).getSingleResult());
+        assertEquals(expected, companies.map(company -> company.get(CompanyField.ID)));
+        assertTrue(statements.stream().noneMatch(sql -> sql.contains("exists")));
+    }
+
+    @Test
+    public void testFetchedJoinsAreFilteredInPlace() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<Company> fetchSet = QueryProvider.newQuery(Company.class);
+        fetchSet.select(CompanyField.ID)
+                .join(Users, users -> users.select(UserField.Id))
+                .filter(Filters.rebase(Users, Filters.like(UserField.DisplayName, "User 1%")))
+                .orderBy(CompanyField.ID, SortDirection.ASC);
+
+        clearStatements();
+        final QueryResultList<Company> companies = fetchSet.execute(entityManager, entityRoot(Company.class));
+        final String sql = getStatements().get(0);
+
+        final List<Object> expected = entityManager.createQuery("select c.id from Company c join c.users u where u.displayName like 'User 1%' order by c.id", Object.class).getResultList();
+        assertEquals(expected, companies.map(company -> company.get(CompanyField.ID)));
+        assertFalse(sql.contains("exists"));
+    }
+
+    private static boolean isDistinct(String sql) {
+        return sql.toLowerCase().contains("distinct");
+    }
+
+    private static int countOccurrences(String sql, String token) {
+        int count = 0;
+        for (int index = sql.indexOf(token); index >= 0; index = sql.indexOf(token, index + token.length())) {
+            count++;
+        }
+        return count;
+    }
+}
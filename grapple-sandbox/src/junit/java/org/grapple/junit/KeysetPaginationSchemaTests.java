@@ -0,0 +1,153 @@
+package org.grapple.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import graphql.GraphQL;
+import org.grapple.query.QueryResultList;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.SortDirection;
+import org.grapple.query.impl.QueryProvider;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.UserPrivateMessageField;
+import sandbox.grapple.entity.UserPrivateMessage;
+import sandbox.grapple.entity.UserPrivateMessage_;
+
+public class KeysetPaginationSchemaTests extends SchemaTestSupport {
+
+    private static final int PAGE_SIZE = 3;
+
+    @Test
+    public void testForwardPagesMatchOffsetPages() {
+        final GraphQL graphQL = buildSampleSchema();
+        final List<Object> expected = getIds(getListUsers(executeQuery(graphQL, "query { listUsers(orderBy: [{displayName: DESC}]) { results { id } } }")));
+
+        final List<Object> ids = new ArrayList<>();
+        String cursor = null;
+        while (true) {
+            final Map<String, Object> page = getListUsers(executeQuery(graphQL, "query { listUsers(count: " + PAGE_SIZE + ", orderBy: [{displayName: DESC}]" + (cursor != null ? ", after: \"" + cursor + "\"" : "") + ") { endCursor hasNextPage results { id } } }"));
+            ids.addAll(getIds(page));
+            if (!((Boolean) page.get("hasNextPage"))) {
+                break;
+            }
+            cursor = (String) page.get("endCursor");
+        }
+
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    public void testBackwardPagesMatchForwardPages() {
+        final GraphQL graphQL = buildSampleSchema();
+        final Map<String, Object> allUsers = getListUsers(executeQuery(graphQL, "query { listUsers(count: 10000, orderBy: [{displayName: ASC}]) { endCursor hasNextPage hasPreviousPage results { id } } }"));
+        final List<Object> expected = getIds(allUsers);
+        assertFalse((Boolean) allUsers.get("hasNextPage"));
+        assertFalse((Boolean) allUsers.get("hasPreviousPage"));
+
+        // Walk backwards from (but excluding) the last user
+        final List<Object> ids = new ArrayList<>();
+        String cursor = (String) allUsers.get("endCursor");
+        while (true) {
+            final Map<String, Object> page = getListUsers(executeQuery(graphQL, "query { listUsers(count: " + PAGE_SIZE + ", orderBy: [{displayName: ASC}], before: \"" + cursor + "\") { startCursor hasPreviousPage results { id } } }"));
+            ids.addAll(0, getIds(page));
+            if (!((Boolean) page.get("hasPreviousPage"))) {
+                break;
+            }
+            cursor = (String) page.get("startCursor");
+        }
+        ids.add(expected.get(expected.size() - 1));
+
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    public void testDuplicateAndNullSortKeys() {
+        final EntityManager entityManager = getEntityManager();
+        for (SortDirection direction: SortDirection.values()) {
+            final QueryResultList<UserPrivateMessage> allMessages = messagesByPriorityAndSubject(direction).execute(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES);
+            final List<Object> expected = allMessages.map(row -> row.get(UserPrivateMessageField.ID));
+
+            final List<Object> forward = new ArrayList<>();
+            String cursor = null;
+            while (true) {
+                final QueryResultList<UserPrivateMessage> page = messagesByPriorityAndSubject(direction).setMaxResults(13).setAfterCursor(cursor).execute(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES);
+                forward.addAll(page.map(row -> row.get(UserPrivateMessageField.ID)));
+                if (!page.hasNextPage()) {
+                    break;
+                }
+                cursor = page.getEndCursor();
+            }
+
+            final List<Object> backward = new ArrayList<>();
+            cursor = allMessages.getEndCursor();
+            while (true) {
+                final QueryResultList<UserPrivateMessage> page = messagesByPriorityAndSubject(direction).setMaxResults(13).setBeforeCursor(cursor).execute(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES);
+                backward.addAll(0, page.map(row -> row.get(UserPrivateMessageField.ID)));
+                if (!page.hasPreviousPage()) {
+                    break;
+                }
+                cursor = page.getStartCursor();
+            }
+            backward.add(expected.get(expected.size() - 1));
+
+            assertEquals(expected.size(), new HashSet<>(expected).size());
+            assertEquals(expected, forward);
+            assertEquals(expected, backward);
+        }
+    }
+
+    @Test
+    public void testOffsetRejectedWithCursor() {
+        final GraphQL graphQL = buildSampleSchema();
+        final String cursor = (String) getListUsers(executeQuery(graphQL, "query { listUsers(count: 1) { endCursor results { id } } }")).get("endCursor");
+        assertTrue(cursor != null);
+        assertFalse(graphQL.execute("query { listUsers(offset: 1, after: \"" + cursor + "\") { results { id } } }").getErrors().isEmpty());
+    }
+
+    @Test
+    public void testCursorsWithoutResults() {
+        final GraphQL graphQL = buildSampleSchema();
+        final String query = "query { listUsers(count: " + PAGE_SIZE + ", orderBy: [{displayName: DESC}]%s) { startCursor endCursor hasNextPage hasPreviousPage%s } }";
+        final Map<String, Object> withResults = getListUsers(executeQuery(graphQL, String.format(query, "", " results { id }")));
+        final Map<String, Object> withoutResults = getListUsers(executeQuery(graphQL, String.format(query, "", "")));
+        assertTrue(withoutResults.get("endCursor") != null);
+        assertEquals(true, withoutResults.get("hasNextPage"));
+        withResults.remove("results");
+        assertEquals(withResults, withoutResults);
+
+        // Following pages as well
+        final Map<String, Object> lastPage = getListUsers(executeQuery(graphQL, "query { listUsers(count: 1000, orderBy: [{displayName: DESC}], after: \"" + withoutResults.get("endCursor") + "\") { hasNextPage hasPreviousPage } }"));
+        assertEquals(false, lastPage.get("hasNextPage"));
+        assertEquals(true, lastPage.get("hasPreviousPage"));
+    }
+
+    // Subject is nullable, and both sort keys contain duplicates
+    private static RootFetchSet<UserPrivateMessage> messagesByPriorityAndSubject(SortDirection direction) {
+        final RootFetchSet<UserPrivateMessage> fetchSet = QueryProvider.newQuery(UserPrivateMessage.class);
+        fetchSet.select(UserPrivateMessageField.ID)
+                .orderBy(UserPrivateMessageField.PRIORITY, direction)
+                .orderBy(ctx -> ctx.get(UserPrivateMessage_.subject), direction);
+        fetchSet.setKeysetPagination(true);
+        return fetchSet;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getListUsers(Map<String, Object> data) {
+        return (Map<String, Object>) data.get("listUsers");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> getIds(Map<String, Object> listUsers) {
+        final List<Object> ids = new ArrayList<>();
+        for (Map<String, Object> result: (List<Map<String, Object>>) listUsers.get("results")) {
+            ids.add(result.get("id"));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,69 @@
+package org.grapple.junit;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.grapple.query.EntityRootBuilder.entityRoot;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import graphql.GraphQL;
+import org.grapple.query.EntityFilter;
+import org.grapple.query.Filters;
+import org.grapple.query.QueryPlanCache;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.SortDirection;
+import org.grapple.query.impl.QueryProvider;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.UserField;
+import sandbox.grapple.entity.User;
+
+public class QueryPlanCacheSchemaTests extends SchemaTestSupport {
+
+    @Test
+    public void testCacheHitReturnsSameRowsAsMiss() {
+        final QueryPlanCache queryPlanCache = QueryProvider.newQueryPlanCache(16);
+        final GraphQL cachedGraphQL = buildSampleSchema(entitySchema -> entitySchema.setQueryPlanCache(queryPlanCache));
+        final GraphQL uncachedGraphQL = buildSampleSchema(entitySchema -> entitySchema.setQueryPlanCache(null));
+        final String query = "query { listUsers(count: 5, orderBy: [{id: DESC}]) { results { id displayName company { id displayName } } } }";
+
+        final Map<String, Object> miss = executeQuery(cachedGraphQL, query);
+        final long hitCount = queryPlanCache.getHitCount();
+        final Map<String, Object> hit = executeQuery(cachedGraphQL, query);
+
+        assertEquals(hitCount + 1, queryPlanCache.getHitCount());
+        assertEquals(miss, hit);
+        assertEquals(miss, executeQuery(uncachedGraphQL, query));
+    }
+
+    @Test
+    public void testPlanIsReusedWithDifferentParameters() {
+        final EntityManager entityManager = getEntityManager();
+        final QueryPlanCache queryPlanCache = QueryProvider.newQueryPlanCache(16);
+
+        assertEquals(singletonList(1), fetchUserIds(entityManager, queryPlanCache, Filters.isEqual(UserField.Id, 1)));
+        assertEquals(singletonList(2), fetchUserIds(entityManager, queryPlanCache, Filters.isEqual(UserField.Id, 2)));
+        assertEquals(1, queryPlanCache.getSize());
+        assertEquals(1, queryPlanCache.getMissCount());
+        assertEquals(1, queryPlanCache.getHitCount());
+    }
+
+    @Test
+    public void testFiltersWithoutPlanKeysAreNotCached() {
+        final EntityManager entityManager = getEntityManager();
+        final QueryPlanCache queryPlanCache = QueryProvider.newQueryPlanCache(16);
+
+        assertEquals(asList(1, 2), fetchUserIds(entityManager, queryPlanCache, (ctx, queryBuilder) -> queryBuilder.lessThan(ctx.get(UserField.Id), 3)));
+        assertEquals(singletonList(1), fetchUserIds(entityManager, queryPlanCache, (ctx, queryBuilder) -> queryBuilder.lessThan(ctx.get(UserField.Id), 2)));
+        assertEquals(0, queryPlanCache.getSize());
+        assertEquals(2, queryPlanCache.getUncacheableCount());
+    }
+
+    private static List<Object> fetchUserIds(EntityManager entityManager, QueryPlanCache queryPlanCache, EntityFilter<User> filter) {
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.setQueryPlanCache(queryPlanCache);
+        fetchSet.select(UserField.Id).filter(filter).orderBy(UserField.Id, SortDirection.ASC);
+        return fetchSet.execute(entityManager, entityRoot(User.class)).map(row -> row.get(UserField.Id));
+    }
+}
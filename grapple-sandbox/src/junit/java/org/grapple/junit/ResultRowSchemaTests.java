@@ -0,0 +1,140 @@
+package org.grapple.junit;
+
+import static org.grapple.query.EntityFieldBuilder.nonQueryField;
+import static org.grapple.query.EntityResultType.nonNull;
+import static org.grapple.query.EntityRootBuilder.entityRoot;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.Path;
+import org.grapple.query.NonQueryField;
+import org.grapple.query.QueryResultList;
+import org.grapple.query.QueryResultRow;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.SortDirection;
+import org.grapple.query.TabularResultRow;
+import org.grapple.query.impl.QueryProvider;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.CompanyField;
+import sandbox.grapple.UserField;
+import sandbox.grapple.entity.Company;
+import sandbox.grapple.entity.User;
+import sandbox.grapple.entity.User_;
+
+public class ResultRowSchemaTests extends SchemaTestSupport {
+
+    // Resolved by its own handler, rather than read straight from its selection
+    private static final NonQueryField<User, String> UpperDisplayName = nonQueryField(fieldBuilder -> fieldBuilder
+            .name("upperDisplayName")
+            .resultType(nonNull(String.class))
+            .resolver((ctx, queryBuilder) -> {
+                final Path<String> displayName = ctx.addSelection(ctx.get(User_.displayName));
+                return tuple -> tuple.get(displayName).toUpperCase();
+            }));
+
+    @Test
+    public void testValuesMatchEntities() {
+        final EntityManager entityManager = getEntityManager();
+        final QueryResultList<User> users = usersWithCompanies().execute(entityManager, entityRoot(User.class));
+        assertTrue(users.getRowsRetrieved() > 0);
+        for (QueryResultRow<User> user: users) {
+            final User expected = entityManager.find(User.class, user.get(UserField.Id));
+            assertEquals(expected.getDisplayName(), user.get(UserField.DisplayName));
+            final QueryResultRow<Company> company = user.getJoin(UserField.Company);
+            assertTrue(company.isExists());
+            assertEquals(expected.getCompany().getId(), company.get(CompanyField.ID));
+            assertEquals(expected.getCompany().getDisplayName(), company.get(CompanyField.Name));
+            assertEquals(expected.getCompany().getOwner() != null, company.getJoin(CompanyField.OwnerNullAllowed).isExists());
+        }
+    }
+
+    @Test
+    public void testUnfetchedElementsAreRejected() {
+        final QueryResultRow<User> user = usersWithCompanies().execute(getEntityManager(), entityRoot(User.class)).iterator().next();
+        assertThrows(IllegalArgumentException.class, () -> user.get(UserField.LastLoginDate));
+        assertThrows(IllegalArgumentException.class, () -> user.getJoin(UserField.CompanyWithId99));
+    }
+
+    @Test
+    public void testTabularValuesByName() {
+        final QueryResultList<User> users = usersWithCompanies().execute(getEntityManager(), entityRoot(User.class));
+        final String companyName = UserField.Company.getName() + "." + CompanyField.Name.getName();
+        assertEquals(users.map(user -> user.getJoin(UserField.Company).get(CompanyField.Name)), users.asTabular().map(row -> row.getValues().get(companyName)));
+        for (TabularResultRow row: users.asTabular()) {
+            final Map<String, Object> values = row.getValues();
+            assertTrue(values.containsKey(UserField.Id.getName()));
+            assertTrue(values.containsKey(UserField.DisplayName.getName()));
+            assertFalse(values.containsKey(UserField.LastLoginDate.getName()));
+        }
+    }
+
+    @Test
+    public void testExpressionAndAttributeValues() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.IS_NAME_ALAN)
+                .select(UserField.Id)
+                .select(UserField.IS_GREATESST)
+                .select(UserField.DisplayName)
+                .join(UserField.Company, company -> company.select(CompanyField.Name));
+        for (QueryResultRow<User> user: fetchSet.execute(entityManager, entityRoot(User.class))) {
+            final User expected = entityManager.find(User.class, user.get(UserField.Id));
+            assertEquals("alan".equals(expected.getDisplayName()), user.get(UserField.IS_NAME_ALAN));
+            assertEquals(expected.getId() <= 123, user.get(UserField.IS_GREATESST));
+            assertEquals(expected.getDisplayName(), user.get(UserField.DisplayName));
+            assertEquals(expected.getCompany().getDisplayName(), user.getJoin(UserField.Company).get(CompanyField.Name));
+        }
+    }
+
+    @Test
+    public void testHandlerAndSelectedValues() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id)
+                .select(UpperDisplayName)
+                .select(UserField.DisplayName)
+                .join(UserField.Company, company -> company.select(CompanyField.Name));
+        final QueryResultList<User> users = fetchSet.execute(entityManager, entityRoot(User.class));
+        assertTrue(users.getRowsRetrieved() > 0);
+        for (QueryResultRow<User> user: users) {
+            final User expected = entityManager.find(User.class, user.get(UserField.Id));
+            assertEquals(expected.getDisplayName().toUpperCase(), user.get(UpperDisplayName));
+            assertEquals(expected.getDisplayName(), user.get(UserField.DisplayName));
+            assertEquals(expected.getCompany().getDisplayName(), user.getJoin(UserField.Company).get(CompanyField.Name));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMappedResponsesMatchEntities() {
+        final EntityManager entityManager = getEntityManager();
+        final Map<String, Object> listUsers = (Map<String, Object>) executeQuery(buildSampleSchema(), "query { listUsers { results { isNameAlan id displayName company { displayName id } } } }").get("listUsers");
+        final List<Map<String, Object>> users = (List<Map<String, Object>>) listUsers.get("results");
+        assertFalse(users.isEmpty());
+        for (Map<String, Object> user: users) {
+            final User expected = entityManager.find(User.class, user.get("id"));
+            assertEquals("alan".equals(expected.getDisplayName()), user.get("isNameAlan"));
+            assertEquals(expected.getDisplayName(), user.get("displayName"));
+            final Map<String, Object> company = (Map<String, Object>) user.get("company");
+            assertEquals(expected.getCompany().getId(), company.get("id"));
+            assertEquals(expected.getCompany().getDisplayName(), company.get("displayName"));
+        }
+    }
+
+    private static RootFetchSet<User> usersWithCompanies() {
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id)
+                .select(UserField.DisplayName)
+                .join(UserField.Company, company -> company
+                        .select(CompanyField.ID)
+                        .select(CompanyField.Name)
+                        .join(CompanyField.OwnerNullAllowed, owner -> owner.select(UserField.Id)))
+                .orderBy(UserField.Id, SortDirection.ASC);
+        return fetchSet;
+    }
+}
@@ -1,13 +1,20 @@
 package org.grapple.junit;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 import app.UserService;
+import graphql.ExecutionResult;
 import graphql.GraphQL;
 import graphql.schema.GraphQLSchema;
 import org.grapple.query.QueryDefinitions;
 import org.grapple.schema.EntitySchema;
+import org.grapple.schema.EntitySchemaResult;
 import org.grapple.schema.EntitySchemaScannerCallback;
 import org.grapple.schema.impl.EntitySchemaProvider;
 
@@ -15,23 +22,47 @@ public abstract class SchemaTestSupport {
 
     private static EntityManagerFactory entityManagerFactory;
 
+    protected EntityManagerFactory getEntityManagerFactory() {
+        return entityManagerFactory;
+    }
+
     protected EntityManager getEntityManager() {
         return entityManagerFactory.createEntityManager();
     }
 
     protected GraphQL buildSampleSchema() {
+        return buildSampleSchema(entitySchema -> { });
+    }
+
+    protected GraphQL buildSampleSchema(Consumer<EntitySchema> schemaConsumer) {
+        final GraphQLSchema graphQLSchema = generateSampleSchema(schemaConsumer).getSchema();
+        return GraphQL.newGraphQL(graphQLSchema).build();
+    }
+
+    // Consumer is applied once sample definitions have been imported
+    protected EntitySchemaResult generateSampleSchema(Consumer<EntitySchema> schemaConsumer) {
         getEntityManager();
         final EntitySchema entitySchema = EntitySchemaProvider.newSchema();
         entitySchema.buildEntitySchemaScanner(new EntitySchemaScannerCallback()).apply(entitySchemaScanner -> {
             entitySchemaScanner.importDefinitions(QueryDefinitions.class, "app", "sandbox");
             entitySchemaScanner.importOperations(new UserService(getEntityManager()));
         });
+        schemaConsumer.accept(entitySchema);
         System.out.println(entitySchema);
-        final GraphQLSchema graphQLSchema = entitySchema.generate().getSchema();
-        return GraphQL.newGraphQL(graphQLSchema).build();
+        return entitySchema.generate();
+    }
+
+    // Fails on any errors, returns response data
+    protected static Map<String, Object> executeQuery(GraphQL graphQL, String query) {
+        final ExecutionResult executionResult = graphQL.execute(query);
+        assertTrue(executionResult.getErrors().isEmpty(), () -> executionResult.getErrors().toString());
+        return executionResult.getData();
     }
 
     static {
-        SchemaTestSupport.entityManagerFactory = Persistence.createEntityManagerFactory("grapple-sandbox");
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.session_factory.statement_inspector", StatementRecorder.class.getName());
+        properties.put("hibernate.metadata_builder_contributor", WindowCountContributor.class.getName());
+        SchemaTestSupport.entityManagerFactory = Persistence.createEntityManagerFactory("grapple-sandbox", properties);
     }
 }
@@ -0,0 +1,193 @@
+package org.grapple.junit;
+
+import static java.util.Arrays.asList;
+import static org.grapple.junit.StatementRecorder.clearStatements;
+import static org.grapple.junit.StatementRecorder.getStatements;
+import static org.grapple.query.EntityFieldBuilder.attributeJoin;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.GraphQL;
+import graphql.schema.DataFetchingEnvironment;
+import org.grapple.query.EntityJoin;
+import org.grapple.query.EntityMetadataKeys;
+import org.grapple.query.RootFetchSet;
+import org.grapple.schema.EntityQueryExecutionListener;
+import org.grapple.schema.EntityResponseMode;
+import org.grapple.schema.EntitySchemaScannerCallback;
+import org.grapple.schema.impl.EntitySchemaProvider;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.entity.Company;
+import sandbox.grapple.entity.User;
+import sandbox.grapple.entity.User_;
+
+public class SelectionSchemaTests extends SchemaTestSupport {
+
+    public static final EntityJoin<User, Company> SharedCompany = attributeJoin(User_.company, joinBuilder -> joinBuilder
+            .name("sharedCompany")
+            .metadata(EntityMetadataKeys.SharedResponse, true));
+
+    private static final String PLAIN_QUERY = "query { listUsers(count: 4, orderBy: [{id: ASC}]) { total results { id displayName company { id displayName } } } }";
+
+    @Test
+    public void testFragmentsMatchPlainQuery() {
+        final GraphQL graphQL = buildSampleSchema();
+        final Map<String, Object> plain = executeQuery(graphQL, PLAIN_QUERY);
+        assertEquals(4, getResults(plain).size());
+        assertEquals(plain, executeQuery(graphQL, "query { listUsers(count: 4, orderBy: [{id: ASC}]) { ...Page } } "
+                + "fragment Page on UserResults { total results { ...UserFields company { ... on Company { id } displayName } } } "
+                + "fragment UserFields on User { id displayName }"));
+    }
+
+    @Test
+    public void testMergedFieldsMatchPlainQuery() {
+        final GraphQL graphQL = buildSampleSchema();
+        assertEquals(executeQuery(graphQL, PLAIN_QUERY), executeQuery(graphQL, "query { listUsers(count: 4, orderBy: [{id: ASC}]) { total results { id company { id } displayName company { displayName } id } total } }"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAliasesMatchPlainQuery() {
+        final GraphQL graphQL = buildSampleSchema();
+        final List<Map<String, Object>> plain = getResults(executeQuery(graphQL, PLAIN_QUERY));
+        final List<Map<String, Object>> aliased = getResults(executeQuery(graphQL, "query { listUsers(count: 4, orderBy: [{id: ASC}]) { results { userId: id name: displayName id employer: company { name: displayName } company { id } } } }"));
+        assertEquals(plain.size(), aliased.size());
+        for (int i = 0; i < plain.size(); i++) {
+            final Map<String, Object> user = plain.get(i);
+            final Map<String, Object> company = (Map<String, Object>) user.get("company");
+            assertEquals(user.get("id"), aliased.get(i).get("userId"));
+            assertEquals(user.get("id"), aliased.get(i).get("id"));
+            assertEquals(user.get("displayName"), aliased.get(i).get("name"));
+            assertEquals(company.get("displayName"), ((Map<String, Object>) aliased.get(i).get("employer")).get("name"));
+            assertEquals(company.get("id"), ((Map<String, Object>) aliased.get(i).get("company")).get("id"));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFragmentOnlyTotalAndResults() {
+        final GraphQL graphQL = buildSampleSchema();
+        final Map<String, Object> plain = (Map<String, Object>) executeQuery(graphQL, PLAIN_QUERY).get("listUsers");
+
+        clearStatements();
+        final Map<String, Object> total = (Map<String, Object>) executeQuery(graphQL, "query { listUsers(count: 4, orderBy: [{id: ASC}]) { ...Total } } fragment Total on UserResults { total }").get("listUsers");
+        assertEquals(plain.get("total"), total.get("total"));
+        // Nothing selected, so only counted
+        assertEquals(1, getStatements().size());
+        assertTrue(isCount(getStatements().get(0)));
+
+        clearStatements();
+        final Map<String, Object> results = (Map<String, Object>) executeQuery(graphQL, "query { listUsers(count: 4, orderBy: [{id: ASC}]) { ... on UserResults { results { id displayName company { id displayName } } } } }").get("listUsers");
+        assertEquals(plain.get("results"), results.get("results"));
+        assertFalse(getStatements().stream().anyMatch(SelectionSchemaTests::isCount));
+    }
+
+    @Test
+    public void testRowResponsesMatchMapResponses() {
+        final GraphQL mapGraphQL = buildSampleSchema(entitySchema -> entitySchema.setResponseMode(EntityResponseMode.MAP));
+        final GraphQL rowGraphQL = buildSampleSchema(entitySchema -> entitySchema.setResponseMode(EntityResponseMode.ROW));
+        for (String query: asList(
+                PLAIN_QUERY,
+                "query { listUsers(offset: 2, count: 6, orderBy: [{displayName: DESC}]) { total results { isNameAlan userId: id displayName company { id displayName ownerNullAllowed { id displayName } } id } } }",
+                "query { listUsers(count: 4, orderBy: [{id: ASC}]) { ...Page } } fragment Page on UserResults { results { id ... on User { displayName company { id } } company { displayName } } }")) {
+            final Map<String, Object> mapResponse = executeQuery(mapGraphQL, query);
+            assertFalse(getResults(mapResponse).isEmpty());
+            assertEquals(mapResponse, executeQuery(rowGraphQL, query));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSharedResponsesForSameEntity() {
+        for (EntityResponseMode responseMode: EntityResponseMode.values()) {
+            final List<Map<String, Object>> responses = new ArrayList<>();
+            final GraphQL graphQL = buildSampleSchema(entitySchema -> {
+                entitySchema.setResponseMode(responseMode);
+                entitySchema.addEntityQueryExecutionListener(new ResponseRecorder(responses));
+                entitySchema.buildEntitySchemaScanner(new EntitySchemaScannerCallback()).apply(entitySchemaScanner -> entitySchemaScanner.importDefinitions(SelectionSchemaTests.class));
+            });
+            final List<Map<String, Object>> users = getResults(executeQuery(graphQL, "query { listUsers(orderBy: [{id: ASC}]) { results { id company { id displayName } sharedCompany { id displayName } } } }"));
+            for (Map<String, Object> user: users) {
+                assertEquals(user.get("company"), user.get("sharedCompany"));
+            }
+
+            // Rows joining the same company reference the same response
+            final Map<Object, Map<String, Object>> sharedCompanies = new HashMap<>();
+            for (Map<String, Object> user: (List<Map<String, Object>>) responses.get(0).get("results")) {
+                final Map<String, Object> sharedCompany = (Map<String, Object>) user.get("sharedCompany");
+                final Map<String, Object> existing = sharedCompanies.putIfAbsent(sharedCompany.get("id"), sharedCompany);
+                if (existing != null) {
+                    assertSame(existing, sharedCompany);
+                    assertNotSame(user.get("company"), sharedCompany);
+                }
+            }
+            assertTrue(sharedCompanies.size() < users.size());
+        }
+    }
+
+    @Test
+    public void testRowResponsesSerializedFromValues() throws Exception {
+        final ObjectMapper objectMapper = new ObjectMapper().registerModule(EntitySchemaProvider.newJacksonModule());
+        final String query = "query { listUsers(offset: 1, count: 5, orderBy: [{id: ASC}]) { total results { userId: id displayName company { id displayName ownerNullAllowed { id } } sharedCompany { displayName } } } }";
+        final Map<EntityResponseMode, JsonNode> serialized = new HashMap<>();
+        for (EntityResponseMode responseMode: EntityResponseMode.values()) {
+            final List<Map<String, Object>> responses = new ArrayList<>();
+            final GraphQL graphQL = buildSampleSchema(entitySchema -> {
+                entitySchema.setResponseMode(responseMode);
+                entitySchema.addEntityQueryExecutionListener(new ResponseRecorder(responses));
+                entitySchema.buildEntitySchemaScanner(new EntitySchemaScannerCallback()).apply(entitySchemaScanner -> entitySchemaScanner.importDefinitions(SelectionSchemaTests.class));
+            });
+            final Map<String, Object> data = executeQuery(graphQL, query);
+            assertEquals(1, responses.size());
+            // Responses are resolved by the query, so can be written once it has completed
+            final JsonNode results = objectMapper.readTree(objectMapper.writeValueAsString(responses.get(0))).get("results");
+            assertEquals(objectMapper.valueToTree(getResults(data)), results);
+            serialized.put(responseMode, results);
+        }
+        assertEquals(serialized.get(EntityResponseMode.MAP), serialized.get(EntityResponseMode.ROW));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> getResults(Map<String, Object> data) {
+        return (List<Map<String, Object>>) ((Map<String, Object>) data.get("listUsers")).get("results");
+    }
+
+    private static boolean isCount(String sql) {
+        return sql.toLowerCase().contains("count(");
+    }
+
+    // Records responses as returned by the query, before they are copied into the GraphQL result
+    private static final class ResponseRecorder extends EntityQueryExecutionListener {
+
+        private final List<Map<String, Object>> responses;
+
+        ResponseRecorder(List<Map<String, Object>> responses) {
+            this.responses = responses;
+        }
+
+        @Override
+        public <X> QueryListenerContext queryStarted(DataFetchingEnvironment environment, RootFetchSet<X> fetchSet, String queryName, Object queryTag) {
+            return new QueryListenerContext() {
+
+                @Override
+                public void complete(Map<String, Object> response) {
+                    responses.add(response);
+                }
+
+                @Override
+                public void error(Exception e) {
+
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.grapple.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Records SQL prepared by any session, so tests can check which statements a query executed
+public final class StatementRecorder implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    static void clearStatements() {
+        statements.clear();
+    }
+
+    // Statements prepared since last cleared
+    static List<String> getStatements() {
+        return new ArrayList<>(statements);
+    }
+}
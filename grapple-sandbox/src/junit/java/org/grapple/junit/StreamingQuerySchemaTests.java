@@ -0,0 +1,69 @@
+package org.grapple.junit;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.grapple.query.QueryPlanCache;
+import org.grapple.query.QueryResultRow;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.SortDirection;
+import org.grapple.query.impl.QueryProvider;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.UserField;
+import sandbox.grapple.UserPrivateMessageField;
+import sandbox.grapple.entity.UserPrivateMessage;
+
+public class StreamingQuerySchemaTests extends SchemaTestSupport {
+
+    @Test
+    public void testStreamMatchesExecute() {
+        final EntityManager entityManager = getEntityManager();
+        final QueryPlanCache queryPlanCache = QueryProvider.newQueryPlanCache(16);
+        for (int i = 0; i < 2; i++) {
+            final RootFetchSet<UserPrivateMessage> fetchSet = messagesWithSenders(queryPlanCache).setFirstResult(5).setMaxResults(50);
+            final List<String> expected = fetchSet.execute(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES).map(StreamingQuerySchemaTests::describe);
+            try (Stream<QueryResultRow<UserPrivateMessage>> stream = fetchSet.stream(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES)) {
+                assertEquals(expected, stream.map(StreamingQuerySchemaTests::describe).collect(toList()));
+            }
+        }
+        assertEquals(1, queryPlanCache.getMissCount());
+        assertEquals(3, queryPlanCache.getHitCount());
+    }
+
+    @Test
+    public void testStreamAllRowsInChunks() {
+        final EntityManager entityManager = getEntityManager();
+        final long messageCount = entityManager.createQuery("select count(m) from UserPrivateMessage m", Long.class).getSingleResult();
+        final RootFetchSet<UserPrivateMessage> fetchSet = messagesWithSenders(null);
+        try (Stream<QueryResultRow<UserPrivateMessage>> stream = fetchSet.stream(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES)) {
+            assertEquals(messageCount, stream.count());
+        }
+    }
+
+    @Test
+    public void testPartiallyConsumedStream() {
+        final EntityManager entityManager = getEntityManager();
+        final RootFetchSet<UserPrivateMessage> fetchSet = messagesWithSenders(null);
+        final List<String> expected = fetchSet.execute(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES).map(StreamingQuerySchemaTests::describe).subList(0, 3);
+        try (Stream<QueryResultRow<UserPrivateMessage>> stream = fetchSet.stream(entityManager, UserPrivateMessageField.ALL_PRIVATE_MESSAGES)) {
+            assertEquals(expected, stream.limit(3).map(StreamingQuerySchemaTests::describe).collect(toList()));
+        }
+    }
+
+    private static RootFetchSet<UserPrivateMessage> messagesWithSenders(QueryPlanCache queryPlanCache) {
+        final RootFetchSet<UserPrivateMessage> fetchSet = QueryProvider.newQuery(UserPrivateMessage.class);
+        fetchSet.setQueryPlanCache(queryPlanCache);
+        fetchSet.select(UserPrivateMessageField.ID)
+                .join(UserPrivateMessageField.SENDER, sender -> sender.select(UserField.DisplayName))
+                .orderBy(UserPrivateMessageField.ID, SortDirection.ASC);
+        fetchSet.setFetchSize(10);
+        return fetchSet;
+    }
+
+    private static String describe(QueryResultRow<UserPrivateMessage> row) {
+        return row.get(UserPrivateMessageField.ID) + ":" + row.getJoin(UserPrivateMessageField.SENDER).get(UserField.DisplayName);
+    }
+}
@@ -0,0 +1,174 @@
+package org.grapple.junit;
+
+import static org.grapple.junit.StatementRecorder.clearStatements;
+import static org.grapple.junit.StatementRecorder.getStatements;
+import static org.grapple.query.EntityRootBuilder.entityRoot;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import graphql.GraphQL;
+import org.grapple.query.Filters;
+import org.grapple.query.QueryResultList;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.SortDirection;
+import org.grapple.query.TotalResultsMode;
+import org.grapple.query.impl.QueryProvider;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.UserField;
+import sandbox.grapple.entity.User;
+
+public class TotalResultsSchemaTests extends SchemaTestSupport {
+
+    @Test
+    public void testTotalOmittedWhenNotSelected() {
+        final GraphQL graphQL = buildSampleSchema();
+        clearStatements();
+        executeQuery(graphQL, "query { listUsers(count: 2) { results { id } } }");
+        final List<String> statements = getStatements();
+        assertEquals(1, statements.size());
+        assertFalse(isCount(statements.get(0)));
+    }
+
+    @Test
+    public void testTotalCountedWhenSelected() {
+        final GraphQL graphQL = buildSampleSchema();
+        final long userCount = countUsers();
+        clearStatements();
+        final Map<String, Object> listUsers = getListUsers(executeQuery(graphQL, "query { listUsers(count: 2) { total results { id } } }"));
+        assertEquals(userCount, ((Number) listUsers.get("total")).longValue());
+        assertTrue(getStatements().stream().anyMatch(TotalResultsSchemaTests::isCount));
+    }
+
+    @Test
+    public void testTotalInferredFromShortPage() {
+        final GraphQL graphQL = buildSampleSchema();
+        final long userCount = countUsers();
+        clearStatements();
+        final Map<String, Object> listUsers = getListUsers(executeQuery(graphQL, "query { listUsers(offset: 2, count: 1000) { total results { id } } }"));
+        assertEquals(userCount, ((Number) listUsers.get("total")).longValue());
+        assertEquals(userCount - 2, ((List<?>) listUsers.get("results")).size());
+        assertFalse(getStatements().stream().anyMatch(TotalResultsSchemaTests::isCount));
+    }
+
+    @Test
+    public void testTotalCountedBeyondLastPage() {
+        final GraphQL graphQL = buildSampleSchema();
+        final long userCount = countUsers();
+        clearStatements();
+        final Map<String, Object> listUsers = getListUsers(executeQuery(graphQL, "query { listUsers(offset: 1000, count: 2) { total results { id } } }"));
+        assertEquals(userCount, ((Number) listUsers.get("total")).longValue());
+        assertTrue(getStatements().stream().anyMatch(TotalResultsSchemaTests::isCount));
+    }
+
+    @Test
+    public void testCappedTotal() {
+        final GraphQL graphQL = buildSampleSchema();
+        final long userCount = countUsers();
+
+        final Map<String, Object> capped = getListUsers(executeQuery(graphQL, "query { listUsers(count: 1, totalLimit: " + (userCount - 1) + ") { total totalIsExact results { id } } }"));
+        assertEquals(userCount - 1, ((Number) capped.get("total")).longValue());
+        assertEquals(false, capped.get("totalIsExact"));
+
+        final Map<String, Object> exact = getListUsers(executeQuery(graphQL, "query { listUsers(count: 1, totalLimit: " + (userCount + 10) + ") { total totalIsExact results { id } } }"));
+        assertEquals(userCount, ((Number) exact.get("total")).longValue());
+        assertEquals(true, exact.get("totalIsExact"));
+    }
+
+    @Test
+    public void testWindowTotalInSingleQuery() {
+        final GraphQL graphQL = buildSampleSchema(entitySchema -> entitySchema.setTotalResultsMode(TotalResultsMode.WINDOW));
+        final long userCount = countUsers();
+        clearStatements();
+        final Map<String, Object> listUsers = getListUsers(executeQuery(graphQL, "query { listUsers(count: 2) { total results { id } } }"));
+        assertEquals(userCount, ((Number) listUsers.get("total")).longValue());
+        assertEquals(2, ((List<?>) listUsers.get("results")).size());
+        assertEquals(1, getStatements().size());
+    }
+
+    @Test
+    public void testWindowTotalBeyondLastPage() {
+        final GraphQL graphQL = buildSampleSchema(entitySchema -> entitySchema.setTotalResultsMode(TotalResultsMode.WINDOW));
+        final Map<String, Object> listUsers = getListUsers(executeQuery(graphQL, "query { listUsers(offset: 1000, count: 2) { total results { id } } }"));
+        assertEquals(countUsers(), ((Number) listUsers.get("total")).longValue());
+        assertTrue(((List<?>) listUsers.get("results")).isEmpty());
+    }
+
+    @Test
+    public void testTotalResultsModeNone() {
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id).setMaxResults(2).setTotalResultsMode(TotalResultsMode.NONE);
+        final QueryResultList<User> results = fetchSet.execute(getEntityManager(), entityRoot(User.class));
+        assertEquals(-1, results.getTotalResults());
+        assertEquals(2, results.getRowsRetrieved());
+    }
+
+    @Test
+    public void testConcurrentCountMatchesSequentialCount() {
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        final AtomicInteger countsSubmitted = new AtomicInteger();
+        final Executor countExecutor = command -> {
+            countsSubmitted.incrementAndGet();
+            executorService.execute(command);
+        };
+        try {
+            // First page, a middle page, and beyond the last page
+            for (int[] page: new int[][] { { 0, 2 }, { 3, 4 }, { 1000, 2 } }) {
+                final QueryResultList<User> sequential = usersAfterId3(page[0], page[1]).execute(getEntityManager(), entityRoot(User.class));
+                final QueryResultList<User> concurrent = usersAfterId3(page[0], page[1]).setConcurrentCount(getEntityManagerFactory(), countExecutor).execute(getEntityManager(), entityRoot(User.class));
+                assertEquals(sequential.map(user -> user.get(UserField.Id)), concurrent.map(user -> user.get(UserField.Id)));
+                assertEquals(sequential.getTotalResults(), concurrent.getTotalResults());
+                assertTrue(concurrent.isTotalExact());
+            }
+            assertEquals(3, countsSubmitted.get());
+        }
+        finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentCappedCount() {
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final QueryResultList<User> sequential = usersAfterId3(0, 2).setMaxTotalResults(3).execute(getEntityManager(), entityRoot(User.class));
+            final QueryResultList<User> concurrent = usersAfterId3(0, 2).setMaxTotalResults(3).setConcurrentCount(getEntityManagerFactory(), executorService).execute(getEntityManager(), entityRoot(User.class));
+            assertEquals(sequential.map(user -> user.get(UserField.Id)), concurrent.map(user -> user.get(UserField.Id)));
+            assertEquals(sequential.getTotalResults(), concurrent.getTotalResults());
+            assertEquals(sequential.isTotalExact(), concurrent.isTotalExact());
+            assertFalse(concurrent.isTotalExact());
+        }
+        finally {
+            executorService.shutdown();
+        }
+    }
+
+    private static RootFetchSet<User> usersAfterId3(int firstResult, int maxResults) {
+        final RootFetchSet<User> fetchSet = QueryProvider.newQuery(User.class);
+        fetchSet.select(UserField.Id)
+                .filter(Filters.greaterThan(UserField.Id, 3))
+                .orderBy(UserField.Id, SortDirection.ASC)
+                .setFirstResult(firstResult)
+                .setMaxResults(maxResults);
+        return fetchSet;
+    }
+
+    private long countUsers() {
+        return getEntityManager().createQuery("select count(u) from User u", Long.class).getSingleResult();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getListUsers(Map<String, Object> data) {
+        return (Map<String, Object>) data.get("listUsers");
+    }
+
+    private static boolean isCount(String sql) {
+        return sql.toLowerCase().contains("count(");
+    }
+}
@@ -0,0 +1,85 @@
+package org.grapple.junit;
+
+import static java.util.Collections.emptySet;
+import static org.grapple.utils.Utils.toSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.Consumer;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import graphql.validation.ValidationError;
+import graphql.validation.ValidationErrorType;
+import org.grapple.schema.EntityDefinition;
+import org.grapple.schema.EntitySchema;
+import org.grapple.schema.EntitySchemaResult;
+import org.grapple.schema.SchemaVisibilityCache;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.UserField;
+import sandbox.grapple.entity.User;
+
+public class VisibilitySchemaTests extends SchemaTestSupport {
+
+    // Display names are visible to admin and support, last login dates only to admin
+    private static final Consumer<EntitySchema> RESTRICTED_FIELDS = entitySchema -> {
+        final EntityDefinition<User> user = entitySchema.getEntity(User.class);
+        user.getFields().get(UserField.DisplayName).setVisibility(rolesHeld -> rolesHeld.contains("admin") || rolesHeld.contains("support"));
+        user.getFields().get(UserField.LastLoginDate).setVisibility(rolesHeld -> rolesHeld.contains("admin"));
+    };
+
+    @Test
+    public void testRolesWithSameVisibilityShareSchema() {
+        final EntitySchemaResult schemaResult = generateSampleSchema(RESTRICTED_FIELDS);
+        final SchemaVisibilityCache schemaVisibilityCache = schemaResult.getSchemaVisibilityCache();
+
+        final GraphQLSchema support = schemaResult.getSchemaWithVisibility(toSet("support"));
+        assertSame(support, schemaResult.getSchemaWithVisibility(toSet("support", "guest")));
+        assertEquals(1, schemaVisibilityCache.getSize());
+        assertEquals(1, schemaVisibilityCache.getMissCount());
+        assertEquals(1, schemaVisibilityCache.getHitCount());
+
+        // Nothing hidden from admin, so the schema itself
+        assertSame(schemaResult.getSchema(), schemaResult.getSchemaWithVisibility(toSet("admin", "support")));
+        assertNotSame(support, schemaResult.getSchemaWithVisibility(emptySet()));
+        assertSame(schemaResult.getSchemaWithVisibility(emptySet()), schemaResult.getSchemaWithVisibility(toSet("guest")));
+        assertEquals(3, schemaVisibilityCache.getSize());
+        assertEquals(3, schemaVisibilityCache.getMissCount());
+        assertEquals(3, schemaVisibilityCache.getHitCount());
+        assertEquals(0, schemaVisibilityCache.getEvictionCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSchemasEvicted() {
+        final EntitySchemaResult schemaResult = generateSampleSchema(RESTRICTED_FIELDS.andThen(entitySchema -> entitySchema.setSchemaVisibilityCacheSize(1)));
+        final SchemaVisibilityCache schemaVisibilityCache = schemaResult.getSchemaVisibilityCache();
+        final GraphQLSchema support = schemaResult.getSchemaWithVisibility(toSet("support"));
+        schemaResult.getSchemaWithVisibility(emptySet());
+        assertNotSame(support, schemaResult.getSchemaWithVisibility(toSet("support")));
+        assertEquals(1, schemaVisibilityCache.getSize());
+        assertEquals(3, schemaVisibilityCache.getMissCount());
+        assertEquals(2, schemaVisibilityCache.getEvictionCount());
+    }
+
+    @Test
+    public void testHiddenFieldsAreRejected() {
+        final EntitySchemaResult schemaResult = generateSampleSchema(RESTRICTED_FIELDS);
+        final String query = "query { listUsers(count: 3, orderBy: [{id: ASC}]) { results { id displayName } } }";
+
+        final GraphQL guest = GraphQL.newGraphQL(schemaResult.getSchemaWithVisibility(toSet("guest"))).build();
+        final ExecutionResult rejected = guest.execute(query);
+        assertFalse(rejected.getErrors().isEmpty());
+        assertTrue(rejected.getErrors().stream().allMatch(error -> error instanceof ValidationError && ((ValidationError) error).getValidationErrorType() == ValidationErrorType.FieldUndefined));
+        executeQuery(guest, "query { listUsers(count: 3, orderBy: [{id: ASC}]) { results { id } } }");
+
+        final GraphQL admin = GraphQL.newGraphQL(schemaResult.getSchemaWithVisibility(toSet("admin"))).build();
+        final GraphQL support = GraphQL.newGraphQL(schemaResult.getSchemaWithVisibility(toSet("support"))).build();
+        assertEquals(executeQuery(admin, query), executeQuery(support, query));
+        final String lastLoginQuery = "query { listUsers(count: 3) { results { id lastLoginDate { timestamp } } } }";
+        executeQuery(admin, lastLoginQuery);
+        assertFalse(support.execute(lastLoginQuery).getErrors().isEmpty());
+    }
+}
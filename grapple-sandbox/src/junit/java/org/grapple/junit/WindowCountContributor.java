@@ -0,0 +1,15 @@
+package org.grapple.junit;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.LongType;
+
+// Required by TotalResultsMode.WINDOW, see QueryBuilder.windowCount()
+public final class WindowCountContributor implements MetadataBuilderContributor {
+
+    @Override
+    public void contribute(MetadataBuilder metadataBuilder) {
+        metadataBuilder.applySqlFunction("window_count", new SQLFunctionTemplate(LongType.INSTANCE, "count(*) over ()"));
+    }
+}
@@ -0,0 +1,116 @@
+package org.grapple.junit;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import graphql.GraphQL;
+import org.grapple.junit.AsyncQuerySchemaTests.OwnEntityManagerService;
+import org.grapple.query.EntityFieldBuilder;
+import org.grapple.schema.EntityDefinition;
+import org.grapple.schema.EntitySchemaScannerCallback;
+import org.junit.jupiter.api.Test;
+import sandbox.grapple.entity.User;
+
+public class WiringSchemaTests extends SchemaTestSupport {
+
+    private static final List<String> QUERIES = asList(
+            "query { listUsersOnOwnEntityManager(count: 5, orderBy: [{displayName: DESC}]) { total results { id displayName isNameAlan company { id displayName ownerNullAllowed { id } } } } }",
+            "query { listUsersOnOwnEntityManager(filter: {displayName: {like: \"User 1%\"}, id: {gt: 10}}, orderBy: [{id: DESC}]) { total results { id displayName } } }",
+            "query { listUsersOnOwnEntityManager(offset: 2, count: 4, filter: {id: {in: [1, 3, 5, 8, 13]}}, orderBy: [{displayName: ASC}]) { results { userId: id name: displayName company { displayName } } } }");
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLookupsMatchDirectQueries() {
+        final GraphQL graphQL = buildSchema();
+        final EntityManager entityManager = getEntityManager();
+
+        final Map<String, Object> listUsers = (Map<String, Object>) executeQuery(graphQL, QUERIES.get(1)).get("listUsersOnOwnEntityManager");
+        final List<Object> expected = entityManager.createQuery("select u.id from User u where u.displayName like 'User 1%' and u.id > 10 order by u.id desc", Object.class).getResultList();
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, ((List<Map<String, Object>>) listUsers.get("results")).stream().map(user -> user.get("id")).collect(Collectors.toList()));
+        assertEquals(expected.size(), ((Number) listUsers.get("total")).intValue());
+
+        final Map<String, Object> user = (Map<String, Object>) executeQuery(graphQL, "query { getUserById(id: 5) { id displayName company { id } } }").get("getUserById");
+        assertEquals(5, ((Number) user.get("id")).intValue());
+        assertEquals(entityManager.createQuery("select u.displayName from User u where u.id = 5", Object.class).getSingleResult(), user.get("displayName"));
+    }
+
+    @Test
+    public void testConcurrentQueriesMatchSequential() throws Exception {
+        final GraphQL graphQL = buildSchema();
+        final List<Map<String, Object>> expected = new ArrayList<>();
+        for (String query: QUERIES) {
+            expected.add(executeQuery(graphQL, query));
+        }
+
+        final int threadCount = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            // Threads start together, so lookups overlap
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    for (int iteration = 0; iteration < 10; iteration++) {
+                        for (int index = 0; index < QUERIES.size(); index++) {
+                            assertEquals(expected.get(index), executeQuery(graphQL, QUERIES.get(index)));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            startLatch.countDown();
+            for (Future<?> future: futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLargeOwner() {
+        final int fieldCount = 5000;
+        final GraphQL graphQL = buildSampleSchema(entitySchema -> {
+            final EntityDefinition<User> user = entitySchema.getEntity(User.class);
+            for (int i = 0; i < fieldCount; i++) {
+                final int value = i;
+                user.addField(EntityFieldBuilder.<User, Integer> literalField(fieldBuilder -> fieldBuilder.name("literal" + value).resultType(Integer.class).value(value)));
+            }
+        });
+
+        final StringBuilder selection = new StringBuilder();
+        for (int i = 0; i < fieldCount; i += 97) {
+            selection.append(" literal").append(i);
+        }
+        selection.append(" literal").append(fieldCount - 1);
+        final Map<String, Object> listUsers = (Map<String, Object>) executeQuery(graphQL, "query { listUsers(count: 2, orderBy: [{id: ASC}]) { results { id" + selection + " } } }").get("listUsers");
+        final List<Map<String, Object>> users = (List<Map<String, Object>>) listUsers.get("results");
+        assertEquals(2, users.size());
+        for (Map<String, Object> user: users) {
+            for (int i = 0; i < fieldCount; i += 97) {
+                assertEquals(i, user.get("literal" + i));
+            }
+            assertEquals(fieldCount - 1, user.get("literal" + (fieldCount - 1)));
+        }
+    }
+
+    // Queries may run on several threads, so each needs its own entity manager
+    private GraphQL buildSchema() {
+        return buildSampleSchema(entitySchema -> entitySchema.buildEntitySchemaScanner(new EntitySchemaScannerCallback())
+                .apply(entitySchemaScanner -> entitySchemaScanner.importOperations(new OwnEntityManagerService(getEntityManagerFactory()))));
+    }
+}
@@ -0,0 +1,98 @@
+package app;
+
+import static java.lang.String.format;
+import static org.grapple.query.EntityFieldBuilder.expressionField;
+import static org.grapple.query.EntityResultType.nullAllowed;
+import static org.grapple.query.EntityRootBuilder.entityRoot;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.grapple.query.FetchSet;
+import org.grapple.query.QueryField;
+import org.grapple.query.QueryPlanCache;
+import org.grapple.query.RootFetchSet;
+import org.grapple.query.TotalResultsMode;
+import org.grapple.query.impl.QueryProvider;
+import sandbox.grapple.CompanyField;
+import sandbox.grapple.UserField;
+import sandbox.grapple.entity.Company;
+import sandbox.grapple.entity.Company_;
+import sandbox.grapple.entity.User;
+import sandbox.grapple.entity.User_;
+
+// Query build cost as fetch sets get wider, should grow linearly with the number of fields
+// Build cost is the difference between executing without a plan cache and executing with a warm one
+public final class QueryBuildBenchmark {
+
+    private static final int JOIN_DEPTH = 10;
+
+    private static final int[] WIDTHS = { 10, 20, 40, 80, 160 };
+
+    private static final int WARMUP_ITERATIONS = 50;
+
+    private static final int ITERATIONS = 200;
+
+    public static void main(String[] args) throws Exception {
+        Launch.runTest(QueryBuildBenchmark::benchmarkWidths);
+    }
+
+    private static void benchmarkWidths(EntityManager entityManager) {
+        final List<QueryField<User, String>> userFields = new ArrayList<>();
+        final List<QueryField<Company, String>> companyFields = new ArrayList<>();
+        for (int i = 0; i < WIDTHS[WIDTHS.length - 1]; i++) {
+            userFields.add(expressionField(fieldBuilder -> fieldBuilder
+                    .name(format("userField%d", userFields.size()))
+                    .resultType(nullAllowed(String.class))
+                    .expression((ctx, queryBuilder) -> ctx.get(User_.displayName))));
+            companyFields.add(expressionField(fieldBuilder -> fieldBuilder
+                    .name(format("companyField%d", companyFields.size()))
+                    .resultType(nullAllowed(String.class))
+                    .expression((ctx, queryBuilder) -> ctx.get(Company_.displayName))));
+        }
+        for (int width: WIDTHS) {
+            final double uncached = measure(entityManager, width, userFields, companyFields, null);
+            final double cached = measure(entityManager, width, userFields, companyFields, QueryProvider.newQueryPlanCache(1));
+            System.out.println(format("width=%d uncached=%.3fms cached=%.3fms build=%.3fms perField=%.2fus", width, uncached, cached, uncached - cached, (uncached - cached) * 1000 / width));
+        }
+    }
+
+    private static double measure(EntityManager entityManager, int width, List<QueryField<User, String>> userFields, List<QueryField<Company, String>> companyFields, QueryPlanCache queryPlanCache) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            buildQuery(width, userFields, companyFields, queryPlanCache).execute(entityManager, entityRoot(User.class));
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            buildQuery(width, userFields, companyFields, queryPlanCache).execute(entityManager, entityRoot(User.class));
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+
+    // Fields are spread evenly across the root and each of its nested joins
+    private static RootFetchSet<User> buildQuery(int width, List<QueryField<User, String>> userFields, List<QueryField<Company, String>> companyFields, QueryPlanCache queryPlanCache) {
+        final RootFetchSet<User> query = QueryProvider.newQuery(User.class);
+        query.setMaxResults(1);
+        query.setTotalResultsMode(TotalResultsMode.NONE);
+        query.setQueryPlanCache(queryPlanCache);
+        selectUser(query, 0, width, userFields, companyFields);
+        return query;
+    }
+
+    private static void selectUser(FetchSet<User> fetchSet, int depth, int width, List<QueryField<User, String>> userFields, List<QueryField<Company, String>> companyFields) {
+        for (int i = depth; i < width; i += JOIN_DEPTH + 1) {
+            fetchSet.select(userFields.get(i));
+        }
+        if (depth < JOIN_DEPTH) {
+            fetchSet.join(UserField.Company, company -> selectCompany(company, depth + 1, width, userFields, companyFields));
+        }
+    }
+
+    private static void selectCompany(FetchSet<Company> fetchSet, int depth, int width, List<QueryField<User, String>> userFields, List<QueryField<Company, String>> companyFields) {
+        for (int i = depth; i < width; i += JOIN_DEPTH + 1) {
+            fetchSet.select(companyFields.get(i));
+        }
+        if (depth < JOIN_DEPTH) {
+            fetchSet.join(CompanyField.OwnerNullAllowed, owner -> selectUser(owner, depth + 1, width, userFields, companyFields));
+        }
+    }
+}
@@ -10,6 +10,8 @@ import static org.grapple.query.EntityResultType.nullAllowed;
 import app.CustomObject;
 import org.grapple.metadata.FieldNotExported;
 import org.grapple.query.EntityJoin;
+import org.grapple.query.EntityMetadataKeys;
+import org.grapple.query.JoinCardinality;
 import org.grapple.query.NonQueryField;
 import org.grapple.query.QueryDefinitions;
 import org.grapple.query.QueryField;
@@ -48,7 +50,8 @@ public class CompanyField {
             .resultType(nullAllowed(sandbox.grapple.entity.User.class))
             .expression((ctx, queryBuilder) -> {
                 return ctx.joinUnshared(Company_.users, tbl -> queryBuilder.equal(tbl.get(User_.id), queryBuilder.literal(99)));
-            }));
+            })
+            .metadata(EntityMetadataKeys.Cardinality, JoinCardinality.TO_ONE));
 
     @FieldNotExported
     public static final NonQueryField<Company, CustomObject> CustomObjectX = nonQueryField(fieldBuilder -> fieldBuilder